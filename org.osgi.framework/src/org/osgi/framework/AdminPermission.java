@@ -36,6 +36,9 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A bundle's authority to perform specific privileged administrative operations
@@ -751,6 +754,112 @@ public final class AdminPermission extends BasicPermission {
 		return new AdminPermissionCollection();
 	}
 
+	/**
+	 * Return the statistics of the cache of {@code implies} decisions of the
+	 * specified permission collection.
+	 * <p>
+	 * A collection returned by {@link #newPermissionCollection()} caches the
+	 * decisions for {@code AdminPermission}s constructed with a bundle.
+	 * 
+	 * @param collection A permission collection.
+	 * @return A snapshot of the decision cache statistics of the specified
+	 *         collection or {@code null} if the specified collection was not
+	 *         returned by {@link #newPermissionCollection()}.
+	 * @since 1.12
+	 */
+	public static DecisionCacheStatistics getDecisionCacheStatistics(PermissionCollection collection) {
+		if (collection instanceof AdminPermissionCollection) {
+			return ((AdminPermissionCollection) collection).statistics();
+		}
+		return null;
+	}
+
+	/**
+	 * A snapshot of the statistics of the cache of {@code implies} decisions of
+	 * a permission collection returned by {@link #newPermissionCollection()}.
+	 * 
+	 * @since 1.12
+	 * @Immutable
+	 */
+	public static final class DecisionCacheStatistics {
+		private final long	hitCount;
+		private final long	missCount;
+		private final long	invalidationCount;
+		private final long	evictionCount;
+		private final int	size;
+		private final int	maximumSize;
+
+		DecisionCacheStatistics(long hitCount, long missCount, long invalidationCount, long evictionCount, int size, int maximumSize) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.invalidationCount = invalidationCount;
+			this.evictionCount = evictionCount;
+			this.size = size;
+			this.maximumSize = maximumSize;
+		}
+
+		/**
+		 * Returns the number of decisions found in the cache.
+		 * 
+		 * @return The number of cache hits.
+		 */
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		/**
+		 * Returns the number of decisions which had to be evaluated.
+		 * 
+		 * @return The number of cache misses.
+		 */
+		public long getMissCount() {
+			return missCount;
+		}
+
+		/**
+		 * Returns the number of decisions discarded because a permission was
+		 * added to the collection.
+		 * 
+		 * @return The number of invalidations.
+		 */
+		public long getInvalidationCount() {
+			return invalidationCount;
+		}
+
+		/**
+		 * Returns the number of decisions discarded because the cache was
+		 * full.
+		 * 
+		 * @return The number of evictions.
+		 */
+		public long getEvictionCount() {
+			return evictionCount;
+		}
+
+		/**
+		 * Returns the number of decisions in the cache.
+		 * 
+		 * @return The number of entries.
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the maximum number of decisions in the cache.
+		 * 
+		 * @return The maximum number of entries.
+		 */
+		public int getMaximumSize() {
+			return maximumSize;
+		}
+
+		@Override
+		public String toString() {
+			return "DecisionCacheStatistics[hits=" + hitCount + ", misses=" + missCount + ", invalidations=" + invalidationCount + ", evictions=" + evictionCount + ", size=" + size + "]";
+		}
+	}
+
 	/**
 	 * Determines the equality of two {@code AdminPermission} objects.
 	 * 
@@ -814,6 +923,18 @@ public final class AdminPermission extends BasicPermission {
 		setTransients(parseFilter(getName()), parseActions(actions));
 	}
 
+	/**
+	 * Returns whether the current thread is getting the properties of the
+	 * specified bundle. Decisions made while recursing must not be cached.
+	 * 
+	 * @param bundle The bundle.
+	 * @return {@code true} if the current thread is getting the properties of
+	 *         the specified bundle.
+	 */
+	static boolean isRecursing(Bundle bundle) {
+		return recurse.get() == bundle;
+	}
+
 	/**
 	 * Called by {@code implies0} on an AdminPermission which was constructed
 	 * with a Bundle. This method loads a map with the filter-matchable
@@ -885,12 +1006,26 @@ final class AdminPermissionCollection extends PermissionCollection {
 	 */
 	private boolean									all_allowed;
 
+	/**
+	 * Incremented when a permission is added to invalidate the decisions.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient int							generation;
+
+	/**
+	 * Cached implies decisions for requested permissions constructed with a
+	 * bundle.
+	 */
+	private transient DecisionCache					decisions;
+
 	/**
 	 * Create an empty AdminPermissions object.
 	 * 
 	 */
 	public AdminPermissionCollection() {
 		permissions = new HashMap<String, AdminPermission>();
+		decisions = new DecisionCache();
 	}
 
 	/**
@@ -934,7 +1069,9 @@ final class AdminPermissionCollection extends PermissionCollection {
 					all_allowed = true;
 				}
 			}
+			generation++;
 		}
+		decisions.clear();
 	}
 
 	/**
@@ -960,6 +1097,7 @@ final class AdminPermissionCollection extends PermissionCollection {
 		}
 		int effective = AdminPermission.ACTION_NONE;
 		Collection<AdminPermission> perms;
+		int gen;
 		synchronized (this) {
 			Map<String, AdminPermission> pc = permissions;
 			// short circuit if the "*" Permission was added
@@ -974,15 +1112,43 @@ final class AdminPermissionCollection extends PermissionCollection {
 				}
 			}
 			perms = pc.values();
+			gen = generation;
+		}
+
+		final Bundle bundle = requested.bundle;
+		DecisionCache.Key key = null;
+		if ((bundle != null) && !AdminPermission.isRecursing(bundle)) {
+			// read before evaluating so a concurrent update is detected
+			key = DecisionCache.key(bundle, requested.action_mask);
+			if (key != null) {
+				Boolean decision = decisions.get(key, gen);
+				if (decision != null) {
+					return decision.booleanValue();
+				}
+			}
 		}
 
 		// just iterate one by one
+		boolean implied = false;
 		for (AdminPermission perm : perms) {
 			if (perm.implies0(requested, effective)) {
-				return true;
+				implied = true;
+				break;
 			}
 		}
-		return false;
+		if (key != null) {
+			decisions.put(key, gen, implied);
+		}
+		return implied;
+	}
+
+	/**
+	 * Returns the statistics of the cache of implies decisions.
+	 * 
+	 * @return A snapshot of the decision cache statistics.
+	 */
+	AdminPermission.DecisionCacheStatistics statistics() {
+		return decisions.statistics();
 	}
 
 	/**
@@ -1014,5 +1180,131 @@ final class AdminPermissionCollection extends PermissionCollection {
 		Hashtable<String, AdminPermission> hashtable = (Hashtable<String, AdminPermission>) gfields.get("permissions", null);
 		permissions = new HashMap<String, AdminPermission>(hashtable);
 		all_allowed = gfields.get("all_allowed", false);
+		decisions = new DecisionCache();
+	}
+
+	/**
+	 * Bounded cache of implies decisions keyed by bundle id, bundle last
+	 * modified time and requested action mask.
+	 * <p>
+	 * The properties of a bundle used to match filters only change when the
+	 * bundle is updated, and the last modified time of a bundle changes when
+	 * it is updated or uninstalled. So a decision is found only while the
+	 * bundle is unchanged. Decisions are also invalidated when a permission is
+	 * added to the collection. When the cache is full, it is cleared. The
+	 * cache does not hold on to the bundles.
+	 * 
+	 * @ThreadSafe
+	 */
+	static final class DecisionCache {
+		/**
+		 * Maximum number of cached decisions.
+		 */
+		private static final int					MAX_DECISIONS	= 1024;
+
+		private final ConcurrentMap<Key, Decision>	decisions		= new ConcurrentHashMap<Key, Decision>();
+		private final LongAdder						hits			= new LongAdder();
+		private final LongAdder						misses			= new LongAdder();
+		private final LongAdder						invalidations	= new LongAdder();
+		private final LongAdder						evictions		= new LongAdder();
+
+		DecisionCache() {
+			// empty
+		}
+
+		/**
+		 * Returns the key for decisions about the specified bundle.
+		 * 
+		 * @return The key or {@code null} if the bundle does not provide its
+		 *         id and last modified time.
+		 */
+		static Key key(Bundle bundle, int desired) {
+			try {
+				return new Key(bundle.getBundleId(), bundle.getLastModified(), desired);
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Returns the cached decision.
+		 * 
+		 * @return The decision or {@code null} if there is no valid decision.
+		 */
+		Boolean get(Key key, int generation) {
+			Decision decision = decisions.get(key);
+			if (decision == null) {
+				misses.increment();
+				return null;
+			}
+			if (decision.generation != generation) {
+				if (decisions.remove(key, decision)) {
+					invalidations.increment();
+				}
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return Boolean.valueOf(decision.implied);
+		}
+
+		void put(Key key, int generation, boolean implied) {
+			int size = decisions.size();
+			if (size >= MAX_DECISIONS) {
+				decisions.clear();
+				evictions.add(size);
+			}
+			decisions.put(key, new Decision(generation, implied));
+		}
+
+		void clear() {
+			int size = decisions.size();
+			decisions.clear();
+			invalidations.add(size);
+		}
+
+		AdminPermission.DecisionCacheStatistics statistics() {
+			return new AdminPermission.DecisionCacheStatistics(hits.sum(), misses.sum(), invalidations.sum(), evictions.sum(), decisions.size(), MAX_DECISIONS);
+		}
+
+		static final class Key {
+			private final long	bundleId;
+			private final long	lastModified;
+			private final int	desired;
+
+			Key(long bundleId, long lastModified, int desired) {
+				this.bundleId = bundleId;
+				this.lastModified = lastModified;
+				this.desired = desired;
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (obj == this) {
+					return true;
+				}
+				if (!(obj instanceof Key)) {
+					return false;
+				}
+				Key other = (Key) obj;
+				return (bundleId == other.bundleId) && (lastModified == other.lastModified) && (desired == other.desired);
+			}
+
+			@Override
+			public int hashCode() {
+				int h = 31 * Long.hashCode(bundleId) + Long.hashCode(lastModified);
+				return 31 * h + desired;
+			}
+		}
+
+		private static final class Decision {
+			final int		generation;
+			final boolean	implied;
+
+			Decision(int generation, boolean implied) {
+				this.generation = generation;
+				this.implied = implied;
+			}
+		}
 	}
 }
@@ -30,7 +30,6 @@ import java.security.PermissionCollection;
 import java.security.PrivilegedAction;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -496,7 +495,7 @@ public final class CapabilityPermission extends BasicPermission {
 	 * 
 	 * @return a map of properties for this permission.
 	 */
-	private Map<String, Object> getProperties() {
+	Map<String, Object> getProperties() {
 		Map<String, Object> result = properties;
 		if (result != null) {
 			return result;
@@ -599,12 +598,28 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 	 */
 	private Map<String, CapabilityPermission>	filterPermissions;
 
+	/**
+	 * Trie of the actions of the permissions with wildcard names.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient WildcardTrie							wildcards;
+
+	/**
+	 * Index of the permissions with filter expressions by the equality terms
+	 * of their filter expressions.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient FilterIndex<CapabilityPermission>	filterIndex;
+
 	/**
 	 * Creates an empty CapabilityPermissionCollection object.
 	 */
 	public CapabilityPermissionCollection() {
 		permissions = new HashMap<String, CapabilityPermission>();
 		all_allowed = false;
+		wildcards = new WildcardTrie();
 	}
 
 	/**
@@ -649,10 +664,13 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 				final int oldMask = existing.action_mask;
 				final int newMask = cp.action_mask;
 				if (oldMask != newMask) {
-					pc.put(name, new CapabilityPermission(name, oldMask | newMask));
+					CapabilityPermission merged = new CapabilityPermission(name, oldMask | newMask);
+					pc.put(name, merged);
+					index(merged, existing);
 				}
 			} else {
 				pc.put(name, cp);
+				index(cp, null);
 			}
 
 			if (!all_allowed) {
@@ -682,11 +700,11 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 			return false;
 		}
 
-		String requestedName = requested.getName();
+		final String requestedName = requested.getName();
 		final int desired = requested.action_mask;
 		int effective = CapabilityPermission.ACTION_NONE;
 
-		Collection<CapabilityPermission> perms;
+		final FilterIndex<CapabilityPermission> index;
 		synchronized (this) {
 			Map<String, CapabilityPermission> pc = permissions;
 			CapabilityPermission cp;
@@ -713,32 +731,22 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 					return true;
 				}
 			}
-			/* work our way up the tree... */
-			int last;
-			int offset = requestedName.length() - 1;
-			while ((last = requestedName.lastIndexOf('.', offset)) != -1) {
-				requestedName = requestedName.substring(0, last + 1) + "*";
-				cp = pc.get(requestedName);
-				if (cp != null) {
-					effective |= cp.action_mask;
-					if ((effective & desired) == desired) {
-						return true;
-					}
-				}
-				offset = last - 1;
+			/* then look for matches on a.b.* */
+			effective = wildcards.implied(requestedName, desired, effective);
+			if ((effective & desired) == desired) {
+				return true;
 			}
 			/*
 			 * we don't have to check for "*" as it was already checked before
 			 * we were called.
 			 */
-			pc = filterPermissions;
-			if (pc == null) {
+			index = filterIndex;
+			if (index == null) {
 				return false;
 			}
-			perms = pc.values();
 		}
-		/* iterate one by one over filteredPermissions */
-		for (CapabilityPermission perm : perms) {
+		/* iterate one by one over the filtered permissions which may match */
+		for (CapabilityPermission perm : index.getCandidates(requested.getProperties())) {
 			if (perm.implies0(requested, effective)) {
 				return true;
 			}
@@ -746,6 +754,31 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 		return false;
 	}
 
+	/**
+	 * Add a permission to the trie or the filter index.
+	 * 
+	 * @param added The added permission.
+	 * @param replaced The permission replaced by the added permission or
+	 *        {@code null}.
+	 */
+	private void index(CapabilityPermission added, CapabilityPermission replaced) {
+		if (added.filter == null) {
+			String name = added.getName();
+			if (WildcardTrie.isWildcard(name)) {
+				wildcards.add(name, added.action_mask);
+			}
+			return;
+		}
+		if (filterIndex == null) {
+			filterIndex = new FilterIndex<CapabilityPermission>();
+		}
+		// add before remove so concurrent implies always finds it
+		filterIndex.add(added.filter, added);
+		if (replaced != null) {
+			filterIndex.remove(replaced.filter, replaced);
+		}
+	}
+
 	/**
 	 * Returns an enumeration of all the {@code CapabilityPermission} objects in
 	 * the container.
@@ -783,5 +816,15 @@ final class CapabilityPermissionCollection extends PermissionCollection {
 		@SuppressWarnings("unchecked")
 		HashMap<String, CapabilityPermission> fp = (HashMap<String, CapabilityPermission>) gfields.get("filterPermissions", null);
 		filterPermissions = fp;
+		wildcards = new WildcardTrie();
+		filterIndex = null;
+		for (CapabilityPermission perm : permissions.values()) {
+			index(perm, null);
+		}
+		if (fp != null) {
+			for (CapabilityPermission perm : fp.values()) {
+				index(perm, null);
+			}
+		}
 	}
 }
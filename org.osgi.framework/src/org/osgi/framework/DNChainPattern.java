@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled distinguished name (DN) chain pattern.
+ * <p>
+ * A DN chain pattern is parsed once when compiled and can then be matched
+ * against many DN chains. The syntax of a DN chain pattern is described by
+ * {@link FrameworkUtil#matchDistinguishedNameChain(String, List)}, which is
+ * equivalent to compiling the pattern and calling {@link #matches(List)}.
+ *
+ * @since 1.12
+ * @Immutable
+ * @author $Id$
+ */
+public final class DNChainPattern {
+	/**
+	 * Maximum number of compiled patterns held by the pattern cache.
+	 */
+	private static final int								MAX_CACHED	= 256;
+	private static final ConcurrentMap<String,DNChainPattern>	cache		= new ConcurrentHashMap<>();
+
+	private final String									pattern;
+	private final List<Object>								parsed;
+
+	private DNChainPattern(String pattern) {
+		this.pattern = pattern;
+		this.parsed = FrameworkUtil.DNChainMatching.pattern(pattern);
+	}
+
+	/**
+	 * Compile the specified DN chain pattern.
+	 *
+	 * @param pattern The DN chain pattern.
+	 * @return The compiled DN chain pattern.
+	 * @throws IllegalArgumentException If the specified pattern is invalid.
+	 */
+	public static DNChainPattern compile(String pattern) {
+		return new DNChainPattern(pattern);
+	}
+
+	/**
+	 * Return the compiled DN chain pattern for the specified pattern from the
+	 * pattern cache.
+	 * <p>
+	 * Signer patterns used by permissions form a small, stable set, so the
+	 * cache is simply cleared if it grows too large. Invalid patterns are not
+	 * cached.
+	 *
+	 * @param pattern The DN chain pattern.
+	 * @return The compiled DN chain pattern.
+	 * @throws IllegalArgumentException If the specified pattern is invalid.
+	 */
+	static DNChainPattern cached(String pattern) {
+		if (pattern == null) {
+			return compile(pattern); // throws
+		}
+		DNChainPattern compiled = cache.get(pattern);
+		if (compiled == null) {
+			compiled = compile(pattern);
+			if (cache.size() >= MAX_CACHED) {
+				cache.clear();
+			}
+			cache.putIfAbsent(pattern, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Match the specified DN chain against this pattern.
+	 *
+	 * @param dnChain The DN chain to match against this pattern. Each element
+	 *            of the chain must be of type {@code String} and use the
+	 *            format defined in
+	 *            <a href="http://www.ietf.org/rfc/rfc2253.txt">RFC 2253</a>.
+	 * @return {@code true} If this pattern matches the DN chain; otherwise
+	 *         {@code false} is returned.
+	 * @throws IllegalArgumentException If the specified DN chain is invalid.
+	 */
+	public boolean matches(List<String> dnChain) {
+		return matches0(FrameworkUtil.DNChainMatching.chain(dnChain));
+	}
+
+	/**
+	 * Match the specified parsed DN chain against this pattern.
+	 *
+	 * @param parsedDNChain A DN chain parsed by
+	 *            {@code FrameworkUtil.DNChainMatching.chain}.
+	 * @return {@code true} If this pattern matches the DN chain.
+	 */
+	boolean matches0(List<Object> parsedDNChain) {
+		return FrameworkUtil.DNChainMatching.dnChainMatch(parsedDNChain, 0,
+				parsed, 0);
+	}
+
+	/**
+	 * Returns the DN chain pattern string of this compiled pattern.
+	 *
+	 * @return The DN chain pattern string.
+	 */
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	/**
+	 * Compares this {@code DNChainPattern} to another object.
+	 *
+	 * @param obj The object to compare against this {@code DNChainPattern}.
+	 * @return {@code true} if the other object is a {@code DNChainPattern}
+	 *         with the same pattern string; {@code false} otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof DNChainPattern)) {
+			return false;
+		}
+		return pattern.equals(((DNChainPattern) obj).pattern);
+	}
+
+	/**
+	 * Returns the hash code of this {@code DNChainPattern}.
+	 *
+	 * @return The hash code of the pattern string.
+	 */
+	@Override
+	public int hashCode() {
+		return pattern.hashCode();
+	}
+}
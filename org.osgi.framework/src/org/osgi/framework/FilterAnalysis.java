@@ -0,0 +1,509 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Static analysis of a {@link Filter}.
+ * <p>
+ * A {@code FilterAnalysis} examines the structure of a filter without
+ * evaluating it against any properties. It can be used to find the attributes
+ * a filter refers to, the equality terms any match of the filter requires, for
+ * example {@code objectClass=com.acme.Foo}, the disjunctive normal form of the
+ * filter, and whether the filter implies another filter.
+ * <p>
+ * The analysis is conservative. Attribute names and values are compared
+ * exactly as written in the filter strings and the values are not converted to
+ * the types of any properties. So the analysis may fail to discover a
+ * relationship between filters, but a relationship which is reported holds for
+ * all properties and all {@code match} methods of {@link Filter}.
+ *
+ * @since 1.12
+ * @Immutable
+ * @author $Id$
+ */
+public final class FilterAnalysis {
+	/**
+	 * The maximum number of conjunctions in a disjunctive normal form.
+	 */
+	private static final int					MAX_CLAUSES	= 1024;
+
+	private final FilterImpl					filter;
+	private final Set<String>					attributes;
+	private final Map<String,Set<String>>		requiredEqualities;
+	/* lazily computed disjunctive normal form; null if too large */
+	private volatile List<Clause>				clauses;
+	private volatile boolean					complete;
+
+	private FilterAnalysis(FilterImpl filter) {
+		this.filter = filter;
+		Set<String> attrs = new LinkedHashSet<>();
+		attributes(filter, attrs);
+		this.attributes = Collections.unmodifiableSet(attrs);
+		Map<String,Set<String>> required = requiredEqualities(filter, false);
+		for (Map.Entry<String,Set<String>> e : required.entrySet()) {
+			e.setValue(Collections.unmodifiableSet(e.getValue()));
+		}
+		this.requiredEqualities = Collections.unmodifiableMap(required);
+	}
+
+	/**
+	 * Analyze the specified filter.
+	 * <p>
+	 * If the specified filter was not created by
+	 * {@link FrameworkUtil#createFilter(String)}, its filter string is parsed.
+	 *
+	 * @param filter The filter to analyze.
+	 * @return The analysis of the specified filter.
+	 * @throws InvalidSyntaxException If the filter string of the specified
+	 *             filter cannot be parsed.
+	 */
+	public static FilterAnalysis analyze(Filter filter) {
+		return new FilterAnalysis(toFilterImpl(requireNonNull(filter)));
+	}
+
+	/**
+	 * Returns the analyzed filter.
+	 *
+	 * @return The analyzed filter.
+	 */
+	public Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Returns the names of the attributes referred to by the analyzed filter.
+	 * <p>
+	 * The attribute names are returned as written in the filter string, in the
+	 * order of their first occurrence.
+	 *
+	 * @return An unmodifiable set of the attribute names referred to by the
+	 *         analyzed filter.
+	 */
+	public Set<String> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the equality terms which must match for the analyzed filter to
+	 * match.
+	 * <p>
+	 * For example, any match of
+	 * {@code (&(objectClass=com.acme.Foo)(|(service.pid=a)(service.pid=b)))}
+	 * requires {@code objectClass=com.acme.Foo} while neither
+	 * {@code service.pid} value is required. An attribute may require more than
+	 * one value, for example
+	 * {@code (&(objectClass=com.acme.Foo)(objectClass=com.acme.Bar))}.
+	 *
+	 * @return An unmodifiable map of attribute name to the unmodifiable set of
+	 *         values required by the analyzed filter. The map is empty if no
+	 *         equality term is required.
+	 */
+	public Map<String,Set<String>> getRequiredEqualities() {
+		return requiredEqualities;
+	}
+
+	/**
+	 * Returns the disjunctive normal form of the analyzed filter.
+	 * <p>
+	 * The disjunctive normal form is a disjunction of conjunctions of simple
+	 * filter items and negated simple filter items. Duplicate items within a
+	 * conjunction are removed, as are conjunctions which are subsumed by
+	 * another conjunction. The items of each conjunction are ordered by their
+	 * filter string, so equivalent filters which only differ in the order of
+	 * their terms have the same disjunctive normal form.
+	 *
+	 * @return A filter in disjunctive normal form which is equivalent to the
+	 *         analyzed filter.
+	 * @throws IllegalStateException If the disjunctive normal form of the
+	 *             analyzed filter has more than 1024 conjunctions.
+	 */
+	public Filter getDisjunctiveNormalForm() {
+		List<Clause> dnf = clauses();
+		if (dnf == null) {
+			throw new IllegalStateException(
+					"disjunctive normal form is too large: " + filter);
+		}
+		FilterImpl[] operands = new FilterImpl[dnf.size()];
+		for (int i = 0; i < operands.length; i++) {
+			operands[i] = dnf.get(i).toFilter();
+		}
+		return ((operands.length == 1) ? operands[0]
+				: new FilterImpl.Or(operands)).compile();
+	}
+
+	/**
+	 * Returns whether the analyzed filter implies the specified filter.
+	 * <p>
+	 * The analyzed filter implies the specified filter if every set of
+	 * properties which matches the analyzed filter also matches the specified
+	 * filter. This method is conservative: if it returns {@code true}, the
+	 * analyzed filter implies the specified filter. If it returns
+	 * {@code false}, the analyzed filter may or may not imply the specified
+	 * filter.
+	 *
+	 * @param other The filter to test.
+	 * @return {@code true} if the analyzed filter is known to imply the
+	 *         specified filter; {@code false} otherwise.
+	 */
+	public boolean implies(Filter other) {
+		FilterImpl target;
+		try {
+			target = tree(toFilterImpl(requireNonNull(other)));
+		} catch (InvalidSyntaxException e) {
+			return false; // not a filter we understand
+		}
+		List<Clause> dnf = clauses();
+		if (dnf == null) {
+			return false; // too complex to analyze
+		}
+		for (Clause clause : dnf) {
+			if (!clause.isContradiction() && !clause.implies(target, false)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a string representation of this analysis.
+	 *
+	 * @return A string representation of this analysis.
+	 */
+	@Override
+	public String toString() {
+		return "FilterAnalysis[filter=" + filter + ", attributes="
+				+ attributes + ", requiredEqualities=" + requiredEqualities
+				+ "]";
+	}
+
+	private List<Clause> clauses() {
+		if (!complete) {
+			List<Clause> dnf = dnf(filter, false);
+			clauses = (dnf != null) ? absorb(dnf) : null;
+			complete = true;
+		}
+		return clauses;
+	}
+
+	private static FilterImpl toFilterImpl(Filter filter) {
+		if (filter instanceof FilterImpl) {
+			return (FilterImpl) filter;
+		}
+		return FilterImpl.createFilter(filter.toString());
+	}
+
+	/**
+	 * Unwrap a compiled filter to its filter tree.
+	 */
+	private static FilterImpl tree(FilterImpl filter) {
+		return (filter instanceof FilterImpl.Compiled)
+				? ((FilterImpl.Compiled) filter).tree
+				: filter;
+	}
+
+	private static void attributes(FilterImpl filter, Set<String> attrs) {
+		filter = tree(filter);
+		if (filter instanceof FilterImpl.And) {
+			for (FilterImpl operand : ((FilterImpl.And) filter).operands) {
+				attributes(operand, attrs);
+			}
+		} else if (filter instanceof FilterImpl.Or) {
+			for (FilterImpl operand : ((FilterImpl.Or) filter).operands) {
+				attributes(operand, attrs);
+			}
+		} else if (filter instanceof FilterImpl.Not) {
+			attributes(((FilterImpl.Not) filter).operand, attrs);
+		} else {
+			attrs.add(((FilterImpl.Item) filter).attr);
+		}
+	}
+
+	private static FilterImpl[] operands(FilterImpl filter) {
+		return (filter instanceof FilterImpl.And)
+				? ((FilterImpl.And) filter).operands
+				: ((FilterImpl.Or) filter).operands;
+	}
+
+	/**
+	 * Returns the required equality terms of the specified filter.
+	 * <p>
+	 * Negations are pushed inward, so a negated disjunction is a conjunction.
+	 * A conjunction requires the union of the terms required by its operands
+	 * and a disjunction requires the intersection.
+	 */
+	private static Map<String,Set<String>> requiredEqualities(
+			FilterImpl filter, boolean negated) {
+		filter = tree(filter);
+		if (filter instanceof FilterImpl.Not) {
+			return requiredEqualities(((FilterImpl.Not) filter).operand,
+					!negated);
+		}
+		if ((filter instanceof FilterImpl.And)
+				|| (filter instanceof FilterImpl.Or)) {
+			boolean conjunction = (filter instanceof FilterImpl.And) != negated;
+			Map<String,Set<String>> result = null;
+			for (FilterImpl operand : operands(filter)) {
+				Map<String,Set<String>> required = requiredEqualities(operand,
+						negated);
+				if (result == null) {
+					result = required;
+				} else if (conjunction) {
+					for (Map.Entry<String,Set<String>> e : required.entrySet()) {
+						result.computeIfAbsent(e.getKey(),
+								k -> new LinkedHashSet<>())
+								.addAll(e.getValue());
+					}
+				} else {
+					result.keySet().retainAll(required.keySet());
+					for (Map.Entry<String,Set<String>> e : result.entrySet()) {
+						e.getValue().retainAll(required.get(e.getKey()));
+					}
+					result.values().removeIf(Set::isEmpty);
+				}
+			}
+			return (result != null) ? result : new LinkedHashMap<>();
+		}
+		Map<String,Set<String>> result = new LinkedHashMap<>();
+		FilterImpl.Equal equal = negated ? null : filter.requiredEquality();
+		if (equal != null) {
+			result.computeIfAbsent(equal.attr, k -> new LinkedHashSet<>())
+					.add(equal.value);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the disjunctive normal form of the specified filter.
+	 *
+	 * @return The conjunctions or {@code null} if there are too many.
+	 */
+	private static List<Clause> dnf(FilterImpl filter, boolean negated) {
+		filter = tree(filter);
+		if (filter instanceof FilterImpl.Not) {
+			return dnf(((FilterImpl.Not) filter).operand, !negated);
+		}
+		if ((filter instanceof FilterImpl.And)
+				|| (filter instanceof FilterImpl.Or)) {
+			boolean conjunction = (filter instanceof FilterImpl.And) != negated;
+			List<Clause> result = null;
+			for (FilterImpl operand : operands(filter)) {
+				List<Clause> clauses = dnf(operand, negated);
+				if (clauses == null) {
+					return null;
+				}
+				if (result == null) {
+					result = clauses;
+				} else if (conjunction) {
+					if ((long) result.size() * clauses.size() > MAX_CLAUSES) {
+						return null;
+					}
+					List<Clause> product = new ArrayList<>(
+							result.size() * clauses.size());
+					for (Clause left : result) {
+						for (Clause right : clauses) {
+							product.add(left.and(right));
+						}
+					}
+					result = product;
+				} else {
+					if (result.size() + clauses.size() > MAX_CLAUSES) {
+						return null;
+					}
+					result.addAll(clauses);
+				}
+			}
+			return result;
+		}
+		List<Clause> result = new ArrayList<>(1);
+		result.add(new Clause(new Literal((FilterImpl.Item) filter, negated)));
+		return result;
+	}
+
+	/**
+	 * Remove duplicate conjunctions and conjunctions which are subsumed by
+	 * another conjunction, that is, which contain all the literals of another
+	 * conjunction.
+	 */
+	private static List<Clause> absorb(List<Clause> clauses) {
+		List<Clause> result = new ArrayList<>(clauses.size());
+		outer: for (int i = 0, size = clauses.size(); i < size; i++) {
+			Clause clause = clauses.get(i);
+			for (int j = 0; j < size; j++) {
+				if (i == j) {
+					continue;
+				}
+				Clause other = clauses.get(j);
+				int compare = other.literals.size() - clause.literals.size();
+				if ((compare < 0 || (compare == 0 && j < i))
+						&& clause.literals.keySet()
+								.containsAll(other.literals.keySet())) {
+					continue outer;
+				}
+			}
+			result.add(clause);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether a match of simple filter item {@code a} implies a match
+	 * of simple filter item {@code b}.
+	 */
+	private static boolean itemImplies(FilterImpl.Item a, FilterImpl.Item b) {
+		if (!a.attr.equals(b.attr)) {
+			return false;
+		}
+		// every item requires the attribute to be present
+		return (b instanceof FilterImpl.Present)
+				|| a.toString().equals(b.toString());
+	}
+
+	/**
+	 * A possibly negated simple filter item.
+	 */
+	private static final class Literal {
+		final FilterImpl.Item	item;
+		final boolean			negated;
+		final String			key;
+
+		Literal(FilterImpl.Item item, boolean negated) {
+			this.item = item;
+			this.negated = negated;
+			this.key = negated ? "(!" + item + ")" : item.toString();
+		}
+
+		FilterImpl toFilter() {
+			return negated ? new FilterImpl.Not(item) : item;
+		}
+	}
+
+	/**
+	 * A conjunction of literals ordered by their filter strings.
+	 */
+	private static final class Clause {
+		final Map<String,Literal> literals;
+
+		Clause(Literal literal) {
+			literals = Collections.singletonMap(literal.key, literal);
+		}
+
+		private Clause(Map<String,Literal> literals) {
+			this.literals = literals;
+		}
+
+		Clause and(Clause other) {
+			Map<String,Literal> merged = new TreeMap<>(literals);
+			merged.putAll(other.literals);
+			return new Clause(merged);
+		}
+
+		FilterImpl toFilter() {
+			if (literals.size() == 1) {
+				return literals.values().iterator().next().toFilter();
+			}
+			List<FilterImpl> operands = new ArrayList<>(literals.size());
+			for (Literal literal : literals.values()) {
+				operands.add(literal.toFilter());
+			}
+			return new FilterImpl.And(operands.toArray(new FilterImpl[0]));
+		}
+
+		/**
+		 * Returns whether this conjunction cannot match since it contains a
+		 * literal and the negation of a literal it implies.
+		 */
+		boolean isContradiction() {
+			Map<String,List<FilterImpl.Item>> negatedItems = new HashMap<>();
+			for (Literal literal : literals.values()) {
+				if (literal.negated) {
+					negatedItems
+							.computeIfAbsent(literal.item.attr,
+									k -> new ArrayList<>())
+							.add(literal.item);
+				}
+			}
+			if (negatedItems.isEmpty()) {
+				return false;
+			}
+			for (Literal literal : literals.values()) {
+				if (literal.negated) {
+					continue;
+				}
+				List<FilterImpl.Item> items = negatedItems
+						.get(literal.item.attr);
+				if (items != null) {
+					for (FilterImpl.Item item : items) {
+						if (itemImplies(literal.item, item)) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns whether this conjunction implies the specified filter, or
+		 * its negation.
+		 * <p>
+		 * A conjunction implies a disjunction if it implies one of its
+		 * operands, which is conservative.
+		 */
+		boolean implies(FilterImpl target, boolean negated) {
+			target = tree(target);
+			if (target instanceof FilterImpl.Not) {
+				return implies(((FilterImpl.Not) target).operand, !negated);
+			}
+			if ((target instanceof FilterImpl.And)
+					|| (target instanceof FilterImpl.Or)) {
+				boolean all = (target instanceof FilterImpl.And) != negated;
+				for (FilterImpl operand : operands(target)) {
+					if (implies(operand, negated) != all) {
+						return !all;
+					}
+				}
+				return all;
+			}
+			FilterImpl.Item item = (FilterImpl.Item) target;
+			for (Literal literal : literals.values()) {
+				if (literal.negated != negated) {
+					continue;
+				}
+				// a implies b; not b implies not a
+				if (negated ? itemImplies(item, literal.item)
+						: itemImplies(literal.item, item)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
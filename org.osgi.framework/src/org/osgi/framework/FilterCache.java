@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of parsed filters.
+ * <p>
+ * Parsed filters are immutable and can be shared, so this cache returns the
+ * same {@link FilterImpl} object for equal filter strings. Filters are also
+ * cached under their normalized filter string so that filter strings which only
+ * differ in insignificant whitespace share the same {@link FilterImpl} object.
+ * <p>
+ * The cache is bounded by the number of entries and by the total weight of the
+ * entries, where the weight of an entry is the length of its filter string.
+ * When either bound is exceeded, the least recently used entries are evicted.
+ * Recency is tracked by an access stamp on each entry which only advances when
+ * a new entry is added, so cache hits do not contend on a shared counter.
+ *
+ * @ThreadSafe
+ */
+final class FilterCache {
+	/**
+	 * When evicting, the cache is trimmed to this percentage of its bounds so
+	 * that the eviction cost is amortized over many insertions.
+	 */
+	private static final int					TRIM_PERCENT	= 75;
+
+	private final ConcurrentMap<String,Entry>	entries;
+	private final int							maxEntries;
+	private final long							maxWeight;
+	private final AtomicLong					clock			= new AtomicLong();
+	private final AtomicLong					weight			= new AtomicLong();
+	private final LongAdder						hits			= new LongAdder();
+	private final LongAdder						misses			= new LongAdder();
+	private final LongAdder						evictions		= new LongAdder();
+	private final Object						evictionLock	= new Object();
+
+	/**
+	 * Create a filter cache.
+	 *
+	 * @param maxEntries The maximum number of cached filter strings.
+	 * @param maxWeight The maximum total length of the cached filter strings.
+	 */
+	FilterCache(int maxEntries, long maxWeight) {
+		if (maxEntries < 1 || maxWeight < 1) {
+			throw new IllegalArgumentException(
+					"cache bounds must be positive");
+		}
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+	}
+
+	/**
+	 * Return the parsed filter for the specified filter string.
+	 *
+	 * @param filterString The filter string.
+	 * @return The parsed filter which may be shared with other callers.
+	 * @throws InvalidSyntaxException If the filter string cannot be parsed.
+	 *             Invalid filter strings are not cached.
+	 */
+	FilterImpl get(String filterString) {
+		Entry entry = entries.get(filterString);
+		if (entry != null) {
+			hits.increment();
+			return entry.access(clock.get());
+		}
+		misses.increment();
+		FilterImpl filter = FilterImpl.createFilter(filterString);
+		String normalized = filter.toString();
+		if (!normalized.equals(filterString)) {
+			Entry canonical = entries.get(normalized);
+			if (canonical != null) {
+				filter = canonical.access(clock.get());
+			} else {
+				filter = put(normalized, filter);
+			}
+		}
+		return put(filterString, filter);
+	}
+
+	private FilterImpl put(String key, FilterImpl filter) {
+		Entry created = new Entry(filter, key.length(),
+				clock.incrementAndGet());
+		Entry existing = entries.putIfAbsent(key, created);
+		if (existing != null) {
+			return existing.access(clock.get());
+		}
+		long total = weight.addAndGet(created.weight);
+		if ((total > maxWeight) || (entries.size() > maxEntries)) {
+			evict();
+		}
+		return filter;
+	}
+
+	/**
+	 * Evict the least recently used entries until the cache is below the trim
+	 * percentage of its bounds.
+	 */
+	private void evict() {
+		synchronized (evictionLock) {
+			if ((weight.get() <= maxWeight)
+					&& (entries.size() <= maxEntries)) {
+				return; // another thread already evicted
+			}
+			long targetWeight = maxWeight * TRIM_PERCENT / 100;
+			int targetEntries = (int) ((long) maxEntries * TRIM_PERCENT / 100);
+			// snapshot the stamps since they change while we sort
+			List<Candidate> candidates = new ArrayList<>(entries.size());
+			for (Map.Entry<String,Entry> e : entries.entrySet()) {
+				candidates.add(new Candidate(e.getKey(), e.getValue()));
+			}
+			candidates.sort(Comparator.comparingLong(c -> c.stamp));
+			int remaining = entries.size();
+			for (Candidate candidate : candidates) {
+				if ((remaining <= targetEntries)
+						&& (weight.get() <= targetWeight)) {
+					break;
+				}
+				Entry entry = candidate.entry;
+				if (entries.remove(candidate.key, entry)) {
+					weight.addAndGet(-entry.weight);
+					evictions.increment();
+					remaining--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return a snapshot of the statistics of this cache.
+	 *
+	 * @return A snapshot of the statistics of this cache.
+	 */
+	FrameworkUtil.FilterCacheStatistics statistics() {
+		return new FrameworkUtil.FilterCacheStatistics(hits.sum(),
+				misses.sum(), evictions.sum(), entries.size(), weight.get(),
+				maxEntries, maxWeight);
+	}
+
+	private static final class Entry {
+		final FilterImpl	filter;
+		final int			weight;
+		volatile long		stamp;
+
+		Entry(FilterImpl filter, int weight, long stamp) {
+			this.filter = filter;
+			this.weight = weight;
+			this.stamp = stamp;
+		}
+
+		FilterImpl access(long now) {
+			if (stamp != now) {
+				stamp = now;
+			}
+			return filter;
+		}
+	}
+
+	private static final class Candidate {
+		final String	key;
+		final Entry		entry;
+		final long		stamp;
+
+		Candidate(String key, Entry entry) {
+			this.key = key;
+			this.entry = entry;
+			this.stamp = entry.stamp;
+		}
+	}
+}
@@ -20,6 +20,9 @@ package org.osgi.framework;
 
 import static java.util.Objects.requireNonNull;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
@@ -28,6 +31,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
@@ -167,7 +171,7 @@ abstract class FilterImpl implements Filter {
 	 *             invalid filter string that cannot be parsed.
 	 */
 	static FilterImpl createFilter(String filterString) {
-		return new Parser(filterString).parse();
+		return new Parser(filterString).parse().compile();
 	}
 
 	FilterImpl() {
@@ -206,9 +210,9 @@ abstract class FilterImpl implements Filter {
 	 */
 	@Override
 	public boolean match(Dictionary<String, ? > dictionary) {
-		return matches0(
-				(dictionary != null) ? new CaseInsensitiveMap(dictionary)
-						: Collections.emptyMap());
+		return (dictionary != null)
+				? CaseInsensitiveMap.matches(this, dictionary)
+				: matches0(Collections.emptyMap());
 	}
 
 	/**
@@ -247,6 +251,30 @@ abstract class FilterImpl implements Filter {
 
 	abstract boolean matches0(Map<String, ? > map);
 
+	/**
+	 * Returns the filter to use for evaluation of this filter tree.
+	 * <p>
+	 * Composite filters are compiled into a flattened evaluation program.
+	 * Simple filters are returned as is.
+	 * 
+	 * @return The filter to use for evaluation.
+	 */
+	FilterImpl compile() {
+		return this;
+	}
+
+	/**
+	 * Returns an equality item which must match for this filter to match.
+	 * <p>
+	 * This is used to index filters by the value of an attribute.
+	 * 
+	 * @return An equality item or {@code null} if a match of this filter does
+	 *         not require a single equality item to match.
+	 */
+	Equal requiredEquality() {
+		return null;
+	}
+
 	/**
 	 * Returns this {@code Filter}'s filter string.
 	 * <p>
@@ -312,12 +340,42 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static final class And extends FilterImpl {
-		private final FilterImpl[] operands;
+		final FilterImpl[] operands;
 
 		And(FilterImpl[] operands) {
 			this.operands = operands;
 		}
 
+		@Override
+		FilterImpl compile() {
+			return new Compiled(this);
+		}
+
+		/**
+		 * Prefer the object class and then the persistent identity since
+		 * these are the most discriminating attributes of a service.
+		 */
+		@Override
+		Equal requiredEquality() {
+			Equal result = null;
+			for (FilterImpl operand : operands) {
+				Equal equal = operand.requiredEquality();
+				if (equal == null) {
+					continue;
+				}
+				if (equal.attr.equalsIgnoreCase(Constants.OBJECTCLASS)) {
+					return equal;
+				}
+				if ((result == null) || (equal.attr
+						.equalsIgnoreCase(Constants.SERVICE_PID)
+						&& !result.attr
+								.equalsIgnoreCase(Constants.SERVICE_PID))) {
+					result = equal;
+				}
+			}
+			return result;
+		}
+
 		@Override
 		boolean matches0(Map<String, ? > map) {
 			for (FilterImpl operand : operands) {
@@ -339,12 +397,17 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static final class Or extends FilterImpl {
-		private final FilterImpl[] operands;
+		final FilterImpl[] operands;
 
 		Or(FilterImpl[] operands) {
 			this.operands = operands;
 		}
 
+		@Override
+		FilterImpl compile() {
+			return new Compiled(this);
+		}
+
 		@Override
 		boolean matches0(Map<String, ? > map) {
 			for (FilterImpl operand : operands) {
@@ -366,12 +429,17 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static final class Not extends FilterImpl {
-		private final FilterImpl operand;
+		final FilterImpl operand;
 
 		Not(FilterImpl operand) {
 			this.operand = operand;
 		}
 
+		@Override
+		FilterImpl compile() {
+			return new Compiled(this);
+		}
+
 		@Override
 		boolean matches0(Map<String, ? > map) {
 			return !operand.matches0(map);
@@ -385,16 +453,145 @@ abstract class FilterImpl implements Filter {
 		}
 	}
 
+	/**
+	 * Flattened evaluation program for a composite filter.
+	 * <p>
+	 * The filter tree is compiled into an array of item tests. Each test holds
+	 * the index of the next test to evaluate if the item matches and if it does
+	 * not match. The And, Or and Not nodes are fully represented by these jump
+	 * targets, so evaluation is a single loop which short-circuits without
+	 * recursion. The filter tree is retained for normalization.
+	 */
+	static final class Compiled extends FilterImpl {
+		private static final int	ACCEPT	= -1;
+		private static final int	REJECT	= -2;
+		final FilterImpl			tree;
+		private final Item[]		items;
+		private final int[]			onMatch;
+		private final int[]			onMismatch;
+		private final int			entry;
+
+		Compiled(FilterImpl tree) {
+			this.tree = tree;
+			List<Item> compiled = new ArrayList<>();
+			List<int[]> targets = new ArrayList<>();
+			int start = compile(tree, ACCEPT, REJECT, compiled, targets);
+			// items were emitted last operand first; lay them out in order
+			int size = compiled.size();
+			items = new Item[size];
+			onMatch = new int[size];
+			onMismatch = new int[size];
+			for (int i = 0; i < size; i++) {
+				int index = size - 1 - i;
+				Item item = compiled.get(i);
+				item.prepare();
+				int[] target = targets.get(i);
+				items[index] = item;
+				onMatch[index] = relocate(target[0], size);
+				onMismatch[index] = relocate(target[1], size);
+			}
+			entry = relocate(start, size);
+		}
+
+		/**
+		 * Emit the item tests for the specified filter node.
+		 * 
+		 * @param filter The filter node to compile.
+		 * @param match The target if the node matches.
+		 * @param mismatch The target if the node does not match.
+		 * @return The target of the first item test for the node.
+		 */
+		private static int compile(FilterImpl filter, int match, int mismatch,
+				List<Item> compiled, List<int[]> targets) {
+			if (filter instanceof And) {
+				FilterImpl[] operands = ((And) filter).operands;
+				int next = match;
+				for (int i = operands.length - 1; i >= 0; i--) {
+					next = compile(operands[i], next, mismatch, compiled,
+							targets);
+				}
+				return next;
+			}
+			if (filter instanceof Or) {
+				FilterImpl[] operands = ((Or) filter).operands;
+				int next = mismatch;
+				for (int i = operands.length - 1; i >= 0; i--) {
+					next = compile(operands[i], match, next, compiled,
+							targets);
+				}
+				return next;
+			}
+			if (filter instanceof Not) {
+				return compile(((Not) filter).operand, mismatch, match,
+						compiled, targets);
+			}
+			compiled.add((Item) filter);
+			targets.add(new int[] {
+					match, mismatch
+			});
+			return compiled.size() - 1;
+		}
+
+		private static int relocate(int target, int size) {
+			return (target < 0) ? target : size - 1 - target;
+		}
+
+		@Override
+		boolean matches0(Map<String, ? > map) {
+			int pc = entry;
+			while (pc >= 0) {
+				pc = items[pc].matches0(map) ? onMatch[pc] : onMismatch[pc];
+			}
+			return pc == ACCEPT;
+		}
+
+		@Override
+		Equal requiredEquality() {
+			return tree.requiredEquality();
+		}
+
+		@Override
+		StringBuilder normalize(StringBuilder sb) {
+			return tree.normalize(sb);
+		}
+	}
+
 	static abstract class Item extends FilterImpl {
-		final String attr;
+		final String		attr;
+		/* case insensitive hash code of attr */
+		private final int	attrHash;
 
 		Item(String attr) {
 			this.attr = attr;
+			this.attrHash = CaseInsensitiveMap.hash(attr);
 		}
 
 		@Override
 		boolean matches0(Map<String, ? > map) {
-			return compare(map.get(attr));
+			return compare(lookup(map));
+		}
+
+		/**
+		 * Return the value of the attribute of this item.
+		 */
+		final Object lookup(Map<String, ? > map) {
+			if (map instanceof CaseInsensitiveMap) {
+				return ((CaseInsensitiveMap) map).get(attr, attrHash);
+			}
+			return map.get(attr);
+		}
+
+		@Override
+		FilterImpl compile() {
+			prepare();
+			return this;
+		}
+
+		/**
+		 * Prepare this item for repeated evaluation.
+		 */
+		void prepare() {
+			// nothing to prepare by default
 		}
 
 		private boolean compare(Object value1) {
@@ -605,7 +802,7 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean matches0(Map<String, ? > map) {
-			return map.get(attr) != null;
+			return lookup(map) != null;
 		}
 
 		@Override
@@ -683,24 +880,125 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static class Equal extends Item {
+		/**
+		 * Maximum number of property types for which a converted operand is
+		 * cached by each filter node.
+		 */
+		private static final int	MAX_CONVERSIONS	= 8;
+		/**
+		 * Marker for an operand which cannot be converted to a property type.
+		 */
+		private static final Object	UNCONVERTIBLE	= new Object();
+		private static final Object[]	NO_CONVERSIONS	= new Object[0];
+
 		final String value;
-		private Object	cached;
+		/*
+		 * Filters are shared by the filter cache. The converted operands are
+		 * held in a copy-on-write table of alternating type and converted
+		 * value which is published through a volatile field.
+		 */
+		private volatile Object[]	conversions	= NO_CONVERSIONS;
 
 		Equal(String attr, String value) {
 			super(attr);
 			this.value = value;
 		}
-		
-		private <T> T convert(Class<T> type, Function<String, ? extends T> converter) {
-			@SuppressWarnings("unchecked")
-			T converted = (T) cached;
-			if ((converted != null) && type.isInstance(converted)) {
-				return converted;
+
+		/**
+		 * Return the operand converted to the specified type.
+		 * 
+		 * @param type The property type.
+		 * @param converter The function to convert the operand if it is not
+		 *            already converted to the property type.
+		 * @return The converted operand or {@code null} if the operand cannot
+		 *         be converted to the specified type.
+		 */
+		private <T> T convert(Class<T> type,
+				Function<String, ? extends T> converter) {
+			Object[] table = conversions;
+			for (int i = 0, length = table.length; i < length; i += 2) {
+				if (table[i] == type) {
+					Object converted = table[i + 1];
+					return (converted == UNCONVERTIBLE) ? null
+							: type.cast(converted);
+				}
+			}
+			T converted;
+			try {
+				converted = converter.apply(value.trim());
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				converted = null;
+			}
+			if (isCacheable(type)) {
+				cache(type, (converted == null) ? UNCONVERTIBLE : converted);
 			}
-			cached = converted = converter.apply(value.trim());
 			return converted;
 		}
 
+		private synchronized void cache(Class< ? > type, Object converted) {
+			Object[] table = conversions;
+			int length = table.length;
+			if (length >= MAX_CONVERSIONS * 2) {
+				return;
+			}
+			for (int i = 0; i < length; i += 2) {
+				if (table[i] == type) {
+					return;
+				}
+			}
+			Object[] updated = Arrays.copyOf(table, length + 2);
+			updated[length] = type;
+			updated[length + 1] = converted;
+			conversions = updated;
+		}
+
+		/**
+		 * Converted operands are only cached for types which cannot be
+		 * unloaded before this filter, so cached filters do not hold on to
+		 * the class loaders of bundles.
+		 */
+		private static boolean isCacheable(Class< ? > type) {
+			ClassLoader loader = type.getClassLoader();
+			return (loader == null)
+					|| (loader == FilterImpl.class.getClassLoader());
+		}
+
+		/**
+		 * Pre-parse the operand for the most likely property type. Integral
+		 * operands are usually compared against Long or Integer properties such
+		 * as service.id or service.ranking.
+		 */
+		@Override
+		void prepare() {
+			if (isIntegral(value.trim())) {
+				convert(Long.class, Long::valueOf);
+			}
+		}
+
+		private static boolean isIntegral(String string) {
+			int length = string.length();
+			int i = ((length > 1) && ((string.charAt(0) == '-')
+					|| (string.charAt(0) == '+'))) ? 1 : 0;
+			if (i == length) {
+				return false;
+			}
+			for (; i < length; i++) {
+				char c = string.charAt(i);
+				if ((c < '0') || (c > '9')) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		Equal requiredEquality() {
+			// subclasses are not equality comparisons
+			return (getClass() == Equal.class) ? this : null;
+		}
+
 		boolean comparison(int compare) {
 			return compare == 0;
 		}
@@ -712,13 +1010,11 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean compare_Version(Version value1) {
-			try {
-				Version version2 = convert(Version.class, Version::valueOf);
-				return comparison(value1.compareTo(version2));
-			} catch (Exception e) {
-				// if the valueOf or compareTo method throws an exception
+			Version version2 = convert(Version.class, Version::valueOf);
+			if (version2 == null) {
 				return false;
 			}
+			return comparison(value1.compareTo(version2));
 		}
 
 		@Override
@@ -740,35 +1036,30 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean compare_Double(double doubleval) {
-			double doubleval2;
-			try {
-				doubleval2 = convert(Double.class, Double::valueOf).doubleValue();
-			} catch (IllegalArgumentException e) {
+			Double doubleval2 = convert(Double.class, Double::valueOf);
+			if (doubleval2 == null) {
 				return false;
 			}
-			return comparison(Double.compare(doubleval, doubleval2));
+			return comparison(
+					Double.compare(doubleval, doubleval2.doubleValue()));
 		}
 
 		@Override
 		boolean compare_Float(float floatval) {
-			float floatval2;
-			try {
-				floatval2 = convert(Float.class, Float::valueOf).floatValue();
-			} catch (IllegalArgumentException e) {
+			Float floatval2 = convert(Float.class, Float::valueOf);
+			if (floatval2 == null) {
 				return false;
 			}
-			return comparison(Float.compare(floatval, floatval2));
+			return comparison(Float.compare(floatval, floatval2.floatValue()));
 		}
 
 		@Override
 		boolean compare_Long(long longval) {
-			long longval2;
-			try {
-				longval2 = convert(Long.class, Long::valueOf).longValue();
-			} catch (IllegalArgumentException e) {
+			Long longval2 = convert(Long.class, Long::valueOf);
+			if (longval2 == null) {
 				return false;
 			}
-			return comparison(Long.compare(longval, longval2));
+			return comparison(Long.compare(longval, longval2.longValue()));
 		}
 
 		@Override
@@ -805,7 +1096,55 @@ abstract class FilterImpl implements Filter {
 			return encodeValue(sb, value).append(')');
 		}
 
+		/**
+		 * Convert the operand to the specified type using its public static
+		 * {@code valueOf(String)} method or its public {@code String}
+		 * constructor.
+		 * 
+		 * @param target The property type.
+		 * @return The converted operand or {@code null} if the operand cannot
+		 *         be converted to the specified type.
+		 */
 		Object valueOf(Class< ? > target) {
+			MethodHandle factory = factories.get(target);
+			if (factory == null) {
+				return null;
+			}
+			@SuppressWarnings("unchecked")
+			Class<Object> type = (Class<Object>) target;
+			return convert(type, string -> {
+				try {
+					return factory.invokeExact(string);
+				} catch (Error | RuntimeException e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalArgumentException(e);
+				}
+			});
+		}
+
+		/**
+		 * Factory method handles for the types compared by filters. The method
+		 * handles are looked up once per type and have the type
+		 * {@code (String)Object}. The value is {@code null} if the type has no
+		 * usable factory.
+		 */
+		private static final ClassValue<MethodHandle> factories = new ClassValue<MethodHandle>() {
+			@Override
+			protected MethodHandle computeValue(Class< ? > target) {
+				try {
+					return factory(target);
+				} catch (Error e) {
+					throw e;
+				} catch (Throwable e) {
+					return null;
+				}
+			}
+		};
+
+		static MethodHandle factory(Class< ? > target) throws Exception {
+			MethodType type = MethodType.methodType(Object.class,
+					String.class);
 			do {
 				Method method;
 				try {
@@ -816,13 +1155,9 @@ abstract class FilterImpl implements Filter {
 				if (Modifier.isStatic(method.getModifiers())
 						&& target.isAssignableFrom(method.getReturnType())) {
 					setAccessible(method);
-					try {
-						return method.invoke(null, value.trim());
-					} catch (Error e) {
-						throw e;
-					} catch (Throwable e) {
-						return null;
-					}
+					return MethodHandles.lookup()
+							.unreflect(method)
+							.asType(type);
 				}
 			} while (false);
 
@@ -834,13 +1169,9 @@ abstract class FilterImpl implements Filter {
 					break;
 				}
 				setAccessible(constructor);
-				try {
-					return constructor.newInstance(value.trim());
-				} catch (Error e) {
-					throw e;
-				} catch (Throwable e) {
-					return null;
-				}
+				return MethodHandles.lookup()
+						.unreflectConstructor(constructor)
+						.asType(type);
 			} while (false);
 
 			return null;
@@ -1317,46 +1648,158 @@ abstract class FilterImpl implements Filter {
 	 * evaluation. This Map implementation only supports the get operation using
 	 * a String key as no other operations are used by the Filter
 	 * implementation.
+	 * <p>
+	 * The keys of the dictionary are placed in an open addressing hash table
+	 * using a case-insensitive hash code in a single pass, which also detects
+	 * case variants of the same key name. Filter items hash their attribute
+	 * names once when created. The tables are reused by each thread, so a
+	 * match does not allocate any arrays once the tables are large enough.
 	 */
 	private static final class CaseInsensitiveMap
-			extends DictionaryMap implements Map<String,Object> {
-		private final String[]					keys;
+			extends AbstractMap<String,Object> implements Map<String,Object> {
+		private static final int							MIN_CAPACITY	= 16;
+		private static final ThreadLocal<CaseInsensitiveMap>	perThread		= ThreadLocal
+				.withInitial(CaseInsensitiveMap::new);
+
+		private Dictionary<String, ? >						dictionary;
+		private String[]									keys			= new String[MIN_CAPACITY];
+		private int[]										hashes			= new int[MIN_CAPACITY];
+		private int											mask;
+		private int											size;
+		private boolean										inUse;
 
 		/**
-		 * Create a case insensitive map from the specified dictionary.
+		 * Match the specified filter against the specified dictionary using
+		 * case insensitive key lookup.
 		 * 
-		 * @param dictionary
 		 * @throws IllegalArgumentException If {@code dictionary} contains case
 		 *             variants of the same key name.
 		 */
-		CaseInsensitiveMap(Dictionary<String, ? > dictionary) {
-			super(dictionary);
-			List<String> keyList = new ArrayList<>(dictionary.size());
-			for (Enumeration< ? > e = dictionary.keys(); e.hasMoreElements();) {
+		static boolean matches(FilterImpl filter,
+				Dictionary<String, ? > dictionary) {
+			CaseInsensitiveMap map = perThread.get();
+			if (map.inUse) {
+				// filter match called during a filter match on this thread
+				map = new CaseInsensitiveMap();
+			}
+			try {
+				map.open(requireNonNull(dictionary));
+				return filter.matches0(map);
+			} finally {
+				map.close();
+			}
+		}
+
+		/**
+		 * Return a hash code for the specified string which is the same for
+		 * all strings which are equal ignoring case.
+		 */
+		static int hash(String string) {
+			int h = 0;
+			for (int i = 0, length = string.length(); i < length;) {
+				int c = string.codePointAt(i);
+				h = 31 * h + Character.toLowerCase(Character.toUpperCase(c));
+				i += Character.charCount(c);
+			}
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * Place the keys of the specified dictionary in the hash table.
+		 * 
+		 * @throws IllegalArgumentException If {@code dictionary} contains case
+		 *             variants of the same key name.
+		 */
+		private void open(Dictionary<String, ? > d) {
+			inUse = true;
+			dictionary = d;
+			resize(d.size());
+			for (Enumeration< ? > e = d.keys(); e.hasMoreElements();) {
 				Object k = e.nextElement();
 				if (k instanceof String) {
-					String key = (String) k;
-					for (String i : keyList) {
-						if (key.equalsIgnoreCase(i)) {
-							throw new IllegalArgumentException();
-						}
-					}
-					keyList.add(key);
+					add((String) k);
 				}
 			}
-			this.keys = keyList.toArray(new String[0]);
 		}
 
-		@Override
-		public Object get(Object o) {
-			String k = (String) o;
-			for (String key : keys) {
-				if (key.equalsIgnoreCase(k)) {
-					return super.get(key);
+		private void add(String key) {
+			if ((size + 1) * 2 > mask + 1) {
+				// dictionary has more keys than its size
+				rehash();
+			}
+			int h = hash(key);
+			int i = h & mask;
+			for (String k; (k = keys[i]) != null; i = (i + 1) & mask) {
+				if ((hashes[i] == h) && k.equalsIgnoreCase(key)) {
+					throw new IllegalArgumentException();
+				}
+			}
+			keys[i] = key;
+			hashes[i] = h;
+			size++;
+		}
+
+		/**
+		 * Set the capacity of the hash table for the specified number of keys.
+		 */
+		private void resize(int expected) {
+			int capacity = MIN_CAPACITY;
+			while (capacity < expected * 2) {
+				capacity <<= 1;
+			}
+			if (capacity > keys.length) {
+				keys = new String[capacity];
+				hashes = new int[capacity];
+			}
+			mask = capacity - 1;
+			size = 0;
+		}
+
+		private void rehash() {
+			String[] oldKeys = Arrays.copyOf(keys, mask + 1);
+			Arrays.fill(keys, 0, mask + 1, null);
+			resize(mask + 1);
+			for (String k : oldKeys) {
+				if (k != null) {
+					add(k);
+				}
+			}
+		}
+
+		private void close() {
+			Arrays.fill(keys, 0, mask + 1, null);
+			dictionary = null;
+			size = 0;
+			inUse = false;
+		}
+
+		/**
+		 * Return the value for the specified key name.
+		 * 
+		 * @param key The key name.
+		 * @param h The case insensitive hash code of the key name.
+		 * @return The value or {@code null} if the dictionary does not contain
+		 *         a case variant of the key name.
+		 */
+		Object get(String key, int h) {
+			for (int i = h & mask; keys[i] != null; i = (i + 1) & mask) {
+				if ((hashes[i] == h) && keys[i].equalsIgnoreCase(key)) {
+					return dictionary.get(keys[i]);
 				}
 			}
 			return null;
 		}
+
+		@Override
+		public Object get(Object o) {
+			String k = (String) o;
+			return get(k, hash(k));
+		}
+
+		@Override
+		public Set<Entry<String,Object>> entrySet() {
+			throw new UnsupportedOperationException();
+		}
 	}
 
 	/**
@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Predicate;
+
+/**
+ * An index of filters for matching many filters against a set of properties.
+ * <p>
+ * Whiteboard style consumers often hold many {@link Filter} objects and must
+ * find which of them match a set of properties. A {@code FilterIndex} holds
+ * filters, each with an associated value, and returns the values of the
+ * filters which match a set of properties without evaluating every filter.
+ * <p>
+ * When a filter is added, it is indexed by an equality term which must match
+ * for the filter to match, for example {@code (objectClass=com.acme.Foo)} in
+ * {@code (&(objectClass=com.acme.Foo)(service.pid=foo))}. The object class and
+ * the persistent identity are preferred over other attributes. When matching, only
+ * the filters indexed by a value of the properties, and the filters which
+ * have no such equality term, are evaluated. The filters are always evaluated
+ * against the properties, so the result is the same as evaluating each filter
+ * in turn.
+ *
+ * @param <T> The type of the values associated with the filters.
+ * @since 1.12
+ * @ThreadSafe
+ * @author $Id$
+ */
+public final class FilterIndex<T> {
+	/**
+	 * The indexed filters grouped by the case folded attribute name of their
+	 * equality term.
+	 */
+	private final ConcurrentMap<String,Group<T>>	groups		= new ConcurrentHashMap<>();
+	/**
+	 * The filters which do not have an equality term.
+	 */
+	private final Set<Entry<T>>						unindexed	= ConcurrentHashMap
+			.newKeySet();
+
+	/**
+	 * Create an empty filter index.
+	 */
+	public FilterIndex() {
+		// empty
+	}
+
+	/**
+	 * Add a filter with an associated value to this index.
+	 *
+	 * @param filter The filter.
+	 * @param value The value to return when the filter matches.
+	 * @return {@code true} if the filter and value were added; {@code false}
+	 *         if this index already contains the filter with an equal value.
+	 */
+	public boolean add(Filter filter, T value) {
+		Entry<T> entry = new Entry<>(requireNonNull(filter),
+				requireNonNull(value));
+		FilterImpl.Equal term = requiredEquality(filter);
+		if (term == null) {
+			return unindexed.add(entry);
+		}
+		Group<T> group = groups.computeIfAbsent(fold(term.attr),
+				k -> new Group<>());
+		return group.add(term, entry);
+	}
+
+	/**
+	 * Remove a filter with an associated value from this index.
+	 *
+	 * @param filter The filter.
+	 * @param value The value associated with the filter.
+	 * @return {@code true} if the filter and value were removed; {@code false}
+	 *         if this index does not contain the filter with an equal value.
+	 */
+	public boolean remove(Filter filter, T value) {
+		Entry<T> entry = new Entry<>(requireNonNull(filter),
+				requireNonNull(value));
+		FilterImpl.Equal term = requiredEquality(filter);
+		if (term == null) {
+			return unindexed.remove(entry);
+		}
+		Group<T> group = groups.get(fold(term.attr));
+		return (group != null) && group.remove(term, entry);
+	}
+
+	/**
+	 * Returns the number of filter and value pairs in this index.
+	 *
+	 * @return The number of filter and value pairs in this index.
+	 */
+	public int size() {
+		int size = unindexed.size();
+		for (Group<T> group : groups.values()) {
+			size += group.entries.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the values of the filters which match the specified map using
+	 * {@link Filter#matches(Map)}.
+	 *
+	 * @param map The map whose key/value pairs are used in the match.
+	 * @return The values of the matching filters. The list is empty if no
+	 *         filter matches.
+	 */
+	public List<T> getMatches(Map<String, ? > map) {
+		Map<String, ? > properties = (map != null) ? map
+				: Collections.emptyMap();
+		return collect(properties).matches(unindexed,
+				f -> f.matches(properties));
+	}
+
+	/**
+	 * Returns the values of the filters which may match the specified map
+	 * using {@link Filter#matches(Map)}. The filters are not evaluated, so
+	 * the caller can evaluate them and stop at the first match.
+	 *
+	 * @param map The map whose key/value pairs are used in the match.
+	 * @return The values of the filters which may match.
+	 */
+	List<T> getCandidates(Map<String, ? > map) {
+		return collect(map).matches(unindexed, f -> true);
+	}
+
+	private Candidates<T> collect(Map<String, ? > properties) {
+		Candidates<T> candidates = new Candidates<>();
+		for (Group<T> group : groups.values()) {
+			for (String attr : group.attrs) {
+				group.collect(properties.get(attr), candidates);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns the values of the filters which match the specified dictionary
+	 * using {@link Filter#match(Dictionary)}.
+	 *
+	 * @param dictionary The dictionary whose key/value pairs are used in the
+	 *            match.
+	 * @return The values of the matching filters. The list is empty if no
+	 *         filter matches.
+	 * @throws IllegalArgumentException If {@code dictionary} contains case
+	 *             variants of the same key name.
+	 */
+	public List<T> getMatches(Dictionary<String, ? > dictionary) {
+		Candidates<T> candidates = new Candidates<>();
+		if (dictionary != null) {
+			// check all keys since no filter may be evaluated
+			Set<String> folded = new HashSet<>();
+			for (Enumeration<String> e = dictionary.keys(); e
+					.hasMoreElements();) {
+				Object key = e.nextElement();
+				if (key instanceof String) {
+					String attr = fold((String) key);
+					if (!folded.add(attr)) {
+						throw new IllegalArgumentException(
+								"case variants of the same key name: " + key);
+					}
+					Group<T> group = groups.get(attr);
+					if (group != null) {
+						group.collect(dictionary.get(key), candidates);
+					}
+				}
+			}
+		}
+		return candidates.matches(unindexed, f -> f.match(dictionary));
+	}
+
+	/**
+	 * Returns the values of the filters which match the properties of the
+	 * specified service using {@link Filter#match(ServiceReference)}.
+	 *
+	 * @param reference The reference to the service whose properties are used
+	 *            in the match.
+	 * @return The values of the matching filters. The list is empty if no
+	 *         filter matches.
+	 */
+	public List<T> getMatches(ServiceReference< ? > reference) {
+		Candidates<T> candidates = new Candidates<>();
+		if (reference != null) {
+			for (Group<T> group : groups.values()) {
+				for (String attr : group.attrs) {
+					// service property keys are case insensitive
+					group.collect(reference.getProperty(attr), candidates);
+					break;
+				}
+			}
+		}
+		return candidates.matches(unindexed, f -> f.match(reference));
+	}
+
+	/**
+	 * Returns the equality term used to index the specified filter.
+	 */
+	private static FilterImpl.Equal requiredEquality(Filter filter) {
+		FilterImpl impl;
+		if (filter instanceof FilterImpl) {
+			impl = (FilterImpl) filter;
+		} else {
+			try {
+				impl = FilterImpl.createFilter(filter.toString());
+			} catch (RuntimeException e) {
+				return null; // not a filter string we understand
+			}
+		}
+		return impl.requiredEquality();
+	}
+
+	/**
+	 * Fold the case of the specified string consistent with
+	 * {@link String#equalsIgnoreCase(String)}.
+	 */
+	static String fold(String string) {
+		int length = string.length();
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (Character.toLowerCase(Character.toUpperCase(c)) != c) {
+				char[] folded = string.toCharArray();
+				for (int j = i; j < length; j++) {
+					folded[j] = Character
+							.toLowerCase(Character.toUpperCase(folded[j]));
+				}
+				return new String(folded);
+			}
+		}
+		return string;
+	}
+
+	/**
+	 * Returns whether the specified filter value converts to a long but is not
+	 * the canonical string form of that long.
+	 */
+	static boolean isIrregularLong(String value) {
+		try {
+			long l = Long.parseLong(value.trim());
+			return !Long.toString(l).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isIntegral(Object value) {
+		return (value instanceof Long) || (value instanceof Integer)
+				|| (value instanceof Short) || (value instanceof Byte);
+	}
+
+	/**
+	 * The filters indexed by equality terms of case variants of one attribute
+	 * name.
+	 */
+	private static final class Group<T> {
+		/**
+		 * The attribute names used by the equality terms. These are all case
+		 * variants of each other.
+		 */
+		final Set<String>							attrs		= new CopyOnWriteArraySet<>();
+		/**
+		 * All filters in this group.
+		 */
+		final Set<Entry<T>>							entries		= ConcurrentHashMap
+				.newKeySet();
+		/**
+		 * The filters in this group by the value of their equality term.
+		 */
+		final ConcurrentMap<String,Set<Entry<T>>>	byValue		= new ConcurrentHashMap<>();
+		/**
+		 * The filters in this group whose equality term value converts to a
+		 * long but is not its canonical string form, for example
+		 * {@code (service.ranking= 5)}. These are evaluated for any integral
+		 * property value.
+		 */
+		final Set<Entry<T>>							irregular	= ConcurrentHashMap
+				.newKeySet();
+
+		Group() {
+			// empty
+		}
+
+		synchronized boolean add(FilterImpl.Equal term, Entry<T> entry) {
+			attrs.add(term.attr);
+			if (!entries.add(entry)) {
+				return false;
+			}
+			byValue.computeIfAbsent(term.value,
+					k -> ConcurrentHashMap.newKeySet()).add(entry);
+			if (isIrregularLong(term.value)) {
+				irregular.add(entry);
+			}
+			return true;
+		}
+
+		synchronized boolean remove(FilterImpl.Equal term,
+				Entry<T> entry) {
+			if (!entries.remove(entry)) {
+				return false;
+			}
+			irregular.remove(entry);
+			byValue.computeIfPresent(term.value, (k, bucket) -> {
+				bucket.remove(entry);
+				return bucket.isEmpty() ? null : bucket;
+			});
+			return true;
+		}
+
+		/**
+		 * Collect the filters of this group which may match the specified
+		 * property value.
+		 */
+		void collect(Object value, Candidates<T> candidates) {
+			if (value == null) {
+				return;
+			}
+			if (value instanceof String) {
+				candidates.add(byValue.get(value));
+				return;
+			}
+			if (isIntegral(value)) {
+				candidates.add(byValue
+						.get(Long.toString(((Number) value).longValue())));
+				candidates.add(irregular);
+				return;
+			}
+			if (value instanceof Collection) {
+				for (Object element : (Collection< ? >) value) {
+					collect(element, candidates);
+				}
+				return;
+			}
+			Class< ? > type = value.getClass().getComponentType();
+			if (type != null) {
+				if (!type.isPrimitive() || (type == Long.TYPE)
+						|| (type == Integer.TYPE) || (type == Short.TYPE)
+						|| (type == Byte.TYPE)) {
+					for (int i = 0, length = Array
+							.getLength(value); i < length; i++) {
+						collect(Array.get(value, i), candidates);
+					}
+					return;
+				}
+			}
+			// other types compare by conversion of the term value
+			candidates.add(entries);
+		}
+	}
+
+	/**
+	 * The sets of filters to evaluate for a match.
+	 */
+	private static final class Candidates<T> {
+		private final List<Set<Entry<T>>> sets = new ArrayList<>();
+
+		Candidates() {
+			// empty
+		}
+
+		void add(Set<Entry<T>> set) {
+			if ((set == null) || set.isEmpty()) {
+				return;
+			}
+			for (Set<Entry<T>> s : sets) {
+				if (s == set) {
+					return;
+				}
+			}
+			sets.add(set);
+		}
+
+		List<T> matches(Set<Entry<T>> unindexed, Predicate<Filter> matcher) {
+			List<T> result = new ArrayList<>();
+			Map<Entry<T>,Boolean> seen = (sets.size() > 1) ? new HashMap<>()
+					: null;
+			for (Set<Entry<T>> set : sets) {
+				for (Entry<T> entry : set) {
+					if ((seen != null) && (seen.put(entry, Boolean.TRUE) != null)) {
+						continue;
+					}
+					if (matcher.test(entry.filter)) {
+						result.add(entry.value);
+					}
+				}
+			}
+			for (Entry<T> entry : unindexed) {
+				if (matcher.test(entry.filter)) {
+					result.add(entry.value);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class Entry<T> {
+		final Filter	filter;
+		final T			value;
+
+		Entry(Filter filter, T value) {
+			this.filter = filter;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry< ? > other = (Entry< ? >) obj;
+			return filter.equals(other.filter) && value.equals(other.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(filter, value);
+		}
+	}
+}
@@ -73,6 +73,11 @@ public class FrameworkUtil {
 	 * as the framework implementation-specific Filter implementation returned
 	 * by {@link BundleContext#createFilter(String)}.
 	 * 
+	 * <p>
+	 * Parsed filters are held in a bounded cache, so this method may return the
+	 * same {@code Filter} object for equal filter strings. {@code Filter}
+	 * objects are immutable and can be safely shared.
+	 * 
 	 * @param filter The filter string.
 	 * @return A {@code Filter} object encapsulating the filter string.
 	 * @throws InvalidSyntaxException If {@code filter} contains an invalid
@@ -82,7 +87,129 @@ public class FrameworkUtil {
 	 * @see Filter
 	 */
 	public static Filter createFilter(String filter) {
-		return FilterImpl.createFilter(filter);
+		return filterCache.get(filter);
+	}
+
+	/**
+	 * Maximum number of filter strings held by the filter cache.
+	 */
+	private static final int			FILTER_CACHE_ENTRIES	= 1024;
+	/**
+	 * Maximum total length of the filter strings held by the filter cache.
+	 */
+	private static final long			FILTER_CACHE_WEIGHT		= 256 * 1024;
+	private static final FilterCache	filterCache				= new FilterCache(
+			FILTER_CACHE_ENTRIES, FILTER_CACHE_WEIGHT);
+
+	/**
+	 * Return the statistics of the cache of parsed filters used by
+	 * {@link #createFilter(String)}.
+	 * 
+	 * @return A snapshot of the filter cache statistics.
+	 * @since 1.12
+	 */
+	public static FilterCacheStatistics getFilterCacheStatistics() {
+		return filterCache.statistics();
+	}
+
+	/**
+	 * A snapshot of the statistics of the cache of parsed filters used by
+	 * {@link FrameworkUtil#createFilter(String)}.
+	 * 
+	 * @since 1.12
+	 * @Immutable
+	 */
+	public static final class FilterCacheStatistics {
+		private final long	hitCount;
+		private final long	missCount;
+		private final long	evictionCount;
+		private final int	size;
+		private final long	weight;
+		private final int	maximumSize;
+		private final long	maximumWeight;
+
+		FilterCacheStatistics(long hitCount, long missCount,
+				long evictionCount, int size, long weight, int maximumSize,
+				long maximumWeight) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.evictionCount = evictionCount;
+			this.size = size;
+			this.weight = weight;
+			this.maximumSize = maximumSize;
+			this.maximumWeight = maximumWeight;
+		}
+
+		/**
+		 * Returns the number of filter strings found in the cache.
+		 * 
+		 * @return The number of cache hits.
+		 */
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		/**
+		 * Returns the number of filter strings which had to be parsed.
+		 * 
+		 * @return The number of cache misses.
+		 */
+		public long getMissCount() {
+			return missCount;
+		}
+
+		/**
+		 * Returns the number of entries evicted from the cache.
+		 * 
+		 * @return The number of evictions.
+		 */
+		public long getEvictionCount() {
+			return evictionCount;
+		}
+
+		/**
+		 * Returns the number of entries in the cache.
+		 * 
+		 * @return The number of entries.
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the total weight of the entries in the cache. The weight of
+		 * an entry is the length of its filter string.
+		 * 
+		 * @return The total weight of the entries.
+		 */
+		public long getWeight() {
+			return weight;
+		}
+
+		/**
+		 * Returns the maximum number of entries in the cache.
+		 * 
+		 * @return The maximum number of entries.
+		 */
+		public int getMaximumSize() {
+			return maximumSize;
+		}
+
+		/**
+		 * Returns the maximum total weight of the entries in the cache.
+		 * 
+		 * @return The maximum total weight of the entries.
+		 */
+		public long getMaximumWeight() {
+			return maximumWeight;
+		}
+
+		@Override
+		public String toString() {
+			return "FilterCacheStatistics[hits=" + hitCount + ", misses="
+					+ missCount + ", evictions=" + evictionCount + ", size="
+					+ size + ", weight=" + weight + "]";
+		}
 	}
 
 	/**
@@ -182,6 +309,10 @@ public class FrameworkUtil {
 	 * <pre>
 	 * - ; *, o=Tweety Inc., c=US
 	 * </pre>
+	 * <p>
+	 * Match patterns are compiled once and cached. A {@link DNChainPattern}
+	 * can be used to explicitly compile a match pattern which is to be matched
+	 * against many DN chains.
 	 * 
 	 * @param matchPattern The pattern against which to match the DN chain.
 	 * @param dnChain The DN chain to match against the specified pattern. Each
@@ -293,7 +424,7 @@ public class FrameworkUtil {
 	 * removed). If a value of a name/value pair is a wildcard ("*"), the value
 	 * will match any value for that name.
 	 */
-	static private final class DNChainMatching {
+	static final class DNChainMatching {
 		private static final String	MINUS_WILDCARD	= "-";
 		private static final String	STAR_WILDCARD	= "*";
 
@@ -316,15 +447,23 @@ public class FrameworkUtil {
 				if (rdnNameEnd != patNameEnd || !rdnNameValue.regionMatches(0, patNameValue, 0, rdnNameEnd)) {
 					return false;
 				}
-				String patValue = patNameValue.substring(patNameEnd);
-				String rdnValue = rdnNameValue.substring(rdnNameEnd);
-				if (!rdnValue.equals(patValue) && !patValue.equals("=*") && !patValue.equals("=#16012a")) {
+				// the names are equal so compare the values without copying
+				if (!rdnNameValue.equals(patNameValue) && !isWildcardValue(patNameValue, patNameEnd)) {
 					return false;
 				}
 			}
 			return true;
 		}
 
+		/**
+		 * Check if the value of a name/value pattern pair is the wildcard. The
+		 * canonical form of a "*" value is "#16012a".
+		 */
+		private static boolean isWildcardValue(String patNameValue, int patNameEnd) {
+			int valueLength = patNameValue.length() - patNameEnd;
+			return (valueLength == 2 && patNameValue.endsWith("=*")) || (valueLength == 8 && patNameValue.endsWith("=#16012a"));
+		}
+
 		private static boolean dnmatch(List<?> dn, List<?> dnPattern) {
 			int dnStart = 0;
 			int patStart = 0;
@@ -371,7 +510,7 @@ public class FrameworkUtil {
 		 * @return a list of DNs.
 		 * @throws IllegalArgumentException
 		 */
-		private static List<Object> parseDNchainPattern(String pattern) {
+		static List<Object> parseDNchainPattern(String pattern) {
 			if (pattern == null) {
 				throw new IllegalArgumentException("The pattern must not be null.");
 			}
@@ -435,7 +574,7 @@ public class FrameworkUtil {
 			return parsed;
 		}
 
-		private static List<Object> parseDNchain(List<String> chain) {
+		static List<Object> parseDNchain(List<String> chain) {
 			if (chain == null) {
 				throw new IllegalArgumentException("DN chain must not be null.");
 			}
@@ -541,7 +680,7 @@ public class FrameworkUtil {
 		 * where DNChain is of the format: "DN;DN;DN;" and DNChainPattern is of
 		 * the format: "DNPattern;*;DNPattern" (or combinations of this)
 		 */
-		private static boolean dnChainMatch(List<Object> dnChain, int dnChainIndex, List<Object> dnChainPattern, int dnChainPatternIndex) throws IllegalArgumentException {
+		static boolean dnChainMatch(List<Object> dnChain, int dnChainIndex, List<Object> dnChainPattern, int dnChainPatternIndex) throws IllegalArgumentException {
 			if (dnChainIndex >= dnChain.size()) {
 				return false;
 			}
@@ -674,21 +813,40 @@ public class FrameworkUtil {
 		 * @throws IllegalArgumentException
 		 */
 		static boolean match(String pattern, List<String> dnChain) {
-			List<Object> parsedDNChain;
-			List<Object> parsedDNPattern;
+			List<Object> parsedDNChain = chain(dnChain);
+			return DNChainPattern.cached(pattern).matches0(parsedDNChain);
+		}
+
+		/**
+		 * Parses a distinguished name chain.
+		 * 
+		 * @param dnChain The DN chain to parse.
+		 * @return The parsed DN chain.
+		 * @throws IllegalArgumentException If the DN chain is invalid.
+		 */
+		static List<Object> chain(List<String> dnChain) {
 			try {
-				parsedDNChain = parseDNchain(dnChain);
+				return parseDNchain(dnChain);
 			} catch (RuntimeException e) {
 				throw new IllegalArgumentException(
 						"Invalid DN chain: " + toString(dnChain), e);
 			}
+		}
+
+		/**
+		 * Parses a distinguished name chain pattern.
+		 * 
+		 * @param pattern The DN chain pattern to parse.
+		 * @return The parsed DN chain pattern.
+		 * @throws IllegalArgumentException If the pattern is invalid.
+		 */
+		static List<Object> pattern(String pattern) {
 			try {
-				parsedDNPattern = parseDNchainPattern(pattern);
+				return parseDNchainPattern(pattern);
 			} catch (RuntimeException e) {
 				throw new IllegalArgumentException(
 						"Invalid match pattern: " + pattern, e);
 			}
-			return dnChainMatch(parsedDNChain, 0, parsedDNPattern, 0);
 		}
 
 		private static String toString(List<?> dnChain) {
@@ -29,7 +29,6 @@ import java.security.Permission;
 import java.security.PermissionCollection;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -535,7 +534,7 @@ public final class PackagePermission extends BasicPermission {
 	 * 
 	 * @return a map of properties for this permission.
 	 */
-	private Map<String, Object> getProperties() {
+	Map<String, Object> getProperties() {
 		Map<String, Object> result = properties;
 		if (result != null) {
 			return result;
@@ -597,12 +596,28 @@ final class PackagePermissionCollection extends PermissionCollection {
 	 */
 	private Map<String, PackagePermission>				filterPermissions;
 
+	/**
+	 * Trie of the actions of the permissions with wildcard names.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient WildcardTrie							wildcards;
+
+	/**
+	 * Index of the permissions with filter expressions by the equality terms
+	 * of their filter expressions.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient FilterIndex<PackagePermission>	filterIndex;
+
 	/**
 	 * Create an empty PackagePermissions object.
 	 */
 	public PackagePermissionCollection() {
 		permissions = new HashMap<String, PackagePermission>();
 		all_allowed = false;
+		wildcards = new WildcardTrie();
 	}
 
 	/**
@@ -648,11 +663,13 @@ final class PackagePermissionCollection extends PermissionCollection {
 				final int oldMask = existing.action_mask;
 				final int newMask = pp.action_mask;
 				if (oldMask != newMask) {
-					pc.put(name, new PackagePermission(name, oldMask | newMask));
-
+					PackagePermission merged = new PackagePermission(name, oldMask | newMask);
+					pc.put(name, merged);
+					index(merged, existing);
 				}
 			} else {
 				pc.put(name, pp);
+				index(pp, null);
 			}
 
 			if (!all_allowed) {
@@ -682,11 +699,11 @@ final class PackagePermissionCollection extends PermissionCollection {
 		if (requested.filter != null) {
 			return false;
 		}
-		String requestedName = requested.getName();
+		final String requestedName = requested.getName();
 		final int desired = requested.action_mask;
 		int effective = PackagePermission.ACTION_NONE;
 
-		Collection<PackagePermission> perms;
+		final FilterIndex<PackagePermission> index;
 		synchronized (this) {
 			Map<String, PackagePermission> pc = permissions;
 			PackagePermission pp;
@@ -712,32 +729,22 @@ final class PackagePermissionCollection extends PermissionCollection {
 					return true;
 				}
 			}
-			/* work our way up the tree... */
-			int last;
-			int offset = requestedName.length() - 1;
-			while ((last = requestedName.lastIndexOf('.', offset)) != -1) {
-				requestedName = requestedName.substring(0, last + 1) + "*";
-				pp = pc.get(requestedName);
-				if (pp != null) {
-					effective |= pp.action_mask;
-					if ((effective & desired) == desired) {
-						return true;
-					}
-				}
-				offset = last - 1;
+			/* then look for matches on a.b.* */
+			effective = wildcards.implied(requestedName, desired, effective);
+			if ((effective & desired) == desired) {
+				return true;
 			}
 			/*
 			 * we don't have to check for "*" as it was already checked before
 			 * we were called.
 			 */
-			pc = filterPermissions;
-			if (pc == null) {
+			index = filterIndex;
+			if (index == null) {
 				return false;
 			}
-			perms = pc.values();
 		}
-		/* iterate one by one over filteredPermissions */
-		for (PackagePermission perm : perms) {
+		/* iterate one by one over the filtered permissions which may match */
+		for (PackagePermission perm : index.getCandidates(requested.getProperties())) {
 			if (perm.implies0(requested, effective)) {
 				return true;
 			}
@@ -745,6 +752,31 @@ final class PackagePermissionCollection extends PermissionCollection {
 		return false;
 	}
 
+	/**
+	 * Add a permission to the trie or the filter index.
+	 * 
+	 * @param added The added permission.
+	 * @param replaced The permission replaced by the added permission or
+	 *        {@code null}.
+	 */
+	private void index(PackagePermission added, PackagePermission replaced) {
+		if (added.filter == null) {
+			String name = added.getName();
+			if (WildcardTrie.isWildcard(name)) {
+				wildcards.add(name, added.action_mask);
+			}
+			return;
+		}
+		if (filterIndex == null) {
+			filterIndex = new FilterIndex<PackagePermission>();
+		}
+		// add before remove so concurrent implies always finds it
+		filterIndex.add(added.filter, added);
+		if (replaced != null) {
+			filterIndex.remove(replaced.filter, replaced);
+		}
+	}
+
 	/**
 	 * Returns an enumeration of all {@code PackagePermission} objects in the
 	 * container.
@@ -783,5 +815,15 @@ final class PackagePermissionCollection extends PermissionCollection {
 		@SuppressWarnings("unchecked")
 		HashMap<String, PackagePermission> fp = (HashMap<String, PackagePermission>) gfields.get("filterPermissions", null);
 		filterPermissions = fp;
+		wildcards = new WildcardTrie();
+		filterIndex = null;
+		for (PackagePermission perm : permissions.values()) {
+			index(perm, null);
+		}
+		if (fp != null) {
+			for (PackagePermission perm : fp.values()) {
+				index(perm, null);
+			}
+		}
 	}
 }
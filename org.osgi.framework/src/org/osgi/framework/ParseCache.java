@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Bounded, weak canonicalization cache of immutable objects parsed from
+ * strings, such as {@link Version} and {@link VersionRange}.
+ * <p>
+ * The cache is a fixed size table indexed by the hash of the string, so it
+ * never holds more entries than the table size and a lookup never blocks. A
+ * string is cached in one of {@link #WAYS} consecutive slots starting at its
+ * hash index. When these slots are in use, the oldest entry is replaced. The
+ * parsed objects are weakly referenced, so the cache does not keep otherwise
+ * unused objects alive.
+ * <p>
+ * Parsed objects are also cached under their canonical string, as returned by
+ * {@code toString()}, so strings which parse to equal objects, for example
+ * {@code 1.0} and {@code 1.0.0}, share the same object while both are cached.
+ *
+ * @param <T> The type of the parsed objects. The objects must be immutable and
+ *            their {@code toString()} must return the canonical string form.
+ * @ThreadSafe
+ */
+final class ParseCache<T> {
+	/**
+	 * Number of slots in which a string can be cached.
+	 */
+	private static final int						WAYS	= 4;
+
+	private final AtomicReferenceArray<Entry<T>>	slots;
+	private final int								mask;
+	private final Function<String, ? extends T>		parser;
+
+	/**
+	 * Create a parse cache.
+	 *
+	 * @param size The number of slots which is rounded up to a power of two.
+	 * @param parser The function which parses a string. The function must
+	 *            throw an exception for strings which cannot be parsed.
+	 */
+	ParseCache(int size, Function<String, ? extends T> parser) {
+		int n = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(n);
+		this.mask = n - 1;
+		this.parser = parser;
+	}
+
+	/**
+	 * Return the parsed object for the specified string.
+	 *
+	 * @param string The string to parse.
+	 * @return The parsed object which may be shared with other callers.
+	 */
+	T get(String string) {
+		T value = lookup(string);
+		if (value != null) {
+			return value;
+		}
+		value = parser.apply(string);
+		String canonical = value.toString();
+		if (!canonical.equals(string)) {
+			T shared = lookup(canonical);
+			if (shared != null) {
+				value = shared;
+			} else {
+				store(canonical, value);
+			}
+		}
+		store(string, value);
+		return value;
+	}
+
+	private T lookup(String string) {
+		for (int i = index(string), n = 0; n < WAYS; i = (i + 1) & mask, n++) {
+			Entry<T> entry = slots.get(i);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.key.equals(string)) {
+				return entry.get();
+			}
+		}
+		return null;
+	}
+
+	private void store(String string, T value) {
+		Entry<T> entry = new Entry<>(string, value);
+		int i = index(string);
+		for (int n = 1; n < WAYS; i = (i + 1) & mask, n++) {
+			Entry<T> existing = slots.get(i);
+			if ((existing == null) || (existing.get() == null)
+					|| existing.key.equals(string)) {
+				break;
+			}
+			// move the existing entry towards the end of the slots of the
+			// string so the oldest entry is replaced
+			entry = slots.getAndSet(i, entry);
+			if (entry.get() == null) {
+				return;
+			}
+		}
+		slots.set(i, entry);
+	}
+
+	private int index(String string) {
+		int h = string.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private static final class Entry<T> extends WeakReference<T> {
+		final String key;
+
+		Entry(String key, T value) {
+			super(value);
+			this.key = key;
+		}
+	}
+}
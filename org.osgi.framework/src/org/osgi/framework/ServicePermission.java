@@ -30,15 +30,18 @@ import java.security.PermissionCollection;
 import java.security.PrivilegedAction;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A bundle's authority to register or get a service.
@@ -548,7 +551,7 @@ public final class ServicePermission extends BasicPermission {
 	 * 
 	 * @return a map of properties for this permission.
 	 */
-	private Map<String, Object> getProperties() {
+	Map<String, Object> getProperties() {
 		Map<String, Object> result = properties;
 		if (result != null) {
 			return result;
@@ -713,6 +716,42 @@ final class ServicePermissionCollection extends PermissionCollection {
 	 */
 	private Map<String, ServicePermission>				filterPermissions;
 
+	/**
+	 * Index of the permissions with filter expressions by the equality terms
+	 * of their filter expressions, for example {@code objectClass},
+	 * {@code service.pid} or {@code id}.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient FilterIndex<ServicePermission>	filterIndex;
+
+	/**
+	 * The attributes referred to by the filter expressions of the permissions
+	 * with filter expressions.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient String[]							filterAttributes;
+
+	/**
+	 * Incremented when a permission is added to invalidate the decisions.
+	 * 
+	 * @GuardedBy this
+	 */
+	private transient int								generation;
+
+	/**
+	 * Maximum number of cached decisions.
+	 */
+	private static final int							MAX_DECISIONS		= 1024;
+
+	/**
+	 * Cached decisions of the permissions with filter expressions for
+	 * services. A permission collection holds the permissions of a single
+	 * bundle, so the decisions are keyed by service id and desired actions.
+	 */
+	private transient volatile ConcurrentMap<Long, Decision>	decisions;
+
 	/**
 	 * Creates an empty ServicePermissions object.
 	 */
@@ -763,11 +802,22 @@ final class ServicePermissionCollection extends PermissionCollection {
 				final int oldMask = existing.action_mask;
 				final int newMask = sp.action_mask;
 				if (oldMask != newMask) {
-					pc.put(name, new ServicePermission(name, oldMask | newMask));
+					ServicePermission merged = new ServicePermission(name, oldMask | newMask);
+					pc.put(name, merged);
+					if (f != null) {
+						// add before remove so concurrent implies always finds it
+						filterIndex.add(merged.filter, merged);
+						filterIndex.remove(existing.filter, existing);
+					}
 				}
 			} else {
 				pc.put(name, sp);
+				if (f != null) {
+					index(sp);
+				}
 			}
+			generation++;
+			decisions = null;
 
 			if (!all_allowed) {
 				if (name.equals("*")) {
@@ -797,7 +847,9 @@ final class ServicePermissionCollection extends PermissionCollection {
 		}
 
 		int effective = ServicePermission.ACTION_NONE;
-		Collection<ServicePermission> perms;
+		final FilterIndex<ServicePermission> index;
+		final String[] attrs;
+		final int gen;
 		synchronized (this) {
 			final int desired = requested.action_mask;
 			/* short circuit if the "*" Permission was added */
@@ -827,20 +879,135 @@ final class ServicePermissionCollection extends PermissionCollection {
 					}
 				}
 			}
-			Map<String, ServicePermission> pc = filterPermissions;
-			if (pc == null) {
+			index = filterIndex;
+			if (index == null) {
 				return false;
 			}
-			perms = pc.values();
+			attrs = filterAttributes;
+			gen = generation;
 		}
 
-		/* iterate one by one over filteredPermissions */
-		for (ServicePermission perm : perms) {
+		/* use the cached decision if the service has not been modified */
+		Long key = decisionKey(requested);
+		Map<String, Object> properties = requested.getProperties();
+		ConcurrentMap<Long, Decision> cache = decisions;
+		if ((key != null) && (cache != null)) {
+			Decision decision = cache.get(key);
+			if ((decision != null) && decision.isValid(gen, properties, attrs)) {
+				return decision.implied;
+			}
+		}
+
+		/* iterate one by one over the filtered permissions which may match */
+		boolean implied = false;
+		for (ServicePermission perm : index.getCandidates(properties)) {
 			if (perm.implies0(requested, effective)) {
-				return true;
+				implied = true;
+				break;
 			}
 		}
-		return false;
+		if (key != null) {
+			Object[] values = Decision.snapshot(properties, attrs);
+			if (values != null) {
+				cache(key, new Decision(gen, values, implied));
+			}
+		}
+		return implied;
+	}
+
+	/**
+	 * Add a permission with a filter expression to the index.
+	 * 
+	 * @param sp The permission with a filter expression.
+	 */
+	private void index(ServicePermission sp) {
+		if (filterIndex == null) {
+			filterIndex = new FilterIndex<ServicePermission>();
+		}
+		filterIndex.add(sp.filter, sp);
+		Set<String> attrs = new LinkedHashSet<String>();
+		if (filterAttributes != null) {
+			Collections.addAll(attrs, filterAttributes);
+		}
+		attrs.addAll(FilterAnalysis.analyze(sp.filter).getAttributes());
+		filterAttributes = attrs.toArray(new String[0]);
+	}
+
+	/**
+	 * Returns the key of the cached decision for the requested permission.
+	 * 
+	 * @param requested The requested permission.
+	 * @return The key or {@code null} if the requested permission was not
+	 *         created with a registered service.
+	 */
+	private static Long decisionKey(ServicePermission requested) {
+		if (requested.service == null) {
+			return null;
+		}
+		Object id = requested.service.getProperty(Constants.SERVICE_ID);
+		if (!(id instanceof Long)) {
+			return null;
+		}
+		return Long.valueOf((((Long) id).longValue() << 2) | requested.action_mask);
+	}
+
+	private void cache(Long key, Decision decision) {
+		ConcurrentMap<Long, Decision> cache = decisions;
+		if (cache == null) {
+			decisions = cache = new ConcurrentHashMap<Long, Decision>();
+		} else if (cache.size() >= MAX_DECISIONS) {
+			cache.clear();
+		}
+		cache.put(key, decision);
+	}
+
+	/**
+	 * A decision of the permissions with filter expressions for a service.
+	 * <p>
+	 * The filter expressions only depend on the values of the attributes they
+	 * refer to, so the decision remains valid while these values are
+	 * unchanged. This detects modification of the service properties.
+	 */
+	private static final class Decision {
+		final int		generation;
+		final Object[]	values;
+		final boolean	implied;
+
+		Decision(int generation, Object[] values, boolean implied) {
+			this.generation = generation;
+			this.values = values;
+			this.implied = implied;
+		}
+
+		/**
+		 * Returns the values of the specified attributes.
+		 * 
+		 * @return The values or {@code null} if the decision must not be
+		 *         cached since a value cannot be compared.
+		 */
+		static Object[] snapshot(Map<String, Object> properties, String[] attrs) {
+			Object[] values = new Object[attrs.length];
+			for (int i = 0; i < attrs.length; i++) {
+				Object value = properties.get(attrs[i]);
+				if (value instanceof SignerProperty) {
+					return null; // signers are matched on each check
+				}
+				values[i] = value;
+			}
+			return values;
+		}
+
+		boolean isValid(int gen, Map<String, Object> properties, String[] attrs) {
+			if ((generation != gen) || (values.length != attrs.length)) {
+				return false;
+			}
+			for (int i = 0; i < attrs.length; i++) {
+				if (!Objects.deepEquals(values[i], properties.get(attrs[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 
 	/**
@@ -924,5 +1091,10 @@ final class ServicePermissionCollection extends PermissionCollection {
 		@SuppressWarnings("unchecked")
 		HashMap<String, ServicePermission> fp = (HashMap<String, ServicePermission>) gfields.get("filterPermissions", null);
 		filterPermissions = fp;
+		if (fp != null) {
+			for (ServicePermission sp : fp.values()) {
+				index(sp);
+			}
+		}
 	}
 }
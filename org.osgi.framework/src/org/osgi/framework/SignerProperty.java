@@ -20,8 +20,11 @@ package org.osgi.framework;
 
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Package private class used by permissions for filter matching on signer key
@@ -31,8 +34,18 @@ import java.util.Map;
  * @author $Id$
  */
 final class SignerProperty {
-	private final Bundle	bundle;
-	private final String	pattern;
+	/**
+	 * The parsed signer DN chains of each bundle. The entries are validated
+	 * against the current signers of the bundle, so an updated bundle is
+	 * parsed again.
+	 */
+	private static final Map<Bundle,Signers>	signersCache	= Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private final Bundle						bundle;
+	private final String						pattern;
+	/* compiled pattern; null if no pattern or the pattern is invalid */
+	private final DNChainPattern				compiled;
 
 	/**
 	 * String constructor used by the filter matching algorithm to construct a
@@ -43,6 +56,13 @@ final class SignerProperty {
 	public SignerProperty(String pattern) {
 		this.pattern = pattern;
 		this.bundle = null;
+		DNChainPattern p;
+		try {
+			p = DNChainPattern.compile(pattern);
+		} catch (IllegalArgumentException e) {
+			p = null; // bad pattern
+		}
+		this.compiled = p;
 	}
 
 	/**
@@ -54,6 +74,7 @@ final class SignerProperty {
 	SignerProperty(Bundle bundle) {
 		this.bundle = bundle;
 		this.pattern = null;
+		this.compiled = null;
 	}
 
 	/**
@@ -72,22 +93,58 @@ final class SignerProperty {
 			return false;
 		SignerProperty other = (SignerProperty) o;
 		Bundle matchBundle = bundle != null ? bundle : other.bundle;
-		String matchPattern = bundle != null ? other.pattern : pattern;
-		Map<X509Certificate, List<X509Certificate>> signers = matchBundle.getSignerCertificates(Bundle.SIGNERS_TRUSTED);
-		for (List<X509Certificate> signerCerts : signers.values()) {
-			List<String> dnChain = new ArrayList<String>(signerCerts.size());
-			for (X509Certificate signerCert : signerCerts) {
-				dnChain.add(signerCert.getSubjectDN().getName());
+		DNChainPattern matchPattern = bundle != null ? other.compiled : compiled;
+		if (matchPattern == null) {
+			return false; // bad pattern
+		}
+		for (List<Object> dnChain : signers(matchBundle)) {
+			if (matchPattern.matches0(dnChain)) {
+				return true;
 			}
-			try {
-				if (FrameworkUtil.matchDistinguishedNameChain(matchPattern, dnChain)) {
-					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the parsed DN chains of the trusted signers of the specified
+	 * bundle.
+	 * 
+	 * @param bundle The bundle whose signers are to be matched.
+	 * @return The parsed DN chains. Invalid DN chains are omitted.
+	 */
+	private static List<List<Object>> signers(Bundle bundle) {
+		Map<X509Certificate, List<X509Certificate>> signers = bundle.getSignerCertificates(Bundle.SIGNERS_TRUSTED);
+		Signers cached = signersCache.get(bundle);
+		if ((cached == null) || !cached.certificates.equals(signers)) {
+			cached = new Signers(signers);
+			signersCache.put(bundle, cached);
+		}
+		return cached.dnChains;
+	}
+
+	/**
+	 * The parsed DN chains of the signers of a bundle.
+	 */
+	private static final class Signers {
+		final Map<X509Certificate, List<X509Certificate>>	certificates;
+		final List<List<Object>>							dnChains;
+
+		Signers(Map<X509Certificate, List<X509Certificate>> certificates) {
+			this.certificates = new HashMap<>(certificates);
+			List<List<Object>> parsed = new ArrayList<>(certificates.size());
+			for (List<X509Certificate> signerCerts : certificates.values()) {
+				List<String> dnChain = new ArrayList<String>(signerCerts.size());
+				for (X509Certificate signerCert : signerCerts) {
+					dnChain.add(signerCert.getSubjectDN().getName());
+				}
+				try {
+					parsed.add(FrameworkUtil.DNChainMatching.chain(dnChain));
+				} catch (IllegalArgumentException e) {
+					continue; // bad DN chain
 				}
-			} catch (IllegalArgumentException e) {
-				continue; // bad pattern
 			}
+			this.dnChains = parsed;
 		}
-		return false;
 	}
 
 	/**
@@ -47,6 +47,11 @@ public class Version implements Comparable<Version> {
 	private final int			minor;
 	private final int			micro;
 	private final String		qualifier;
+	/**
+	 * The numerical components packed into a non-negative long which compares
+	 * in version order, or -1 if a component is too large to be packed.
+	 */
+	private final long			packed;
 	private static final char	SEPARATOR			= '.';
 	private static final String	SEPARATOR_STRING	= ".";
 	private transient String	versionString /* default to null */;
@@ -57,6 +62,17 @@ public class Version implements Comparable<Version> {
 	 */
 	public static final Version	emptyVersion	= new Version(0, 0, 0);
 
+	/**
+	 * Number of bits of each packed numerical component.
+	 */
+	private static final int	PACKED_BITS		= 21;
+
+	/**
+	 * Cache of the versions returned by {@link #valueOf(String)}.
+	 */
+	private static final ParseCache<Version>	cache			= new ParseCache<>(
+			1024, Version::new);
+
 	/**
 	 * Creates a version identifier from the specified numerical components.
 	 * 
@@ -95,6 +111,7 @@ public class Version implements Comparable<Version> {
 		this.micro = micro;
 		this.qualifier = qualifier;
 		validate();
+		packed = pack(major, minor, micro);
 	}
 
 	/**
@@ -157,6 +174,7 @@ public class Version implements Comparable<Version> {
 		micro = mic;
 		qualifier = qual;
 		validate();
+		packed = pack(maj, min, mic);
 	}
 
 	/**
@@ -208,6 +226,20 @@ public class Version implements Comparable<Version> {
 		}
 	}
 
+	/**
+	 * Pack the numerical components into a long.
+	 * 
+	 * @return The packed components or -1 if a component does not fit in
+	 *         {@link #PACKED_BITS} bits.
+	 */
+	private static long pack(int major, int minor, int micro) {
+		if (((major | minor | micro) >>> PACKED_BITS) != 0) {
+			return -1L;
+		}
+		return (((long) major) << (2 * PACKED_BITS))
+				| (((long) minor) << PACKED_BITS) | micro;
+	}
+
 	/**
 	 * Parses a version identifier from the specified string.
 	 * 
@@ -256,7 +288,7 @@ public class Version implements Comparable<Version> {
 			return emptyVersion;
 		}
 
-		return new Version(version);
+		return cache.get(version);
 	}
 
 	/**
@@ -409,6 +441,15 @@ public class Version implements Comparable<Version> {
 			return 0;
 		}
 
+		long p = packed;
+		long otherPacked = other.packed;
+		if ((p | otherPacked) >= 0L) { // both packed
+			if (p != otherPacked) {
+				return (p < otherPacked) ? -1 : 1;
+			}
+			return qualifier.compareTo(other.qualifier);
+		}
+
 		int result = major - other.major;
 		if (result != 0) {
 			return result;
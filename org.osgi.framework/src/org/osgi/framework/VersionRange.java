@@ -80,6 +80,12 @@ public class VersionRange {
 	private static final String	RIGHT_DELIMITERS		= RIGHT_OPEN_DELIMITER + RIGHT_CLOSED_DELIMITER;
 	private static final String	ENDPOINT_DELIMITER		= ",";
 
+	/**
+	 * Cache of the version ranges returned by {@link #valueOf(String)}.
+	 */
+	private static final ParseCache<VersionRange>	cache	= new ParseCache<>(
+			512, VersionRange::new);
+
 	/**
 	 * Creates a version range from the specified versions.
 	 * 
@@ -549,6 +555,6 @@ public class VersionRange {
 	 * @since 1.8
 	 */
 	public static VersionRange valueOf(String range) {
-		return new VersionRange(range);
+		return cache.get(range);
 	}
 }
@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An index of version ranges for finding the version ranges which include a
+ * version.
+ * <p>
+ * Resolvers and repositories often hold many {@link VersionRange} objects, for
+ * example from the requirements of a namespace, and must find which of them
+ * include a given {@link Version}. A {@code VersionRangeIndex} holds version
+ * ranges, each with an associated value, and returns the values of the version
+ * ranges which include a version in time proportional to the logarithm of the
+ * number of version ranges plus the number of including version ranges,
+ * rather than by testing each version range in turn.
+ * <p>
+ * The version ranges are held in an interval tree ordered by their left
+ * endpoints, where each subtree records the greatest right endpoint of its
+ * version ranges. The tree is built on the first query after the index is
+ * modified, so the index is best suited to many queries between modifications.
+ * The result is the same as calling {@link VersionRange#includes(Version)} on
+ * each version range in turn.
+ *
+ * @param <T> The type of the values associated with the version ranges.
+ * @since 1.12
+ * @ThreadSafe
+ * @author $Id$
+ */
+public final class VersionRangeIndex<T> {
+	/**
+	 * The version range and value pairs of this index.
+	 *
+	 * @GuardedBy this
+	 */
+	private final Set<Entry<T>>	entries	= new LinkedHashSet<>();
+	/**
+	 * The interval tree of the entries or {@code null} if the entries have
+	 * been modified since the tree was built.
+	 */
+	private volatile Tree<T>	tree;
+
+	/**
+	 * Create an empty version range index.
+	 */
+	public VersionRangeIndex() {
+		// empty
+	}
+
+	/**
+	 * Add a version range with an associated value to this index.
+	 *
+	 * @param range The version range.
+	 * @param value The value to return when the version range includes a
+	 *            version.
+	 * @return {@code true} if the version range and value were added;
+	 *         {@code false} if this index already contains the version range
+	 *         with an equal value.
+	 */
+	public boolean add(VersionRange range, T value) {
+		Entry<T> entry = new Entry<>(requireNonNull(range),
+				requireNonNull(value));
+		synchronized (this) {
+			if (!entries.add(entry)) {
+				return false;
+			}
+			tree = null;
+			return true;
+		}
+	}
+
+	/**
+	 * Remove a version range with an associated value from this index.
+	 *
+	 * @param range The version range.
+	 * @param value The value associated with the version range.
+	 * @return {@code true} if the version range and value were removed;
+	 *         {@code false} if this index does not contain the version range
+	 *         with an equal value.
+	 */
+	public boolean remove(VersionRange range, T value) {
+		Entry<T> entry = new Entry<>(requireNonNull(range),
+				requireNonNull(value));
+		synchronized (this) {
+			if (!entries.remove(entry)) {
+				return false;
+			}
+			tree = null;
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the number of version range and value pairs in this index.
+	 *
+	 * @return The number of version range and value pairs in this index.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the values of the version ranges which include the specified
+	 * version.
+	 *
+	 * @param version The version.
+	 * @return The values of the version ranges which include the specified
+	 *         version. The list is empty if no version range includes the
+	 *         version.
+	 */
+	public List<T> getMatches(Version version) {
+		requireNonNull(version);
+		Tree<T> t = tree;
+		if (t == null) {
+			t = build();
+		}
+		List<T> result = new ArrayList<>();
+		t.collect(0, t.entries.length, version, result);
+		return result;
+	}
+
+	private synchronized Tree<T> build() {
+		Tree<T> t = tree;
+		if (t == null) {
+			tree = t = new Tree<>(entries);
+		}
+		return t;
+	}
+
+	/**
+	 * Compare the left endpoints of version ranges. A closed endpoint is less
+	 * than an open endpoint with the same version since it includes more
+	 * versions.
+	 */
+	private static int compareLeft(VersionRange r1, VersionRange r2) {
+		int result = r1.getLeft().compareTo(r2.getLeft());
+		if (result != 0) {
+			return result;
+		}
+		return Boolean.compare(r2.getLeftType() == VersionRange.LEFT_CLOSED,
+				r1.getLeftType() == VersionRange.LEFT_CLOSED);
+	}
+
+	/**
+	 * Compare the right endpoints of version ranges. An infinite endpoint is
+	 * the greatest endpoint and a closed endpoint is greater than an open
+	 * endpoint with the same version since it includes more versions.
+	 */
+	private static int compareRight(VersionRange r1, VersionRange r2) {
+		Version right1 = r1.getRight();
+		Version right2 = r2.getRight();
+		if (right1 == null) {
+			return (right2 == null) ? 0 : 1;
+		}
+		if (right2 == null) {
+			return -1;
+		}
+		int result = right1.compareTo(right2);
+		if (result != 0) {
+			return result;
+		}
+		return Boolean.compare(r1.getRightType() == VersionRange.RIGHT_CLOSED,
+				r2.getRightType() == VersionRange.RIGHT_CLOSED);
+	}
+
+	/**
+	 * Returns whether the left endpoint of the version range is at or below
+	 * the version.
+	 */
+	private static boolean includesLeft(VersionRange range, Version version) {
+		int result = range.getLeft().compareTo(version);
+		return (result < 0) || ((result == 0)
+				&& (range.getLeftType() == VersionRange.LEFT_CLOSED));
+	}
+
+	/**
+	 * Returns whether the right endpoint of the version range is at or above
+	 * the version.
+	 */
+	private static boolean includesRight(VersionRange range, Version version) {
+		Version right = range.getRight();
+		if (right == null) {
+			return true;
+		}
+		int result = right.compareTo(version);
+		return (result > 0) || ((result == 0)
+				&& (range.getRightType() == VersionRange.RIGHT_CLOSED));
+	}
+
+	/**
+	 * An immutable interval tree. The tree is implicit in the array of entries
+	 * sorted by left endpoint: the root of the subtree of the entries in
+	 * {@code [lo, hi)} is the entry at {@code (lo + hi) >>> 1}.
+	 */
+	private static final class Tree<T> {
+		/**
+		 * The entries with non-empty version ranges sorted by left endpoint.
+		 */
+		final Entry<T>[]		entries;
+		/**
+		 * The greatest right endpoint of the version ranges of the subtree
+		 * rooted at each index.
+		 */
+		final VersionRange[]	maxRight;
+
+		Tree(Set<Entry<T>> all) {
+			List<Entry<T>> list = new ArrayList<>(all.size());
+			for (Entry<T> entry : all) {
+				if (!entry.range.isEmpty()) { // empty ranges include nothing
+					list.add(entry);
+				}
+			}
+			entries = list.toArray(newArray(list.size()));
+			Arrays.sort(entries,
+					(e1, e2) -> compareLeft(e1.range, e2.range));
+			maxRight = new VersionRange[entries.length];
+			build(0, entries.length);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> Entry<T>[] newArray(int length) {
+			return (Entry<T>[]) new Entry< ? >[length];
+		}
+
+		private VersionRange build(int lo, int hi) {
+			if (lo >= hi) {
+				return null;
+			}
+			int mid = (lo + hi) >>> 1;
+			VersionRange max = entries[mid].range;
+			VersionRange left = build(lo, mid);
+			if ((left != null) && (compareRight(left, max) > 0)) {
+				max = left;
+			}
+			VersionRange right = build(mid + 1, hi);
+			if ((right != null) && (compareRight(right, max) > 0)) {
+				max = right;
+			}
+			return maxRight[mid] = max;
+		}
+
+		void collect(int lo, int hi, Version version, List<T> result) {
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (!includesRight(maxRight[mid], version)) {
+					return; // no version range of the subtree reaches version
+				}
+				collect(lo, mid, version, result);
+				VersionRange range = entries[mid].range;
+				if (!includesLeft(range, version)) {
+					return; // the right subtree starts above version
+				}
+				if (includesRight(range, version)) {
+					result.add(entries[mid].value);
+				}
+				lo = mid + 1;
+			}
+		}
+	}
+
+	private static final class Entry<T> {
+		final VersionRange	range;
+		final T				value;
+
+		Entry(VersionRange range, T value) {
+			this.range = range;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry< ? > other = (Entry< ? >) obj;
+			return range.equals(other.range) && value.equals(other.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(range, value);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.framework;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trie of the action masks of wildcard permission names such as
+ * {@code com.acme.*}.
+ * <p>
+ * A wildcard name {@code a.b.*} implies all names starting with {@code a.b.}.
+ * The trie is keyed by the dot separated segments of the wildcard names, so
+ * the action masks of all wildcard names which imply a requested name are
+ * found in a single pass over the requested name rather than by probing a map
+ * with each {@code a.b.*} prefix of the requested name.
+ * <p>
+ * The {@code *} name is not a wildcard name for this trie since permission
+ * collections handle it separately.
+ *
+ * @NotThreadSafe
+ */
+final class WildcardTrie {
+	private final Node root = new Node();
+
+	WildcardTrie() {
+		// empty
+	}
+
+	/**
+	 * Returns whether the specified name is a wildcard name handled by this
+	 * trie.
+	 *
+	 * @param name The permission name.
+	 * @return {@code true} if the name ends with {@code .*}.
+	 */
+	static boolean isWildcard(String name) {
+		int length = name.length();
+		return (length > 1) && (name.charAt(length - 1) == '*')
+				&& (name.charAt(length - 2) == '.');
+	}
+
+	/**
+	 * Add the actions of a wildcard name to this trie. The actions are combined
+	 * with the actions already added for the name.
+	 *
+	 * @param name The wildcard name which must end with {@code .*}.
+	 * @param mask The action mask for the name.
+	 */
+	void add(String name, int mask) {
+		Node node = root;
+		int end = name.length() - 1; // the index of the '*'
+		int start = 0;
+		while (start < end) {
+			int dot = name.indexOf('.', start);
+			node = node.child(name.substring(start, dot));
+			start = dot + 1;
+		}
+		node.mask |= mask;
+	}
+
+	/**
+	 * Returns the combined actions of the wildcard names which imply the
+	 * specified name.
+	 *
+	 * @param name The requested name.
+	 * @param desired The desired action mask. The search stops once the
+	 *            effective action mask includes the desired action mask.
+	 * @param effective The effective action mask so far.
+	 * @return The effective action mask including the actions of the implying
+	 *         wildcard names.
+	 */
+	int implied(String name, int desired, int effective) {
+		Node node = root;
+		int start = 0;
+		int dot;
+		while ((dot = name.indexOf('.', start)) != -1) {
+			Map<String, Node> children = node.children;
+			if (children == null) {
+				break;
+			}
+			node = children.get(name.substring(start, dot));
+			if (node == null) {
+				break;
+			}
+			effective |= node.mask;
+			if ((effective & desired) == desired) {
+				break;
+			}
+			start = dot + 1;
+		}
+		return effective;
+	}
+
+	private static final class Node {
+		/**
+		 * The action mask of the wildcard name ending at this node.
+		 */
+		int					mask;
+		Map<String, Node>	children;
+
+		Node() {
+			// empty
+		}
+
+		Node child(String segment) {
+			Map<String, Node> c = children;
+			if (c == null) {
+				children = c = new HashMap<String, Node>();
+			}
+			Node node = c.get(segment);
+			if (node == null) {
+				c.put(segment, node = new Node());
+			}
+			return node;
+		}
+	}
+}
@@ -383,6 +383,89 @@ public abstract class AbstractFilterTests {
 		assertEquals("not equal", f1.hashCode(), f2.hashCode());
 	}
 
+	@Test
+	public void testNestedComposites() {
+		final Matcher matcher = new Matcher() {
+			final Hashtable<String,Object>	props	= getProperties();
+			final ServiceReference< ? >		ref		= newDictionaryServiceReference(
+					props);
+
+			public void matches(SoftAssertions softly, Filter f,
+					boolean expected) {
+				softly.assertThat(f.match(props))
+						.as("\"%s\".match(props)", f)
+						.isEqualTo(expected);
+				softly.assertThat(f.matches(props))
+						.as("\"%s\".matches(props)", f)
+						.isEqualTo(expected);
+				softly.assertThat(f.match(ref))
+						.as("\"%s\".match(ref)", f)
+						.isEqualTo(expected);
+			}
+		};
+		assertFilterTrue("(!(!(room=bedroom)))", matcher);
+		assertFilterFalse("(!(!(!(room=bedroom))))", matcher);
+		assertFilterTrue("(&(room=bedroom)(|(intvalue=1)(longvalue=10000000000)))",
+				matcher);
+		assertFilterFalse("(&(room=bedroom)(|(intvalue=1)(longvalue=1)))",
+				matcher);
+		assertFilterTrue("(|(&(room=x)(intvalue=100000))(!(&(room=bedroom)(intvalue=1))))",
+				matcher);
+		assertFilterTrue("(!(|(&(room=x)(intvalue=100000))(!(&(room=bedroom)(intvalue=100000)))))",
+				matcher);
+		assertFilterTrue("(&(!(room=x))(!(intvalue=1))(|(missing=*)(bytevalue=10)))",
+				matcher);
+		assertFilterFalse("(|(!(room=*))(&(missing=*)(room=bedroom))(!(intvalue>=1)))",
+				matcher);
+		assertFilterTrue("(&(|(&(room=b*)(!(room=*x)))(missing=1))(shortvalue<=1000))",
+				matcher);
+	}
+
+	@Test
+	public void testMixedTypes() {
+		Filter f1 = createFilter("(value>=2)");
+		Filter f2 = createFilter("(value=2)");
+		Object[] values = new Object[] {
+				Long.valueOf(3), Integer.valueOf(3), new Version(3, 0, 0),
+				Double.valueOf(3.0), Float.valueOf(3.0f),
+				new SampleComparable("3"), Short.valueOf((short) 3),
+				"3", BigInteger.valueOf(3)
+		};
+		Hashtable<String,Object> hash = new Hashtable<>();
+		// repeat so each type is matched after every other type
+		for (int i = 0; i < 3; i++) {
+			for (Object value : values) {
+				hash.put("value", value);
+				assertTrue("does not match filter " + value.getClass(),
+						f1.match(hash));
+				assertTrue("does not match filter " + value.getClass(),
+						f1.matches(hash));
+				assertFalse("does match filter " + value.getClass(),
+						f2.match(hash));
+				assertFalse("does match filter " + value.getClass(),
+						f2.matches(hash));
+			}
+		}
+	}
+
+	@Test
+	public void testCaseVariantKeys() {
+		Hashtable<String,Object> hash = new Hashtable<>();
+		for (int i = 0; i < 64; i++) {
+			hash.put("Key" + i, Integer.valueOf(i));
+		}
+		Filter f1 = createFilter(
+				"(&(key5=5)(KEY63>=60)(kEy0=*)(!(missing=*)))");
+		assertTrue("does not match filter", f1.match(hash));
+		assertTrue("does not match filter", f1.match(hash));
+
+		hash.put("KEY17", Integer.valueOf(17));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> f1.match(hash));
+		hash.remove("KEY17");
+		assertTrue("does not match filter", f1.match(hash));
+	}
+
 	private void assertFilterTrue(String query, Matcher matcher) {
 		Filter f1 = createFilter(query);
 
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+
+package org.osgi.test.cases.framework.junit.frameworkutil;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FilterAnalysis;
+import org.osgi.framework.FrameworkUtil;
+
+public class FilterAnalysisTests {
+
+	private static FilterAnalysis analyze(String filter) {
+		return FilterAnalysis.analyze(FrameworkUtil.createFilter(filter));
+	}
+
+	@Test
+	public void testAttributes() {
+		FilterAnalysis analysis = analyze(
+				"(&(objectClass=org.acme.Foo)(|(service.pid=a)(!(x>=1)))(x=*))");
+		assertThat(analysis.getAttributes()).containsExactly("objectClass",
+				"service.pid", "x");
+		assertThat(analysis.getFilter().toString()).isEqualTo(
+				"(&(objectClass=org.acme.Foo)(|(service.pid=a)(!(x>=1)))(x=*))");
+	}
+
+	@Test
+	public void testRequiredEqualities() {
+		assertThat(analyze(
+				"(&(objectClass=org.acme.Foo)(|(service.pid=a)(service.pid=b)))")
+						.getRequiredEqualities())
+								.containsOnlyKeys("objectClass")
+								.containsEntry("objectClass",
+										Collections.singleton("org.acme.Foo"));
+		assertThat(analyze("(&(objectClass=A)(objectClass=B))")
+				.getRequiredEqualities()
+				.get("objectClass")).containsExactly("A", "B");
+		assertThat(analyze("(|(&(objectClass=A)(x=1))(&(objectClass=A)(y=2)))")
+				.getRequiredEqualities()).containsOnlyKeys("objectClass");
+		assertThat(analyze("(!(|(!(objectClass=A))(x=1)))")
+				.getRequiredEqualities()).containsOnlyKeys("objectClass");
+		assertThat(analyze("(!(objectClass=A))").getRequiredEqualities())
+				.isEmpty();
+		assertThat(analyze("(x>=1)").getRequiredEqualities()).isEmpty();
+	}
+
+	@Test
+	public void testDisjunctiveNormalForm() {
+		Filter dnf = analyze("(&(a=1)(|(c=3)(b=2))(!(&(d=4)(e=5))))")
+				.getDisjunctiveNormalForm();
+		assertThat(dnf.toString()).isEqualTo("(|(&(!(d=4))(a=1)(c=3))"
+				+ "(&(!(e=5))(a=1)(c=3))(&(!(d=4))(a=1)(b=2))"
+				+ "(&(!(e=5))(a=1)(b=2)))");
+		assertThat(analyze("(|(&(b=2)(a=1))(a=1))").getDisjunctiveNormalForm()
+				.toString()).isEqualTo("(a=1)");
+		assertThat(analyze("(&(b=2)(a=1))").getDisjunctiveNormalForm())
+				.isEqualTo(analyze("(&(a=1)(b=2)(a=1))")
+						.getDisjunctiveNormalForm());
+
+		Map<String,Object> props = new HashMap<>();
+		props.put("a", "1");
+		props.put("c", "3");
+		props.put("d", "4");
+		assertThat(dnf.matches(props)).isTrue();
+		props.put("e", "5");
+		assertThat(dnf.matches(props)).isFalse();
+
+		StringBuilder sb = new StringBuilder("(&");
+		for (int i = 0; i < 12; i++) {
+			sb.append("(|(a=").append(i).append(")(b=").append(i).append("))");
+		}
+		FilterAnalysis large = analyze(sb.append(')').toString());
+		assertThatIllegalStateException()
+				.isThrownBy(large::getDisjunctiveNormalForm);
+		assertThat(large.implies(large.getFilter())).isFalse();
+	}
+
+	@Test
+	public void testImplies() {
+		FilterAnalysis analysis = analyze(
+				"(&(objectClass=org.acme.Foo)(service.pid=a)(x>=1))");
+		assertThat(analysis.implies(
+				FrameworkUtil.createFilter("(objectClass=org.acme.Foo)")))
+						.isTrue();
+		assertThat(analysis.implies(FrameworkUtil
+				.createFilter("(&(service.pid=a)(objectClass=org.acme.Foo))")))
+						.isTrue();
+		assertThat(analysis
+				.implies(FrameworkUtil.createFilter("(|(y=1)(x>=1))")))
+						.isTrue();
+		assertThat(analysis.implies(FrameworkUtil.createFilter("(x=*)")))
+				.isTrue();
+		assertThat(analysis
+				.implies(FrameworkUtil.createFilter("(!(!(service.pid=a)))")))
+						.isTrue();
+		assertThat(analysis.implies(FrameworkUtil.createFilter("(y=*)")))
+				.isFalse();
+		assertThat(analysis.implies(FrameworkUtil.createFilter("(x>=0)")))
+				.isFalse();
+		assertThat(analysis
+				.implies(FrameworkUtil.createFilter("(OBJECTCLASS=org.acme.Foo)")))
+						.isFalse();
+
+		assertThat(analyze("(!(x=*))")
+				.implies(FrameworkUtil.createFilter("(!(x=1))"))).isTrue();
+		assertThat(analyze("(!(x=1))")
+				.implies(FrameworkUtil.createFilter("(!(x=*))"))).isFalse();
+		assertThat(analyze("(|(a=1)(&(a=2)(b=1)))")
+				.implies(FrameworkUtil.createFilter("(a=*)"))).isTrue();
+		assertThat(analyze("(&(a=1)(!(a=*)))")
+				.implies(FrameworkUtil.createFilter("(z=9)"))).isTrue();
+	}
+}
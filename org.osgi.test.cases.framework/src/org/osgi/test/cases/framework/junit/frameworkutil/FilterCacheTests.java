@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.test.cases.framework.junit.frameworkutil;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.FrameworkUtil.FilterCacheStatistics;
+
+public class FilterCacheTests {
+
+	@Test
+	public void testSharedFilter() {
+		Filter f1 = FrameworkUtil
+				.createFilter("(&(objectClass=org.acme.Foo)(service.pid=foo))");
+		Filter f2 = FrameworkUtil
+				.createFilter("(&(objectClass=org.acme.Foo)(service.pid=foo))");
+		Filter f3 = FrameworkUtil.createFilter(
+				" ( & (objectClass=org.acme.Foo) (service.pid=foo) ) ");
+		assertThat(f2).isSameAs(f1);
+		assertThat(f3).isSameAs(f1);
+	}
+
+	@Test
+	public void testStatistics() {
+		String filter = "(objectClass=" + getClass().getName() + ".stats)";
+		FrameworkUtil.createFilter(filter);
+		FilterCacheStatistics before = FrameworkUtil.getFilterCacheStatistics();
+		FrameworkUtil.createFilter(filter);
+		FrameworkUtil.createFilter(filter);
+		FilterCacheStatistics after = FrameworkUtil.getFilterCacheStatistics();
+		assertThat(after.getHitCount() - before.getHitCount())
+				.isGreaterThanOrEqualTo(2L);
+		assertThat(after.getSize()).isPositive()
+				.isLessThanOrEqualTo(after.getMaximumSize());
+		assertThat(after.getWeight()).isPositive()
+				.isLessThanOrEqualTo(after.getMaximumWeight());
+	}
+
+	@Test
+	public void testConcurrentCreateFilter() throws Exception {
+		final int threads = 16;
+		final int distinct = 4 * FrameworkUtil.getFilterCacheStatistics()
+				.getMaximumSize();
+		FilterCacheStatistics before = FrameworkUtil.getFilterCacheStatistics();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final int seed = t;
+				results.add(executor.submit(() -> {
+					Map<String,Object> props = new HashMap<>();
+					int checked = 0;
+					for (int i = 0; i < distinct; i++) {
+						int id = (i * 7 + seed * 31) % distinct;
+						Filter filter = FrameworkUtil.createFilter("(&("
+								+ Constants.OBJECTCLASS + "=org.acme.Service)("
+								+ Constants.SERVICE_ID + "=" + id + "))");
+						props.put(Constants.OBJECTCLASS, "org.acme.Service");
+						props.put(Constants.SERVICE_ID, Long.valueOf(id));
+						assertThat(filter.matches(props)).as("%s", filter)
+								.isTrue();
+						props.put(Constants.SERVICE_ID, Long.valueOf(id + 1));
+						assertThat(filter.matches(props)).as("%s", filter)
+								.isFalse();
+						checked++;
+					}
+					return Integer.valueOf(checked);
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertThat(result.get(5, TimeUnit.MINUTES)).isEqualTo(distinct);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		FilterCacheStatistics after = FrameworkUtil.getFilterCacheStatistics();
+		long lookups = (after.getHitCount() - before.getHitCount())
+				+ (after.getMissCount() - before.getMissCount());
+		assertThat(lookups).isGreaterThanOrEqualTo((long) threads * distinct);
+		assertThat(after.getEvictionCount())
+				.isGreaterThan(before.getEvictionCount());
+		assertThat(after.getSize()).isLessThanOrEqualTo(after.getMaximumSize());
+		assertThat(after.getWeight())
+				.isLessThanOrEqualTo(after.getMaximumWeight());
+	}
+}
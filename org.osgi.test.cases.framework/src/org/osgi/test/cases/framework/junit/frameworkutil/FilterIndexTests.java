@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.test.cases.framework.junit.frameworkutil;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FilterIndex;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.test.cases.framework.junit.filter.AbstractFilterTests;
+
+public class FilterIndexTests {
+
+	@Test
+	public void testAddRemove() {
+		FilterIndex<String> index = new FilterIndex<>();
+		Filter foo = FrameworkUtil.createFilter("(objectClass=org.acme.Foo)");
+		Filter bar = FrameworkUtil
+				.createFilter("(&(objectClass=org.acme.Bar)(service.pid=bar))");
+		Filter any = FrameworkUtil.createFilter("(|(a=1)(b=2))");
+		assertThat(index.add(foo, "foo")).isTrue();
+		assertThat(index.add(foo, "foo")).isFalse();
+		assertThat(index.add(bar, "bar")).isTrue();
+		assertThat(index.add(any, "any")).isTrue();
+		assertThat(index.size()).isEqualTo(3);
+
+		Hashtable<String,Object> props = new Hashtable<>();
+		props.put("objectClass", new String[] {
+				"org.acme.Foo", "org.acme.Bar"
+		});
+		props.put("service.pid", "bar");
+		props.put("b", Integer.valueOf(2));
+		assertThat(index.getMatches((Map<String,Object>) props))
+				.containsExactlyInAnyOrder("foo", "bar", "any");
+		assertThat(index.getMatches((Dictionary<String,Object>) props))
+				.containsExactlyInAnyOrder("foo", "bar", "any");
+		assertThat(index.getMatches(
+				AbstractFilterTests.newDictionaryServiceReference(props)))
+						.containsExactlyInAnyOrder("foo", "bar", "any");
+
+		assertThat(index.remove(bar, "bar")).isTrue();
+		assertThat(index.remove(bar, "bar")).isFalse();
+		assertThat(index.size()).isEqualTo(2);
+		assertThat(index.getMatches((Map<String,Object>) props))
+				.containsExactlyInAnyOrder("foo", "any");
+	}
+
+	@Test
+	public void testCaseVariantKeys() {
+		FilterIndex<String> index = new FilterIndex<>();
+		index.add(FrameworkUtil.createFilter("(OBJECTCLASS=org.acme.Foo)"),
+				"foo");
+		Hashtable<String,Object> props = new Hashtable<>();
+		props.put("objectClass", "org.acme.Foo");
+		assertThat(index.getMatches((Dictionary<String,Object>) props))
+				.containsExactly("foo");
+		assertThat(index.getMatches((Map<String,Object>) props)).isEmpty();
+
+		props.put("objectclass", "org.acme.Foo");
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> index
+						.getMatches((Dictionary<String,Object>) props));
+
+		// no filter is evaluated
+		Hashtable<String,Object> other = new Hashtable<>();
+		other.put("name", "bar");
+		other.put("NAME", "bar");
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> index
+						.getMatches((Dictionary<String,Object>) other));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new FilterIndex<String>()
+						.getMatches((Dictionary<String,Object>) other));
+	}
+
+	@Test
+	public void testNumericValues() {
+		FilterIndex<String> index = new FilterIndex<>();
+		index.add(FrameworkUtil.createFilter("(service.ranking=5)"), "5");
+		index.add(FrameworkUtil.createFilter("(service.ranking= 05)"), "05");
+		index.add(FrameworkUtil.createFilter("(service.ranking=6)"), "6");
+		Hashtable<String,Object> props = new Hashtable<>();
+		props.put("service.ranking", Integer.valueOf(5));
+		assertThat(index.getMatches((Map<String,Object>) props))
+				.containsExactlyInAnyOrder("5", "05");
+		props.put("service.ranking", Double.valueOf(6.0));
+		assertThat(index.getMatches((Map<String,Object>) props))
+				.containsExactly("6");
+		props.put("service.ranking", "5");
+		assertThat(index.getMatches((Map<String,Object>) props))
+				.containsExactly("5");
+	}
+
+	@Test
+	public void testSameAsLinearScan() {
+		Random random = new Random(1960);
+		String[] classes = new String[] {
+				"org.acme.A", "org.acme.B", "org.acme.C", "org.acme.D"
+		};
+		String[] templates = new String[] {
+				"(objectClass=%1$s)", "(&(objectClass=%1$s)(service.pid=p%2$d))",
+				"(service.pid=p%2$d)", "(|(objectClass=%1$s)(x=%2$d))",
+				"(&(x=%2$d)(service.pid=p%2$d))", "(x=%2$d)", "(x= 0%2$d)",
+				"(&(OBJECTCLASS=%1$s)(x>=%2$d))", "(!(objectClass=%1$s))"
+		};
+		FilterIndex<Integer> index = new FilterIndex<>();
+		List<Filter> filters = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Filter filter = FrameworkUtil.createFilter(String.format(
+					templates[random.nextInt(templates.length)],
+					classes[random.nextInt(classes.length)],
+					Integer.valueOf(random.nextInt(5))));
+			filters.add(filter);
+			index.add(filter, Integer.valueOf(i));
+		}
+		for (int n = 0; n < 500; n++) {
+			Hashtable<String,Object> props = new Hashtable<>();
+			props.put(random.nextBoolean() ? "objectClass" : "objectclass",
+					new String[] {
+							classes[random.nextInt(classes.length)],
+							classes[random.nextInt(classes.length)]
+					});
+			if (random.nextBoolean()) {
+				props.put("service.pid", "p" + random.nextInt(5));
+			}
+			switch (random.nextInt(3)) {
+				case 0 :
+					props.put("x", Long.valueOf(random.nextInt(5)));
+					break;
+				case 1 :
+					props.put("x", String.valueOf(random.nextInt(5)));
+					break;
+				default :
+					props.put("x", Double.valueOf(random.nextInt(5)));
+					break;
+			}
+			List<Integer> matches = new ArrayList<>();
+			List<Integer> matchesCase = new ArrayList<>();
+			for (int i = 0; i < filters.size(); i++) {
+				if (filters.get(i).match(props)) {
+					matches.add(Integer.valueOf(i));
+				}
+				if (filters.get(i).matches(props)) {
+					matchesCase.add(Integer.valueOf(i));
+				}
+			}
+			assertThat(index.getMatches((Dictionary<String,Object>) props))
+					.as("%s", props)
+					.containsExactlyInAnyOrderElementsOf(matches);
+			assertThat(index.getMatches((Map<String,Object>) props))
+					.as("%s", props)
+					.containsExactlyInAnyOrderElementsOf(matchesCase);
+		}
+	}
+}
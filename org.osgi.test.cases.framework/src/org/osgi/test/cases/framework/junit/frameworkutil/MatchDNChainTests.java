@@ -19,8 +19,10 @@
 package org.osgi.test.cases.framework.junit.frameworkutil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.osgi.framework.DNChainPattern;
 import org.osgi.framework.FrameworkUtil;
 
 import junit.framework.TestCase;
@@ -130,6 +132,35 @@ public class MatchDNChainTests extends TestCase {
 		assertInvalidMatch("*, cn=Bugs Bunny, o=ACME,", dn);
 	}
 
+	public void testCompiledPattern() {
+		List<String> chain = Arrays.asList("cn=Bugs Bunny, o=ACME, c=US",
+				"ou=Super CA, o=ACME, c=US", "cn=Root, c=US");
+		DNChainPattern pattern = DNChainPattern
+				.compile("cn=*, o=ACME, c=US; *; cn=Root, c=US");
+		assertTrue("did not match", pattern.matches(chain));
+		assertTrue("did not match", pattern.matches(chain));
+		assertFalse("did match", pattern.matches(chain.subList(0, 2)));
+		assertTrue("did not match", DNChainPattern.compile("-; *, o=ACME, c=US")
+				.matches(chain.subList(0, 2)));
+		assertEquals(DNChainPattern.compile("cn=*, o=ACME, c=US; *; cn=Root, c=US"),
+				pattern);
+		assertEquals("cn=*, o=ACME, c=US; *; cn=Root, c=US",
+				pattern.toString());
+
+		try {
+			DNChainPattern.compile("*, c=US;");
+			fail("invalid pattern");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			pattern.matches(Arrays.asList("c=\"US"));
+			fail("invalid chain");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
 	@SuppressWarnings({
 			"rawtypes", "unchecked"
 	})
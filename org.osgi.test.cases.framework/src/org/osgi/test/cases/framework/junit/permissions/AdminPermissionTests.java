@@ -20,11 +20,16 @@ package org.osgi.test.cases.framework.junit.permissions;
 
 import java.security.Permission;
 import java.security.PermissionCollection;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.PropertyPermission;
 
 import org.osgi.framework.AdminPermission;
 import org.osgi.framework.Bundle;
 import org.osgi.test.support.PermissionTestCase;
+import org.osgi.test.support.mock.MockFactory;
 
 public class AdminPermissionTests extends PermissionTestCase {
 
@@ -431,6 +436,87 @@ public class AdminPermissionTests extends PermissionTestCase {
 		assertImplies(pc, all);
 	}
 
+	public void testPermissionCollectionUpdatedBundle() {
+		AdminPermission p1 = new AdminPermission("(name=test.bsn)",
+				"lifecycle");
+		AdminPermission p2 = new AdminPermission("(location=test.location)",
+				"resolve");
+		UpdatableBundle delegate = new UpdatableBundle(2, "test.bsn",
+				"test.location");
+		Bundle b = MockFactory.newMock(Bundle.class, delegate);
+
+		PermissionCollection pc = p1.newPermissionCollection();
+		assertAddPermission(pc, p1);
+		assertImplies(pc, new AdminPermission(b, "lifecycle"));
+		assertImplies(pc, new AdminPermission(b, "lifecycle"));
+		assertNotImplies(pc, new AdminPermission(b, "resolve"));
+		AdminPermission.DecisionCacheStatistics statistics = AdminPermission
+				.getDecisionCacheStatistics(pc);
+		assertNotNull(statistics);
+		assertTrue(statistics.getHitCount() > 0);
+		assertTrue(statistics.getMissCount() > 0);
+		assertEquals(0, statistics.getInvalidationCount());
+		assertEquals(2, statistics.getSize());
+
+		// update the bundle
+		delegate.name = "updated.bsn";
+		delegate.lastModified++;
+		assertNotImplies(pc, new AdminPermission(b, "lifecycle"));
+		delegate.name = "test.bsn";
+		delegate.lastModified++;
+		assertImplies(pc, new AdminPermission(b, "lifecycle"));
+
+		// add a permission
+		assertAddPermission(pc, p2);
+		assertTrue(AdminPermission.getDecisionCacheStatistics(pc)
+				.getInvalidationCount() > 0);
+		assertImplies(pc, new AdminPermission(b, "resolve"));
+
+		// uninstall the bundle
+		delegate.name = "uninstalled.bsn";
+		delegate.lastModified++;
+		assertNotImplies(pc, new AdminPermission(b, "lifecycle"));
+		assertImplies(pc, new AdminPermission(b, "resolve"));
+		assertSerializable(pc);
+		assertNull(AdminPermission.getDecisionCacheStatistics(
+				new PropertyPermission("*", "read")
+						.newPermissionCollection()));
+	}
+
+	public static class UpdatableBundle {
+		private final long	id;
+		private final String	location;
+		volatile String		name;
+		volatile long		lastModified;
+
+		UpdatableBundle(long id, String name, String location) {
+			this.id = id;
+			this.name = name;
+			this.location = location;
+		}
+
+		public long getBundleId() {
+			return id;
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public String getSymbolicName() {
+			return name;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public Map<X509Certificate,List<X509Certificate>> getSignerCertificates(
+				int type) {
+			return Collections.emptyMap();
+		}
+	}
+
 	private static void invalidAdminPermission(String name, String actions) {
 		try {
 			AdminPermission p = new AdminPermission(name, actions);
@@ -691,6 +691,42 @@ public class CapabilityPermissionTests extends PermissionTestCase {
 		assertImplies(p61, p62);
 	}
 
+	public void testPermissionCollectionWildcards() {
+		CapabilityPermission p71 = new CapabilityPermission("com.*", "require");
+		CapabilityPermission p72 = new CapabilityPermission("com.acme.*",
+				"provide");
+		CapabilityPermission p73 = new CapabilityPermission(
+				"(&(id=2)(@type=impl))", "require");
+		CapabilityPermission p74 = new CapabilityPermission(
+				"(capability.namespace=net.acme.*)", "require");
+
+		Bundle b7a = newMockBundle(2, "test.bsn", "test.location",
+				"cn=Bugs Bunny, o=ACME, c=US");
+		Map<String,Object> attributes = new HashMap<>();
+		attributes.put("type", "impl");
+
+		PermissionCollection pc = p71.newPermissionCollection();
+		assertAddPermission(pc, p71);
+		assertAddPermission(pc, p72);
+		assertImplies(pc,
+				new CapabilityPermission("com.acme.cap", "require,provide"));
+		assertImplies(pc, new CapabilityPermission("com.acme", "require"));
+		assertNotImplies(pc, new CapabilityPermission("com.acme", "provide"));
+		assertNotImplies(pc, new CapabilityPermission("com", "require"));
+		assertNotImplies(pc,
+				new CapabilityPermission("com.acmex.cap", "provide"));
+
+		assertAddPermission(pc, p73);
+		assertAddPermission(pc, p74);
+		assertImplies(pc, new CapabilityPermission("org.acme", attributes,
+				b7a, "require"));
+		assertNotImplies(pc, new CapabilityPermission("org.acme",
+				Collections.<String, Object> emptyMap(), b7a, "require"));
+		assertImplies(pc, new CapabilityPermission("net.acme.cap",
+				Collections.<String, Object> emptyMap(), b7a, "require"));
+		assertSerializable(pc);
+	}
+
 	private static void invalidCapabilityPermission(String name, String actions) {
 		try {
 			CapabilityPermission p = new CapabilityPermission(name, actions);
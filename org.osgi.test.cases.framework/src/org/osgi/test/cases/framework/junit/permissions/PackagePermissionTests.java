@@ -734,6 +734,51 @@ public class PackagePermissionTests extends PermissionTestCase {
 		assertSerializable(pc);
 	}
 
+	public void testPermissionCollectionWildcards() {
+		PackagePermission p61 = new PackagePermission("com.*", "import");
+		PackagePermission p62 = new PackagePermission("com.acme.*",
+				"exportonly");
+		PackagePermission p63 = new PackagePermission("com.acme.impl.*",
+				"import");
+		PackagePermission p64 = new PackagePermission("(id=3)", "import");
+		PackagePermission p65 = new PackagePermission(
+				"(&(name=test.bsn)(package.name=net.acme.*))", "import");
+
+		Bundle b6a = newMockBundle(2, "test.bsn", "test.location",
+				"cn=Bugs Bunny, o=ACME, c=US");
+		Bundle b6b = newMockBundle(3, "not.bsn", "not.location",
+				"cn=Bugs Bunny, o=NOT, c=US");
+
+		PermissionCollection pc = p61.newPermissionCollection();
+		assertAddPermission(pc, p61);
+		assertAddPermission(pc, p62);
+		assertAddPermission(pc, p63);
+		assertImplies(pc, new PackagePermission("com.acme.api", "import"));
+		assertImplies(pc, new PackagePermission("com.acme.api", "export"));
+		assertImplies(pc, new PackagePermission("com.acme.impl.x", "export"));
+		assertImplies(pc, new PackagePermission("com.acme.*", "export"));
+		assertNotImplies(pc, new PackagePermission("com", "import"));
+		assertNotImplies(pc, new PackagePermission("com.acme", "export"));
+		assertNotImplies(pc, new PackagePermission("org.acme", "import"));
+		assertNotImplies(pc, new PackagePermission("comx.acme", "import"));
+		assertNotImplies(pc, new PackagePermission("com.acmex.api", "export"));
+		assertNotImplies(pc, new PackagePermission("*", "import"));
+
+		assertAddPermission(pc, new PackagePermission("org.acme.*", "import"));
+		assertAddPermission(pc,
+				new PackagePermission("org.acme.*", "exportonly"));
+		assertImplies(pc, new PackagePermission("org.acme.api", "export"));
+
+		assertAddPermission(pc, p64);
+		assertAddPermission(pc, p65);
+		assertImplies(pc, new PackagePermission("net.acme.api", b6a, "import"));
+		assertNotImplies(pc, new PackagePermission("net.acme", b6a, "import"));
+		assertImplies(pc, new PackagePermission("net.other", b6b, "import"));
+		assertNotImplies(pc, new PackagePermission("net.other", b6a, "import"));
+		assertImplies(pc, new PackagePermission("com.acme.api", b6a, "import"));
+		assertSerializable(pc);
+	}
+
 	private static void invalidPackagePermission(String name, String actions) {
 		try {
 			PackagePermission p = new PackagePermission(name, actions);
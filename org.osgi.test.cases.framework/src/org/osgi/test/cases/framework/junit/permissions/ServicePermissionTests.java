@@ -665,6 +665,52 @@ public class ServicePermissionTests extends PermissionTestCase {
 		assertSerializable(pc);
 	}
 	
+	public void testPermissionCollectionModifiedService() {
+		ServicePermission p71 = new ServicePermission(
+				"(&(objectClass=com.foo.Service1)(service.pid=pid1))", "get");
+		ServicePermission p72 = new ServicePermission("(service.pid=pid2)",
+				"get");
+		ServicePermission p73 = new ServicePermission("(id=7)", "get");
+
+		Bundle b7a = newMockBundle(2, "test.bsn", "test.location",
+				"cn=Bugs Bunny, o=ACME, c=US");
+		Map<String,Object> m7a = new HashMap<>();
+		m7a.put("service.id", Long.valueOf(2));
+		m7a.put("objectClass", new String[] {
+				"com.foo.Service1"
+		});
+		m7a.put("service.pid", "pid1");
+		ServiceReference< ? > r7a = newMockServiceReference(b7a, m7a);
+		ServicePermission p7a = new ServicePermission(r7a, "get");
+
+		PermissionCollection pc = p71.newPermissionCollection();
+		assertAddPermission(pc, p71);
+		assertAddPermission(pc, p72);
+		assertImplies(pc, p7a);
+		assertImplies(pc, p7a);
+
+		// modify the service properties
+		m7a.put("service.pid", "pid3");
+		assertNotImplies(pc, p7a);
+		assertNotImplies(pc, new ServicePermission(r7a, "get"));
+		m7a.put("service.pid", "pid2");
+		assertImplies(pc, p7a);
+		m7a.remove("service.pid");
+		assertNotImplies(pc, p7a);
+
+		// add a permission
+		assertAddPermission(pc, p73);
+		assertNotImplies(pc, p7a);
+		Bundle b7b = newMockBundle(7, "test.bsn", "test.location",
+				"cn=Bugs Bunny, o=ACME, c=US");
+		Map<String,Object> m7b = new HashMap<>(m7a);
+		m7b.put("service.id", Long.valueOf(3));
+		ServicePermission p7b = new ServicePermission(
+				newMockServiceReference(b7b, m7b), "get");
+		assertImplies(pc, p7b);
+		assertSerializable(pc);
+	}
+
 	public void testServiceProperties() {
 		ServicePermission p61 = new ServicePermission(
 				"(&(@Name=expected)(@@AT=atat)(name=test.bsn))", "get");
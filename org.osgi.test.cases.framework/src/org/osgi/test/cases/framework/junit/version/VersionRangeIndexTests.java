@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.test.cases.framework.junit.version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+import org.osgi.framework.VersionRangeIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the VersionRangeIndex class.
+ */
+public class VersionRangeIndexTests extends TestCase {
+
+	public void testAddRemove() {
+		VersionRangeIndex<String> index = new VersionRangeIndex<>();
+		VersionRange r1 = new VersionRange("[1.0,2.0)");
+		VersionRange r2 = new VersionRange("(1.0,1.5]");
+		VersionRange r3 = new VersionRange("1.2");
+		VersionRange r4 = new VersionRange("[2.0,1.0]");
+
+		assertTrue("add", index.add(r1, "r1"));
+		assertFalse("add duplicate", index.add(r1, "r1"));
+		assertTrue("add", index.add(r2, "r2"));
+		assertTrue("add", index.add(r3, "r3"));
+		assertTrue("add empty range", index.add(r4, "r4"));
+		assertEquals("size", 4, index.size());
+
+		assertEquals("1.0", Collections.singleton("r1"),
+				matches(index, "1.0"));
+		assertEquals("1.0.1", set("r1", "r2"), matches(index, "1.0.1"));
+		assertEquals("1.5", set("r1", "r2", "r3"), matches(index, "1.5"));
+		assertEquals("1.5.0.q", set("r1", "r3"), matches(index, "1.5.0.q"));
+		assertEquals("2.0", Collections.singleton("r3"),
+				matches(index, "2.0"));
+		assertEquals("0.9", Collections.emptySet(), matches(index, "0.9"));
+
+		assertTrue("remove", index.remove(r1, "r1"));
+		assertFalse("remove missing", index.remove(r1, "r1"));
+		assertFalse("remove other value", index.remove(r2, "r1"));
+		assertEquals("size", 3, index.size());
+		assertEquals("1.0.1", Collections.singleton("r2"),
+				matches(index, "1.0.1"));
+	}
+
+	public void testSameAsLinearScan() {
+		Random random = new Random(1960);
+		List<VersionRange> ranges = new ArrayList<>();
+		VersionRangeIndex<Integer> index = new VersionRangeIndex<>();
+		for (int i = 0; i < 1000; i++) {
+			VersionRange range;
+			if (random.nextInt(10) == 0) {
+				range = new VersionRange(randomVersion(random).toString());
+			} else {
+				range = new VersionRange(
+						random.nextBoolean() ? VersionRange.LEFT_CLOSED
+								: VersionRange.LEFT_OPEN,
+						randomVersion(random), randomVersion(random),
+						random.nextBoolean() ? VersionRange.RIGHT_CLOSED
+								: VersionRange.RIGHT_OPEN);
+			}
+			ranges.add(range);
+			index.add(range, Integer.valueOf(i));
+			if (random.nextInt(20) == 0) {
+				int r = random.nextInt(ranges.size());
+				if (ranges.get(r) != null) {
+					assertTrue("remove",
+							index.remove(ranges.get(r), Integer.valueOf(r)));
+					ranges.set(r, null);
+				}
+			}
+		}
+		for (int n = 0; n < 500; n++) {
+			Version version = randomVersion(random);
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < ranges.size(); i++) {
+				VersionRange range = ranges.get(i);
+				if ((range != null) && range.includes(version)) {
+					expected.add(Integer.valueOf(i));
+				}
+			}
+			List<Integer> actual = index.getMatches(version);
+			assertEquals(version.toString(), expected.size(), actual.size());
+			assertEquals(version.toString(), new HashSet<>(expected),
+					new HashSet<>(actual));
+		}
+	}
+
+	private static Version randomVersion(Random random) {
+		String[] qualifiers = {
+				"", "", "a", "b"
+		};
+		return new Version(random.nextInt(3), random.nextInt(3),
+				random.nextInt(3), qualifiers[random.nextInt(4)]);
+	}
+
+	private static HashSet<String> matches(VersionRangeIndex<String> index,
+			String version) {
+		return new HashSet<>(index.getMatches(Version.valueOf(version)));
+	}
+
+	private static HashSet<String> set(String... values) {
+		HashSet<String> set = new HashSet<>();
+		Collections.addAll(set, values);
+		return set;
+	}
+}
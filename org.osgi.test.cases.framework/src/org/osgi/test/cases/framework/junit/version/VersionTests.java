@@ -451,6 +451,32 @@ public class VersionTests extends TestCase {
 		assertTrue("Testing the method compareTo() with different qualifiers",
 				version2.compareTo(version1) > 0);
 
+		version1 = new Version(1, 2, Integer.MAX_VALUE);
+		version2 = new Version(1, 3, 0);
+
+		assertTrue("Testing the method compareTo() with large version numbers",
+				version1.compareTo(version2) < 0);
+		assertTrue("Testing the method compareTo() with large version numbers",
+				version2.compareTo(version1) > 0);
+
+		version1 = new Version(3000000, 0, 0);
+		version2 = new Version(2999999, 4000000, 5000000, "z");
+
+		assertTrue("Testing the method compareTo() with large version numbers",
+				version1.compareTo(version2) > 0);
+		assertTrue("Testing the method compareTo() with large version numbers",
+				version2.compareTo(version1) < 0);
+
+		version1 = Version.valueOf("1.0");
+		version2 = Version.valueOf("1.0.0");
+
+		assertTrue("Testing the method compareTo() with parsed versions",
+				version1.compareTo(version2) == 0);
+		assertEquals("Testing the method compareTo() with parsed versions",
+				version1, version2);
+		assertTrue("Testing the method compareTo() with parsed versions",
+				Version.valueOf("1.0.0.a").compareTo(version2) > 0);
+
 		/**
 		 * Test the method compareTo() with an incorrect object
 		 *
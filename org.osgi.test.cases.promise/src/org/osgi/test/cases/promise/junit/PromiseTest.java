@@ -38,6 +38,7 @@ import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -64,6 +65,7 @@ import org.osgi.util.promise.Failure;
 import org.osgi.util.promise.Promise;
 import org.osgi.util.promise.PromiseFactory;
 import org.osgi.util.promise.PromiseFactory.Option;
+import org.osgi.util.promise.PromiseMetrics;
 import org.osgi.util.promise.Promises;
 import org.osgi.util.promise.Success;
 import org.osgi.util.promise.TimeoutException;
@@ -550,6 +552,96 @@ public class PromiseTest {
 				.isInstanceOf(InterruptedException.class);
 	}
 
+	/**
+	 * Start threads which each store the result of calling getValue on the
+	 * specified Promise and wait until they are all blocked.
+	 */
+	private static List<Thread> startWaiters(Promise<String> p, int count,
+			List<Object> results) throws Exception {
+		List<Thread> waiters = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Thread t = new Thread(() -> {
+				Object result;
+				try {
+					result = String.valueOf(p.getValue());
+				} catch (Throwable e) {
+					result = e;
+				}
+				results.add(result);
+			}, "waiter-" + i);
+			waiters.add(t);
+			t.start();
+		}
+		long deadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(WAIT_TIME);
+		for (Thread t : waiters) {
+			while (t.getState() != Thread.State.WAITING) {
+				assertThat(System.nanoTime()).isLessThan(deadline);
+				Thread.sleep(1);
+			}
+		}
+		return waiters;
+	}
+
+	@Test
+	public void testConcurrentWaiters() throws Exception {
+		PromiseFactory instrumented = new PromiseFactory(callbackExecutor,
+				scheduledExecutor, Option.INSTRUMENTATION);
+		for (PromiseFactory f : Arrays.asList(factory, instrumented)) {
+			Deferred<String> d = f.deferred();
+			List<Object> results = new CopyOnWriteArrayList<>();
+			List<Thread> waiters = startWaiters(d.getPromise(), 8, results);
+			d.resolve(null);
+			for (Thread t : waiters) {
+				t.join(TimeUnit.SECONDS.toMillis(WAIT_TIME));
+				assertThat(t.isAlive()).isFalse();
+			}
+			assertThat(results).hasSize(8).containsOnly("null");
+
+			d = f.deferred();
+			results.clear();
+			waiters = startWaiters(d.getPromise(), 8, results);
+			Exception failure = new Exception("failed");
+			d.fail(failure);
+			for (Thread t : waiters) {
+				t.join(TimeUnit.SECONDS.toMillis(WAIT_TIME));
+				assertThat(t.isAlive()).isFalse();
+			}
+			assertThat(results).hasSize(8)
+					.allMatch(InvocationTargetException.class::isInstance)
+					.allMatch(r -> ((Throwable) r).getCause() == failure);
+			assertThat(d.getPromise().getFailure()).isSameAs(failure);
+		}
+		PromiseMetrics metrics = instrumented.metrics();
+		assertThat(metrics.getCreated()).isEqualTo(2L);
+		assertThat(metrics.getResolved()).isEqualTo(1L);
+		assertThat(metrics.getFailed()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testInterruptedWaiter() throws Exception {
+		Deferred<String> d = factory.deferred();
+		List<Object> results = new CopyOnWriteArrayList<>();
+		List<Thread> waiters = startWaiters(d.getPromise(), 4, results);
+		Thread interrupted = waiters.get(1);
+		interrupted.interrupt();
+		interrupted.join(TimeUnit.SECONDS.toMillis(WAIT_TIME));
+		assertThat(interrupted.isAlive()).isFalse();
+		assertThat(results).hasSize(1)
+				.allMatch(InterruptedException.class::isInstance);
+		assertThat(d.getPromise()).isNotDone();
+
+		d.resolve("value");
+		for (Thread t : waiters) {
+			t.join(TimeUnit.SECONDS.toMillis(WAIT_TIME));
+			assertThat(t.isAlive()).isFalse();
+		}
+		assertThat(results).hasSize(4)
+				.filteredOn(String.class::isInstance)
+				.hasSize(3)
+				.containsOnly("value");
+	}
+
 	@Test
 	public void testNullCallback() throws Exception {
 		Deferred<String> d = factory.deferred();
@@ -1303,6 +1395,209 @@ public class PromiseTest {
 		}
 	}
 
+	@Test
+	public void factory_trampoline_callbacks() throws Exception {
+		// a chain deep enough to overflow the stack if run recursively
+		PromiseFactory factory2 = new PromiseFactory(
+				PromiseFactory.inlineExecutor(), scheduledExecutor,
+				Option.TRAMPOLINE_CALLBACKS);
+		Deferred<Integer> d = factory2.deferred();
+		Promise<Integer> p = d.getPromise();
+		for (int i = 0; i < 100000; i++) {
+			p = p.map(v -> v + 1);
+		}
+		d.resolve(Integer.valueOf(0));
+		assertThat(p).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue(Integer.valueOf(100000));
+
+		PromiseFactory factory3 = new PromiseFactory(callbackExecutor,
+				scheduledExecutor).withTrampolineLimits(10, WAIT_TIME,
+						TimeUnit.SECONDS);
+		d = factory3.deferred();
+		p = d.getPromise();
+		for (int i = 0; i < 100000; i++) {
+			p = p.map(v -> v + 1);
+		}
+		d.resolve(Integer.valueOf(0));
+		assertThat(p).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue(Integer.valueOf(100000));
+
+		// getValue in a callback runs the callbacks queued on its thread
+		Deferred<Integer> d1 = factory3.deferred();
+		Deferred<Integer> d2 = factory3.deferred();
+		Promise<Integer> p2 = d2.getPromise().map(v -> v + 1);
+		p = d1.getPromise().map(v -> {
+			d2.resolve(v);
+			return p2.getValue();
+		});
+		d1.resolve(Integer.valueOf(41));
+		assertThat(p).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue(Integer.valueOf(42));
+
+		assertThatThrownBy(() -> factory3.withTrampolineLimits(10, -1L,
+				TimeUnit.SECONDS))
+						.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void factory_blocking_callback_does_not_starve() throws Exception {
+		PromiseFactory factory2 = new PromiseFactory(callbackExecutor,
+				scheduledExecutor);
+		Deferred<Integer> d1 = factory2.deferred();
+		Deferred<Integer> d2 = factory2.deferred();
+		CountDownLatch latch = new CountDownLatch(1);
+		d2.getPromise().onResolve(latch::countDown);
+		Promise<Boolean> p = d1.getPromise().map(v -> {
+			d2.resolve(v);
+			return Boolean.valueOf(latch.await(WAIT_TIME, TimeUnit.SECONDS));
+		});
+		d1.resolve(Integer.valueOf(1));
+		assertThat(p).resolvesWithin(2 * WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue(Boolean.TRUE);
+	}
+
+	@Test
+	public void factory_virtual_thread_callbacks() throws Exception {
+		PromiseFactory factory2 = new PromiseFactory(null, null,
+				Option.VIRTUAL_THREAD_CALLBACKS);
+		Executor defaultExecutor = new PromiseFactory(null).executor();
+		assertThat(new PromiseFactory(callbackExecutor, null,
+				Option.VIRTUAL_THREAD_CALLBACKS).executor())
+						.isSameAs(callbackExecutor);
+		if (factory2.executor() == defaultExecutor) {
+			// virtual threads not supported by the Java runtime
+			Deferred<Integer> d = factory2.deferred();
+			Promise<Integer> p = d.getPromise().map(v -> v + 1);
+			d.resolve(Integer.valueOf(41));
+			assertThat(p).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+					.hasValue(Integer.valueOf(42));
+			return;
+		}
+		// more blocking callbacks than threads of the default executor
+		final int count = 1000;
+		final CountDownLatch blocked = new CountDownLatch(count);
+		final Deferred<Integer> release = factory2.deferred();
+		final Deferred<Integer> d = factory2.deferred();
+		List<Promise<Integer>> promises = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			promises.add(d.getPromise().map(v -> {
+				blocked.countDown();
+				return v + release.getPromise().getValue();
+			}));
+		}
+		d.resolve(Integer.valueOf(1));
+		assertThat(blocked.await(WAIT_TIME, TimeUnit.SECONDS)).isTrue();
+		release.resolve(Integer.valueOf(41));
+		assertThat(factory2.all(promises))
+				.resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValueThat(InstanceOfAssertFactories.list(Integer.class))
+				.hasSize(count)
+				.containsOnly(Integer.valueOf(42));
+	}
+
+	@Test
+	public void factory_traverse() throws Exception {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			items.add(Integer.valueOf(i));
+		}
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<Deferred<Integer>> pending = Collections
+				.synchronizedList(new ArrayList<>());
+		Promise<List<Integer>> p = factory.traverse(items, i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Deferred<Integer> d = factory.deferred();
+			pending.add(d);
+			return d.getPromise().map(v -> v * 2);
+		}, 4);
+		for (int resolved = 0; resolved < items.size(); resolved++) {
+			Deferred<Integer> d = null;
+			for (int n = 0; (d == null) && (n < 500); n++) {
+				if (pending.isEmpty()) {
+					Thread.sleep(10);
+				} else {
+					d = pending.remove(0);
+				}
+			}
+			assertThat(d).as("pending promise").isNotNull();
+			running.decrementAndGet();
+			d.resolve(Integer.valueOf(resolved));
+		}
+		assertThat(p).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValueThat(InstanceOfAssertFactories.list(Integer.class))
+				.hasSize(items.size())
+				.element(99)
+				.isEqualTo(Integer.valueOf(198));
+		assertThat(maxRunning.get()).isLessThanOrEqualTo(4);
+
+		Promise<List<Integer>> failFast = factory.traverse(items,
+				i -> (i.intValue() == 10) ? factory.failed(new Exception("fail"))
+						: factory.resolved(i),
+				4, true);
+		assertThat(failFast).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasFailedWithThrowableThat()
+				.isInstanceOf(FailedPromisesException.class)
+				.hasRootCauseMessage("fail");
+
+		Promise<List<Integer>> all = factory.traverse(items, i -> {
+			if ((i.intValue() % 10) == 0) {
+				throw new Exception("fail");
+			}
+			return factory.resolved(i);
+		}, 4, false);
+		assertThat(all).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasFailedWithThrowableThat()
+				.isInstanceOfSatisfying(FailedPromisesException.class,
+						f -> assertThat(f.getFailedPromises()).hasSize(10));
+
+		assertThat(factory.traverse(Collections.<Integer> emptyList(),
+				factory::resolved, 1))
+						.resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+						.hasValueThat(InstanceOfAssertFactories.LIST)
+						.isEmpty();
+		assertThatThrownBy(() -> factory.traverse(items, factory::resolved, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void factory_instrumentation() throws Exception {
+		assertThat(factory.metrics()).isNull();
+		PromiseFactory factory2 = new PromiseFactory(factory.executor(),
+				factory.scheduledExecutor(), Option.INSTRUMENTATION);
+		PromiseMetrics metrics = factory2.metrics();
+		assertThat(metrics.getCreated()).isZero();
+		assertThat(metrics.getUnresolved()).isZero();
+
+		Deferred<Integer> d1 = factory2.deferred();
+		Deferred<Integer> d2 = factory2.deferred();
+		Promise<Integer> p1 = d1.getPromise().map(v -> v + 1);
+		metrics = factory2.metrics();
+		assertThat(metrics.getCreated()).isEqualTo(3);
+		assertThat(metrics.getUnresolved()).isEqualTo(3);
+
+		d1.resolve(Integer.valueOf(1));
+		d2.fail(new Exception("fail"));
+		assertThat(p1).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue(Integer.valueOf(2));
+		metrics = factory2.metrics();
+		assertThat(metrics.getResolved()).isEqualTo(2);
+		assertThat(metrics.getFailed()).isEqualTo(1);
+		assertThat(metrics.getUnresolved()).isZero();
+		assertThat(Arrays.stream(metrics.getResolveTimes()).sum())
+				.isEqualTo(3);
+		assertThat(metrics.getResolveTimes()).hasSize(PromiseMetrics.BUCKETS);
+		assertThat(metrics.getCallbackDelays())
+				.hasSize(PromiseMetrics.BUCKETS);
+
+		assertThat(PromiseMetrics.bucket(0L)).isZero();
+		assertThat(PromiseMetrics.bucket(1L)).isEqualTo(1);
+		assertThat(PromiseMetrics.bucket(1023L)).isEqualTo(10);
+		assertThat(PromiseMetrics.bucket(1024L)).isEqualTo(11);
+		assertThat(PromiseMetrics.bucket(Long.MAX_VALUE))
+				.isEqualTo(PromiseMetrics.BUCKETS - 1);
+	}
+
 	@Test
 	public void factory_resolved_with_null() throws Exception {
 		assertThatNullPointerException()
@@ -1920,6 +2215,34 @@ public class PromiseTest {
 		assertThat(p).isNotDone();
 	}
 
+	@Test
+	public void testTimeoutTimerWheel() throws Exception {
+		PromiseFactory factory2 = new PromiseFactory(factory.executor(), null,
+				Option.TIMER_WHEEL);
+		Deferred<String> d1 = factory2.deferred();
+		long start = System.nanoTime();
+		Promise<String> t1 = d1.getPromise().timeout(100);
+		assertThat(t1).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasFailedWithThrowableThat()
+				.isInstanceOf(TimeoutException.class);
+		assertThat(System.nanoTime() - start)
+				.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+		Deferred<String> d2 = factory2.deferred();
+		Promise<String> t2 = d2.getPromise()
+				.timeout(TimeUnit.SECONDS.toMillis(WAIT_TIME));
+		d2.resolve("no timeout");
+		assertThat(t2).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue("no timeout");
+
+		start = System.nanoTime();
+		Promise<String> t3 = factory2.resolved("delayed").delay(100);
+		assertThat(t3).resolvesWithin(WAIT_TIME, TimeUnit.SECONDS)
+				.hasValue("delayed");
+		assertThat(System.nanoTime() - start)
+				.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
 	@Test
 	public void testTimeoutWithSuccess1() throws Exception {
 		final Deferred<String> d = factory.deferred();
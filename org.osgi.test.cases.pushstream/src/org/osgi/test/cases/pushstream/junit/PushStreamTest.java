@@ -21,6 +21,8 @@ import static java.time.Duration.ofSeconds;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.osgi.test.assertj.promise.PromiseAssert.assertThat;
 import static org.osgi.test.cases.pushstream.junit.PushStreamComplianceTest.PROMISE_RESOLVE_DURATION;
@@ -30,19 +32,29 @@ import static org.osgi.util.pushstream.QueuePolicyOption.FAIL;
 import java.io.Closeable;
 import java.lang.reflect.InvocationTargetException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.osgi.util.promise.Deferred;
+import org.osgi.util.promise.FailedPromisesException;
 import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 import org.osgi.util.pushstream.PushEvent;
 import org.osgi.util.pushstream.PushEventConsumer;
 import org.osgi.util.pushstream.PushEventSource;
@@ -634,4 +646,122 @@ public class PushStreamTest {
 		assertTrue(s.tryAcquire(2, 500, MILLISECONDS));
 
 	}
+
+	@Test
+	public void testTraverse() throws Exception {
+		PromiseFactory factory = new PromiseFactory(
+				PromiseFactory.inlineExecutor());
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			items.add(i);
+		}
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<Deferred<Integer>> pending = new CopyOnWriteArrayList<>();
+		PushStream<Integer> es = impl.traverse(items, i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			Deferred<Integer> d = factory.deferred();
+			pending.add(d);
+			return d.getPromise();
+		}, 4, false);
+		Promise<Integer> sum = es.reduce(0, (a, b) -> a + b);
+		for (int resolved = 0; resolved < items.size(); resolved++) {
+			Deferred<Integer> d = null;
+			for (int n = 0; (d == null) && (n < 500); n++) {
+				if (pending.isEmpty()) {
+					Thread.sleep(10);
+				} else {
+					d = pending.remove(0);
+				}
+			}
+			assertNotNull(d, "no pending promise");
+			running.decrementAndGet();
+			d.resolve(resolved);
+		}
+		assertThat(sum).resolvesWithin(PROMISE_RESOLVE_DURATION)
+				.hasValueThat(InstanceOfAssertFactories.INTEGER)
+				.isEqualTo(4950);
+		assertTrue(maxRunning.get() <= 4);
+
+		es = impl.traverse(items,
+				i -> (i == 10) ? factory.failed(new Exception("fail"))
+						: factory.resolved(i),
+				4, true);
+		assertThat(es.count()).resolvesWithin(PROMISE_RESOLVE_DURATION)
+				.hasFailedWithThrowableThat()
+				.isInstanceOf(FailedPromisesException.class)
+				.hasRootCauseMessage("fail");
+
+		es = impl.traverse(items, i -> {
+			if ((i % 10) == 0) {
+				throw new Exception("fail");
+			}
+			return factory.resolved(i);
+		}, 4, false);
+		AtomicInteger count = new AtomicInteger();
+		assertThat(es.forEach(i -> count.incrementAndGet()))
+				.resolvesWithin(PROMISE_RESOLVE_DURATION)
+				.hasFailedWithThrowableThat()
+				.isInstanceOfSatisfying(FailedPromisesException.class,
+						f -> assertEquals(10, f.getFailedPromises().size()));
+		assertEquals(90, count.get());
+
+		es = impl.traverse(items, i -> {
+			if (i == 10) {
+				throw new AssertionError("error");
+			}
+			return factory.resolved(i);
+		}, 4, true);
+		assertThat(es.count()).resolvesWithin(PROMISE_RESOLVE_DURATION)
+				.hasFailedWithThrowableThat()
+				.isInstanceOf(FailedPromisesException.class)
+				.hasRootCauseMessage("error");
+	}
+
+	@Test
+	public void testPrimitiveStreams() throws Exception {
+		assertThat(impl.streamOf(IntStream.range(0, 10))
+				.filter(i -> (i % 2) == 0)
+				.map(i -> i * 10)
+				.sum()).resolvesWithin(PROMISE_RESOLVE_DURATION)
+						.hasValueThat(InstanceOfAssertFactories.INTEGER)
+						.isEqualTo(200);
+
+		assertThat(impl.streamOf(LongStream.rangeClosed(1, 100)).sum())
+				.resolvesWithin(PROMISE_RESOLVE_DURATION)
+				.hasValueThat(InstanceOfAssertFactories.LONG)
+				.isEqualTo(5050L);
+
+		assertThat(impl.streamOf(DoubleStream.of(0.5, 1.5, 2.0))
+				.filter(d -> d > 1.0)
+				.count()).resolvesWithin(PROMISE_RESOLVE_DURATION)
+						.hasValueThat(InstanceOfAssertFactories.LONG)
+						.isEqualTo(2L);
+
+		assertThat(impl.streamOf(Stream.of("a", "bb", "ccc"))
+				.mapToInt(String::length)
+				.mapToObj(i -> "x" + i)
+				.collect(toList())).resolvesWithin(PROMISE_RESOLVE_DURATION)
+						.hasValueThat(InstanceOfAssertFactories.list(String.class))
+						.containsExactly("x1", "x2", "x3");
+
+		assertThat(impl.streamOf(IntStream.range(0, 5))
+				.boxed()
+				.map(i -> i * i)
+				.collect(toList())).resolvesWithin(PROMISE_RESOLVE_DURATION)
+						.hasValueThat(InstanceOfAssertFactories.list(Integer.class))
+						.containsExactly(0, 1, 4, 9, 16);
+
+		AtomicInteger count = new AtomicInteger();
+		AtomicBoolean closed = new AtomicBoolean();
+		assertThat(impl.streamOf(IntStream.range(0, 5))
+				.onClose(() -> closed.set(true))
+				.map(i -> 10 / (i - 2))
+				.forEach(i -> count.incrementAndGet()))
+						.resolvesWithin(PROMISE_RESOLVE_DURATION)
+						.hasFailedWithThrowableThat()
+						.isInstanceOf(ArithmeticException.class);
+		assertEquals(2, count.get());
+		assertTrue(closed.get());
+	}
 }
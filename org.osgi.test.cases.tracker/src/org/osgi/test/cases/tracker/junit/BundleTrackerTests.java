@@ -19,6 +19,7 @@
 package org.osgi.test.cases.tracker.junit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -622,6 +623,49 @@ public class BundleTrackerTests extends OSGiTestCase {
 		}
 	}
 
+	public void testGetBundlesByStateAndHeader() throws Exception {
+		BundleTracker<Bundle> bt = new BundleTracker<Bundle>(getContext(),
+				Bundle.INSTALLED | Bundle.RESOLVED | Bundle.ACTIVE, null);
+		assertNull("getBundles(int) not null", bt.getBundles(Bundle.ACTIVE));
+		bt.open();
+		try {
+			Bundle tb1 = install("tb1.jar");
+			try {
+				assertTrue("installed bundle not found", Arrays
+						.asList(bt.getBundles(Bundle.INSTALLED)).contains(tb1));
+				assertFalse("installed bundle found", Arrays
+						.asList(bt.getBundles(Bundle.ACTIVE)).contains(tb1));
+				Bundle[] bundles = bt
+						.getBundlesWithHeader("bundle-symbolicname");
+				assertNotNull("getBundlesWithHeader() null", bundles);
+				assertEquals("wrong number of bundles", bt.size(),
+						bundles.length);
+				assertNull("getBundlesWithHeader() not null",
+						bt.getBundlesWithHeader("X-Not-A-Header"));
+
+				Wiring.resolveBundles(getContext(), tb1);
+				tb1.start();
+				assertTrue("active bundle not found", Arrays
+						.asList(bt.getBundles(Bundle.ACTIVE)).contains(tb1));
+				bundles = bt.getBundles(Bundle.INSTALLED);
+				assertTrue("active bundle found", (bundles == null)
+						|| !Arrays.asList(bundles).contains(tb1));
+				assertEquals("wrong number of bundles", bt.size(),
+						bt.getBundles(Bundle.INSTALLED | Bundle.RESOLVED
+								| Bundle.ACTIVE).length);
+			} finally {
+				tb1.uninstall();
+			}
+			assertFalse("uninstalled bundle found",
+					Arrays.asList(bt.getBundlesWithHeader(
+							"Bundle-SymbolicName")).contains(tb1));
+		} finally {
+			bt.close();
+		}
+		assertNull("getBundlesWithHeader() not null",
+				bt.getBundlesWithHeader("Bundle-SymbolicName"));
+	}
+
 	static class BundleWrapper {
 		private final Bundle	bundle;
 
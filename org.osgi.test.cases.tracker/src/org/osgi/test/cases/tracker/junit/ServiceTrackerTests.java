@@ -18,10 +18,24 @@
 
 package org.osgi.test.cases.tracker.junit;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -36,7 +50,9 @@ import org.osgi.test.cases.tracker.service.TestService2;
 import org.osgi.test.cases.tracker.service.TestService3;
 import org.osgi.test.support.compatibility.DefaultTestBundleControl;
 import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerBatchCustomizer;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
+import org.osgi.util.tracker.TrackerMetrics;
 
 public class ServiceTrackerTests extends DefaultTestBundleControl {
 
@@ -1146,6 +1162,685 @@ public class ServiceTrackerTests extends DefaultTestBundleControl {
 		}
 	}
 
+	public void testBatchCustomizer() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			registrations.add(
+					getContext().registerService(Service.class, runIt, props));
+		}
+		final List<List<ServiceReference<Service>>> batches = new ArrayList<>();
+		final List<ServiceReference<Service>> added = new ArrayList<>();
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<>(
+				getContext(), Service.class,
+				new ServiceTrackerBatchCustomizer<Service,Service>() {
+					@Override
+					public List<Service> addingServices(
+							List<ServiceReference<Service>> references) {
+						batches.add(new ArrayList<>(references));
+						List<Service> result = new ArrayList<>();
+						for (ServiceReference<Service> reference : references) {
+							result.add(getContext().getService(reference));
+						}
+						result.set(0, null); // do not track the first service
+						return result;
+					}
+
+					@Override
+					public Service addingService(
+							ServiceReference<Service> reference) {
+						added.add(reference);
+						return getContext().getService(reference);
+					}
+
+					@Override
+					public void modifiedService(
+							ServiceReference<Service> reference,
+							Service service) {
+						// nothing
+					}
+
+					@Override
+					public void removedService(
+							ServiceReference<Service> reference,
+							Service service) {
+						getContext().ungetService(reference);
+					}
+				});
+		try {
+			testTracker.open();
+			assertEquals("wrong number of batches", 1, batches.size());
+			assertEquals("wrong batch size", 5, batches.get(0).size());
+			assertEquals("addingService called", 0, added.size());
+			assertEquals("wrong size", 4, testTracker.size());
+			assertEquals("wrong tracking count", 4,
+					testTracker.getTrackingCount());
+			assertNull("untracked service",
+					testTracker.getService(batches.get(0).get(0)));
+
+			registrations.add(
+					getContext().registerService(Service.class, runIt, props));
+			assertEquals("wrong number of batches", 1, batches.size());
+			assertEquals("addingService not called", 1, added.size());
+			assertEquals("wrong size", 5, testTracker.size());
+		} finally {
+			testTracker.close();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	public void testBatchCustomizerInvalidResult() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			registrations.add(
+					getContext().registerService(Service.class, runIt, props));
+		}
+		final int[] resultSize = new int[1];
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<>(
+				getContext(), Service.class,
+				new ServiceTrackerBatchCustomizer<Service,Service>() {
+					@Override
+					public List<Service> addingServices(
+							List<ServiceReference<Service>> references) {
+						if (resultSize[0] < 0) {
+							return null;
+						}
+						List<Service> result = new ArrayList<>();
+						for (int i = 0; i < resultSize[0]; i++) {
+							result.add(getContext()
+									.getService(references.get(i)));
+						}
+						return result;
+					}
+
+					@Override
+					public Service addingService(
+							ServiceReference<Service> reference) {
+						return getContext().getService(reference);
+					}
+
+					@Override
+					public void modifiedService(
+							ServiceReference<Service> reference,
+							Service service) {
+						// nothing
+					}
+
+					@Override
+					public void removedService(
+							ServiceReference<Service> reference,
+							Service service) {
+						getContext().ungetService(reference);
+					}
+				});
+		try {
+			resultSize[0] = 2;
+			try {
+				testTracker.open();
+				fail("short list accepted");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			assertEquals("wrong size", 2, testTracker.size());
+			testTracker.close();
+
+			resultSize[0] = -1;
+			try {
+				testTracker.open();
+				fail("null list accepted");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			assertEquals("wrong size", 0, testTracker.size());
+		} finally {
+			testTracker.close();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Throwable> void sneakyThrow(Throwable t)
+			throws E {
+		throw (E) t;
+	}
+
+	public void testOpenExecutorCheckedException() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		ServiceRegistration<Service> registration = getContext()
+				.registerService(Service.class, runIt, props);
+		final Exception checked = new Exception("checked");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public Service addingService(ServiceReference<Service> reference) {
+				ServiceTrackerTests.<RuntimeException> sneakyThrow(checked);
+				return null;
+			}
+		};
+		try {
+			testTracker.open(false, executor);
+			fail("checked exception not thrown");
+		} catch (RuntimeException e) {
+			assertSame("wrong cause", checked, e.getCause());
+		} finally {
+			testTracker.close();
+			executor.shutdown();
+			registration.unregister();
+		}
+	}
+
+	public void testOpenExecutor() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			props.put(Constants.SERVICE_RANKING, Integer.valueOf(i % 3));
+			registrations.add(
+					getContext().registerService(Service.class, runIt, props));
+		}
+		final Set<Thread> threads = Collections
+				.synchronizedSet(new HashSet<Thread>());
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public Service addingService(ServiceReference<Service> reference) {
+				threads.add(Thread.currentThread());
+				return super.addingService(reference);
+			}
+		};
+		try {
+			testTracker.open(false, executor);
+			assertEquals("wrong size", 10, testTracker.size());
+			assertEquals("wrong tracking count", 10,
+					testTracker.getTrackingCount());
+			assertFalse("customizer called on opening thread",
+					threads.contains(Thread.currentThread()));
+			ServiceReference<Service> best = null;
+			for (ServiceRegistration<Service> registration : registrations) {
+				if ((best == null)
+						|| (registration.getReference().compareTo(best) > 0)) {
+					best = registration.getReference();
+				}
+			}
+			assertEquals("wrong service reference", best,
+					testTracker.getServiceReference());
+		} finally {
+			testTracker.close();
+			executor.shutdown();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	public void testRankingOrder() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		int[] rankings = {0, 5, -1, 5, 0, 10, -1};
+		List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int ranking : rankings) {
+			props.put(Constants.SERVICE_RANKING, Integer.valueOf(ranking));
+			registrations.add(
+					getContext().registerService(Service.class, runIt, props));
+		}
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null);
+		ServiceTracker<Service,Service> reverseTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public ServiceReference<Service>[] getServiceReferences() {
+				ServiceReference<Service>[] references = super.getServiceReferences();
+				if (references != null) {
+					Collections.reverse(Arrays.asList(references));
+				}
+				return references;
+			}
+		};
+		try {
+			testTracker.open();
+			reverseTracker.open();
+			List<ServiceReference<Service>> expected = new ArrayList<>();
+			for (ServiceRegistration<Service> registration : registrations) {
+				expected.add(registration.getReference());
+			}
+			Collections.sort(expected, Collections.reverseOrder());
+			assertRankingOrder(expected, testTracker);
+			assertEquals("wrong service reference", expected.get(0),
+					reverseTracker.getServiceReference());
+
+			/* remove the highest ranked service */
+			registrations.remove(5).unregister();
+			expected.remove(0);
+			assertRankingOrder(expected, testTracker);
+			assertEquals("wrong service reference", expected.get(0),
+					reverseTracker.getServiceReference());
+
+			/* move the lowest ranked service to the front */
+			ServiceRegistration<Service> last = registrations
+					.get(registrations.size() - 1);
+			props.put(Constants.SERVICE_RANKING, Integer.valueOf(20));
+			last.setProperties(props);
+			expected.remove(last.getReference());
+			expected.add(0, last.getReference());
+			assertRankingOrder(expected, testTracker);
+			assertEquals("wrong service reference", expected.get(0),
+					reverseTracker.getServiceReference());
+		} finally {
+			reverseTracker.close();
+			testTracker.close();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	private static void assertRankingOrder(
+			List<ServiceReference<Service>> expected,
+			ServiceTracker<Service,Service> tracker) {
+		ServiceReference<Service>[] references = tracker
+				.getServiceReferences();
+		assertNotNull("no service references", references);
+		assertEquals("wrong ranking order", expected,
+				Arrays.asList(references));
+		assertEquals("wrong service reference", expected.get(0),
+				tracker.getServiceReference());
+	}
+
+	public void testConcurrentReads() throws Exception {
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		final List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			props.put(Constants.SERVICE_RANKING, Integer.valueOf(i % 2));
+			registrations.add(getContext().registerService(Service.class,
+					new Service(), props));
+		}
+		final ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null);
+		final AtomicBoolean done = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			testTracker.open();
+			List<Future<Integer>> readers = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				readers.add(executor.submit(() -> {
+					int reads = 0;
+					while (!done.get()) {
+						assertConsistent(testTracker, 5, 6);
+						reads++;
+					}
+					return Integer.valueOf(reads);
+				}));
+			}
+			Future< ? > writer = executor.submit(() -> {
+				Hashtable<String, Object> changing = new Hashtable<String, Object>();
+				changing.put(getName(), Boolean.TRUE);
+				try {
+					for (int i = 0; i < 500; i++) {
+						changing.put(Constants.SERVICE_RANKING,
+								Integer.valueOf(i % 3 - 1));
+						getContext()
+								.registerService(Service.class, new Service(),
+										changing)
+								.unregister();
+					}
+				} finally {
+					done.set(true);
+				}
+			});
+			writer.get();
+			for (Future<Integer> reader : readers) {
+				assertTrue("reader did not read", reader.get().intValue() > 0);
+			}
+			assertConsistent(testTracker, 5, 5);
+		} catch (ExecutionException e) {
+			fail("inconsistent read", e.getCause());
+		} finally {
+			done.set(true);
+			executor.shutdown();
+			testTracker.close();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	public void testReadRetry() throws Exception {
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		final List<ServiceRegistration<Service>> registrations = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			registrations.add(getContext().registerService(Service.class,
+					new Service(), props));
+		}
+		final Semaphore requests = new Semaphore(0);
+		final Semaphore changes = new Semaphore(0);
+		final AtomicBoolean churn = new AtomicBoolean();
+		/*
+		 * Each call to getServiceReferences has another thread replace one of
+		 * the returned services before it returns. Once the tracker stops
+		 * retrying and locks out changes, the replacement cannot complete in
+		 * time and the read is consistent.
+		 */
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public ServiceReference<Service>[] getServiceReferences() {
+				ServiceReference<Service>[] references = super.getServiceReferences();
+				if (churn.get()) {
+					requests.release();
+					try {
+						changes.tryAcquire(100, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return references;
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			testTracker.open();
+			Future<Integer> churner = executor.submit(() -> {
+				int replaced = 0;
+				for (;;) {
+					requests.acquire();
+					if (!churn.get()) {
+						return Integer.valueOf(replaced);
+					}
+					registrations.remove(0).unregister();
+					registrations.add(getContext().registerService(
+							Service.class, new Service(), props));
+					replaced++;
+					changes.release();
+				}
+			});
+			churn.set(true);
+			Object[] services = testTracker.getServices();
+			Service[] typed = testTracker.getServices(new Service[0]);
+			churn.set(false);
+			requests.release();
+			assertTrue("services not replaced while reading",
+					churner.get().intValue() > 0);
+			assertNotNull("no services", services);
+			assertEquals("wrong number of services", 5, services.length);
+			assertFalse("removed service returned",
+					Arrays.asList(services).contains(null));
+			assertEquals("wrong number of services", 5, typed.length);
+			assertFalse("removed service returned",
+					Arrays.asList(typed).contains(null));
+			assertConsistent(testTracker, 5, 5);
+		} finally {
+			churn.set(false);
+			requests.release();
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+			testTracker.close();
+			for (ServiceRegistration<Service> registration : registrations) {
+				registration.unregister();
+			}
+		}
+	}
+
+	private static void assertConsistent(
+			ServiceTracker<Service,Service> tracker, int min, int max) {
+		Object[] services = tracker.getServices();
+		assertNotNull("no services", services);
+		assertTrue("wrong number of services: " + services.length,
+				(services.length >= min) && (services.length <= max));
+		assertFalse("removed service returned",
+				Arrays.asList(services).contains(null));
+		Service[] typed = tracker.getServices(new Service[0]);
+		assertTrue("wrong number of services: " + typed.length,
+				(typed.length >= min) && (typed.length <= max));
+		assertFalse("removed service returned",
+				Arrays.asList(typed).contains(null));
+		SortedMap<ServiceReference<Service>,Service> tracked = tracker
+				.getTracked();
+		assertTrue("wrong number of tracked services: " + tracked.size(),
+				(tracked.size() >= min) && (tracked.size() <= max));
+		assertFalse("removed service tracked", tracked.containsValue(null));
+		ServiceReference<Service>[] references = tracker
+				.getServiceReferences();
+		assertNotNull("no service references", references);
+		assertTrue("wrong number of references: " + references.length,
+				(references.length >= min) && (references.length <= max));
+		for (int i = 1; i < references.length; i++) {
+			assertTrue("wrong ranking order",
+					references[i - 1].compareTo(references[i]) > 0);
+		}
+		int size = tracker.size();
+		assertTrue("wrong size: " + size, (size >= min) && (size <= max));
+	}
+
+	public void testCoalesceModified() throws Exception {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		ServiceRegistration<Service> reg1 = getContext()
+				.registerService(Service.class, runIt, props);
+		ServiceRegistration<Service> reg2 = getContext()
+				.registerService(Service.class, runIt, props);
+		final List<Object> modified = Collections
+				.synchronizedList(new ArrayList<Object>());
+		ScheduledExecutorService scheduler = Executors
+				.newSingleThreadScheduledExecutor();
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public void modifiedService(ServiceReference<Service> reference,
+					Service service) {
+				modified.add(reference.getProperty("count"));
+			}
+		};
+		try {
+			testTracker.coalesceModified(1, TimeUnit.HOURS, scheduler);
+			testTracker.open();
+			assertEquals("wrong coalesced count", 0,
+					testTracker.getCoalescedCount());
+			int trackingCount = testTracker.getTrackingCount();
+			for (int i = 1; i <= 3; i++) {
+				props.put("count", Integer.valueOf(i));
+				reg1.setProperties(props);
+			}
+			reg2.setProperties(props);
+			assertEquals("wrong tracking count", trackingCount + 4,
+					testTracker.getTrackingCount());
+			assertEquals("modifications delivered", 0, modified.size());
+			assertEquals("wrong coalesced count", 2,
+					testTracker.getCoalescedCount());
+
+			reg2.unregister();
+			reg2 = null;
+			assertEquals("wrong coalesced count", 3,
+					testTracker.getCoalescedCount());
+
+			testTracker.flushModified();
+			assertEquals("wrong modifications", Collections.singletonList(3),
+					modified);
+
+			testTracker.coalesceModified(0, TimeUnit.MILLISECONDS, null);
+			testTracker.close();
+			testTracker.open();
+			modified.clear();
+			reg1.setProperties(props);
+			reg1.setProperties(props);
+			assertEquals("modifications not delivered", 2, modified.size());
+			assertEquals("wrong coalesced count", 0,
+					testTracker.getCoalescedCount());
+		} finally {
+			testTracker.close();
+			scheduler.shutdownNow();
+			if (reg1 != null)
+				reg1.unregister();
+			if (reg2 != null)
+				reg2.unregister();
+		}
+	}
+
+	public void testCoalesceModifiedOrder() throws Exception {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		ServiceRegistration<Service> reg = getContext()
+				.registerService(Service.class, runIt, props);
+		final List<String> calls = Collections
+				.synchronizedList(new ArrayList<String>());
+		final Semaphore entered = new Semaphore(0);
+		final Semaphore release = new Semaphore(0);
+		ScheduledExecutorService scheduler = Executors
+				.newScheduledThreadPool(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null) {
+			@Override
+			public void modifiedService(ServiceReference<Service> reference,
+					Service service) {
+				calls.add("modified");
+				entered.release();
+				release.acquireUninterruptibly();
+				calls.add("modified done");
+			}
+
+			@Override
+			public void removedService(ServiceReference<Service> reference,
+					Service service) {
+				calls.add("removed");
+				super.removedService(reference, service);
+			}
+		};
+		try {
+			testTracker.coalesceModified(1, TimeUnit.HOURS, scheduler);
+			testTracker.open();
+
+			// a second flush waits for the modifications being delivered
+			props.put("count", Integer.valueOf(1));
+			reg.setProperties(props);
+			Future< ? > flush1 = executor.submit(testTracker::flushModified);
+			assertTrue("modification not delivered",
+					entered.tryAcquire(10, TimeUnit.SECONDS));
+			props.put("count", Integer.valueOf(2));
+			reg.setProperties(props);
+			Future< ? > flush2 = executor.submit(testTracker::flushModified);
+			assertNotDone("concurrent flush did not wait", flush2);
+			assertEquals("wrong calls", Arrays.asList("modified"), calls);
+			release.release();
+			assertTrue("modification not delivered",
+					entered.tryAcquire(10, TimeUnit.SECONDS));
+			release.release();
+			flush1.get(10, TimeUnit.SECONDS);
+			flush2.get(10, TimeUnit.SECONDS);
+			assertEquals("wrong calls", Arrays.asList("modified",
+					"modified done", "modified", "modified done"), calls);
+			calls.clear();
+
+			// an unregistration waits for the modification being delivered
+			props.put("count", Integer.valueOf(3));
+			reg.setProperties(props);
+			Future< ? > flush = executor.submit(testTracker::flushModified);
+			assertTrue("modification not delivered",
+					entered.tryAcquire(10, TimeUnit.SECONDS));
+			final ServiceRegistration<Service> unregistering = reg;
+			reg = null;
+			Future< ? > unregister = executor.submit(unregistering::unregister);
+			assertNotDone("unregistration did not wait", unregister);
+			assertEquals("wrong calls", Arrays.asList("modified"), calls);
+			release.release();
+			unregister.get(10, TimeUnit.SECONDS);
+			flush.get(10, TimeUnit.SECONDS);
+			assertEquals("wrong calls",
+					Arrays.asList("modified", "modified done", "removed"),
+					calls);
+		} finally {
+			release.release(10);
+			testTracker.close();
+			executor.shutdown();
+			scheduler.shutdownNow();
+			if (reg != null)
+				reg.unregister();
+		}
+	}
+
+	private static void assertNotDone(String message, Future< ? > future)
+			throws Exception {
+		try {
+			future.get(100, TimeUnit.MILLISECONDS);
+			fail(message);
+		} catch (TimeoutException e) {
+			// expected
+		}
+	}
+
+	public void testMetrics() {
+		Service runIt = new Service();
+		Hashtable<String, Object> props = new Hashtable<String, Object>();
+		props.put(getName(), Boolean.TRUE);
+		ServiceRegistration<Service> reg1 = getContext()
+				.registerService(Service.class, runIt, props);
+		ServiceRegistration<Service> reg2 = null;
+		final int[] calls = new int[TrackerMetrics.ADDING_BATCH + 1];
+		final int[] initial = new int[] {
+				-1
+		};
+		ServiceTracker<Service,Service> testTracker = new ServiceTracker<Service,Service>(
+				getContext(), Service.class, null);
+		testTracker.setMetrics(new TrackerMetrics() {
+			@Override
+			public synchronized void customizerCalled(int type, long nanos) {
+				assertTrue("negative time", nanos >= 0);
+				calls[type]++;
+			}
+
+			@Override
+			public void initialItems(int count) {
+				initial[0] = count;
+			}
+
+			@Override
+			public void lockWaited(long nanos) {
+				assertTrue("negative time", nanos >= 0);
+			}
+		});
+		try {
+			testTracker.open();
+			assertEquals("wrong initial items", 1, initial[0]);
+			assertEquals("wrong adding calls", 1,
+					calls[TrackerMetrics.ADDING]);
+
+			reg2 = getContext().registerService(Service.class, runIt, props);
+			reg1.setProperties(props);
+			reg1.unregister();
+			reg1 = null;
+			assertEquals("wrong adding calls", 2,
+					calls[TrackerMetrics.ADDING]);
+			assertEquals("wrong modified calls", 1,
+					calls[TrackerMetrics.MODIFIED]);
+			assertEquals("wrong removed calls", 1,
+					calls[TrackerMetrics.REMOVED]);
+		} finally {
+			testTracker.close();
+			if (reg1 != null)
+				reg1.unregister();
+			if (reg2 != null)
+				reg2.unregister();
+		}
+	}
+
 	static class Service implements Runnable {
 		public void run() {
 			// nothing
@@ -24,9 +24,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 
 import org.osgi.util.function.Consumer;
@@ -47,36 +48,30 @@ import org.osgi.util.function.Predicate;
  */
 final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	/**
-	 * A CountDownLatch to manage the resolved state of this Promise.
+	 * The resolved state of this Promise.
 	 * <p>
-	 * This object is used as the synchronizing object to provide a critical
-	 * section in {@link #tryResolve(Object, Throwable)} so that only a single
-	 * thread can write the resolved state variables and open the latch.
-	 * <p>
-	 * The resolved state variables, {@link #value} and {@link #fail}, must only
-	 * be written when the latch is closed (getCount() != 0) and must only be
-	 * read when the latch is open (getCount() == 0). The latch state must
-	 * always be checked before writing or reading since the resolved state
-	 * variables' memory consistency is guarded by the latch.
+	 * While this Promise is unresolved, this field is {@code null} or the top
+	 * {@link Waiter} of a stack of threads waiting for this Promise to be
+	 * resolved. If the factory is instrumented, the bottom of the stack is a
+	 * {@link Created} holding the creation time of this Promise. Once this
+	 * Promise is resolved, this field holds the value of this Promise,
+	 * {@link #NULL} if the value is {@code null}, or a {@link Failed} holding
+	 * the failure of this Promise, and is never written again. This field is
+	 * only changed with compare and set so that only a single thread can
+	 * resolve this Promise, and its memory consistency safely publishes the
+	 * value or failure to the threads reading it.
 	 */
-	private final CountDownLatch	resolved;
+	private volatile Object	state;
 
-	/**
-	 * The value of this Promise if successfully resolved.
-	 * 
-	 * @see resolved
-	 */
-	// @GuardedBy("resolved")
-	private T						value;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<DeferredPromiseImpl, Object>	STATE	= AtomicReferenceFieldUpdater
+			.newUpdater(DeferredPromiseImpl.class, Object.class, "state");
 
 	/**
-	 * The failure of this Promise if resolved with a failure or {@code null} if
-	 * successfully resolved.
-	 * 
-	 * @see resolved
+	 * The state of a Promise successfully resolved with the value
+	 * {@code null}.
 	 */
-	// @GuardedBy("resolved")
-	private Throwable				fail;
+	private static final Object	NULL	= new Object();
 
 	/**
 	 * Initialize this Promise.
@@ -85,7 +80,32 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	DeferredPromiseImpl(PromiseFactory factory) {
 		super(factory);
-		resolved = new CountDownLatch(1);
+		Instrumentation instrumentation = factory.instrumentation();
+		if (instrumentation != null) {
+			state = new Created(instrumentation);
+		}
+	}
+
+	/**
+	 * Return whether the specified state is a resolved state.
+	 */
+	private static boolean isResolved(Object s) {
+		return (s != null) && !(s instanceof Waiter);
+	}
+
+	/**
+	 * Return the value of the specified resolved state.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T valueOf(Object s) {
+		return ((s == NULL) || (s instanceof Failed)) ? null : (T) s;
+	}
+
+	/**
+	 * Return the failure of the specified resolved state.
+	 */
+	private static Throwable failureOf(Object s) {
+		return (s instanceof Failed) ? ((Failed) s).fail : null;
 	}
 
 	/**
@@ -93,7 +113,7 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	@Override
 	public boolean isDone() {
-		return resolved.getCount() == 0;
+		return isResolved(state);
 	}
 
 	/**
@@ -105,14 +125,15 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 *         DeferredPromiseImpl is not resolved.
 	 */
 	PromiseImpl<T> orDone() {
-		// ensure latch open before reading state
-		if (!isDone()) {
+		final Object s = state;
+		if (!isResolved(s)) {
 			return this;
 		}
-		if (fail == null) {
-			return resolved(value);
+		Throwable f = failureOf(s);
+		if (f == null) {
+			return resolved(valueOf(s));
 		}
-		return failed(fail);
+		return failed(f);
 	}
 
 	/**
@@ -120,12 +141,12 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	@Override
 	public T getValue() throws InvocationTargetException, InterruptedException {
-		// ensure latch open before reading state
-		resolved.await();
-		if (fail == null) {
-			return value;
+		final Object s = await();
+		Throwable f = failureOf(s);
+		if (f == null) {
+			return valueOf(s);
 		}
-		throw new InvocationTargetException(fail);
+		throw new InvocationTargetException(f);
 	}
 
 	/**
@@ -133,9 +154,50 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	@Override
 	public Throwable getFailure() throws InterruptedException {
-		// ensure latch open before reading state
-		resolved.await();
-		return fail;
+		return failureOf(await());
+	}
+
+	/**
+	 * Wait for this Promise to be resolved.
+	 * <p>
+	 * Only a thread which finds this Promise unresolved allocates a
+	 * {@link Waiter} and parks until the resolving thread unparks it.
+	 * 
+	 * @return The resolved state of this Promise.
+	 * @throws InterruptedException If the current thread was interrupted
+	 *             while waiting.
+	 */
+	private Object await() throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		Object s = state;
+		if (isResolved(s)) {
+			return s;
+		}
+		// the callbacks pending on this thread may resolve this Promise
+		Trampoline.runPending();
+		s = state;
+		if (isResolved(s)) {
+			return s;
+		}
+		final Waiter waiter = new Waiter(Thread.currentThread());
+		do {
+			waiter.next = (Waiter) s;
+			if (STATE.compareAndSet(this, s, waiter)) {
+				break;
+			}
+			s = state;
+		} while (!isResolved(s));
+		while (!isResolved(s)) {
+			LockSupport.park(this);
+			if (Thread.interrupted()) {
+				waiter.thread = null; // no longer waiting
+				throw new InterruptedException();
+			}
+			s = state;
+		}
+		return s;
 	}
 
 	/**
@@ -143,24 +205,77 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	@Override
 	void result(Result< ? super T> consumer) {
-		// ensure latch open before reading state
-		if (!isDone()) {
+		final Object s = state;
+		if (!isResolved(s)) {
 			consumer.accept(null, new AssertionError("promise not resolved"));
 			return;
 		}
-		consumer.accept(value, fail);
+		consumer.accept(valueOf(s), failureOf(s));
 	}
 
 	@Override
 	public String toString() {
-		// ensure latch open before reading state
-		if (!isDone()) {
+		final Object s = state;
+		if (!isResolved(s)) {
 			return super.toString() + "[unresolved]";
 		}
-		if (fail == null) {
-			return super.toString() + "[resolved: " + value + "]";
+		Throwable f = failureOf(s);
+		if (f == null) {
+			return super.toString() + "[resolved: " + valueOf(s) + "]";
+		}
+		return super.toString() + "[failed: " + f + "]";
+	}
+
+	/**
+	 * The resolved state of a Promise resolved with a failure.
+	 * 
+	 * @Immutable
+	 */
+	private static final class Failed {
+		final Throwable fail;
+
+		Failed(Throwable fail) {
+			this.fail = fail;
+		}
+	}
+
+	/**
+	 * A thread waiting for a Promise to be resolved.
+	 */
+	private static class Waiter {
+		/**
+		 * The waiting thread or {@code null} if the thread is no longer
+		 * waiting.
+		 */
+		volatile Thread	thread;
+		/**
+		 * The next waiter in the stack or {@code null}.
+		 */
+		Waiter			next;
+
+		Waiter(Thread thread) {
+			this.thread = thread;
+		}
+	}
+
+	/**
+	 * The creation time of a Promise of an instrumented factory. This is a
+	 * {@link Waiter} without a thread so the creation time is held in the
+	 * waiter stack without a field in every Promise.
+	 */
+	private static final class Created extends Waiter {
+		private final Instrumentation	instrumentation;
+		private final long				nanos;
+
+		Created(Instrumentation instrumentation) {
+			super(null);
+			this.instrumentation = instrumentation;
+			this.nanos = instrumentation.created();
+		}
+
+		void resolved(boolean failure) {
+			instrumentation.resolved(nanos, failure);
 		}
-		return super.toString() + "[failed: " + fail + "]";
 	}
 
 	/**
@@ -175,22 +290,31 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 *         resolved this Promise.
 	 */
 	boolean tryResolve(T v, Throwable f) {
-		// critical section: only one resolver at a time
-		synchronized (resolved) {
-			if (isDone()) {
+		final Object r = (f != null) ? new Failed(f) : (v != null) ? v : NULL;
+		Object s;
+		do {
+			s = state;
+			if (isResolved(s)) {
 				return false;
 			}
-			/*
-			 * The resolved state variables must be set before opening the
-			 * latch. This safely publishes them to be read by other threads
-			 * that must verify the latch is open before reading.
-			 */
-			if (f == null) {
-				value = v;
-			} else {
-				fail = f;
+		} while (!STATE.compareAndSet(this, s, r));
+		Waiter waiter = (Waiter) s;
+		if (waiter != null) {
+			// record the resolution before any waiting thread is woken up
+			Waiter bottom = waiter;
+			while (bottom.next != null) {
+				bottom = bottom.next;
+			}
+			if (bottom instanceof Created) {
+				((Created) bottom).resolved(f != null);
+			}
+		}
+		// wake up any threads waiting for this Promise to be resolved
+		for (; waiter != null; waiter = waiter.next) {
+			Thread thread = waiter.thread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
 			}
-			resolved.countDown();
 		}
 		notifyCallbacks(); // call any registered callbacks
 		return true;
@@ -699,7 +823,7 @@ final class DeferredPromiseImpl<T> extends PromiseImpl<T> {
 	 */
 	final class Timeout implements Runnable, InlineCallback, Result<T> {
 		private final PromiseImpl<T>		promise;
-		private final ScheduledFuture< ? > future;
+		private final Future< ? >		future;
 
 		Timeout(PromiseImpl<T> promise, long millis) {
 			this.promise = requireNonNull(promise);
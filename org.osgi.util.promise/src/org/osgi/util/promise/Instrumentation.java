@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.util.promise;
+
+import static org.osgi.util.promise.PromiseMetrics.BUCKETS;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and histograms of a {@link PromiseFactory} created with the
+ * {@link PromiseFactory.Option#INSTRUMENTATION} option.
+ *
+ * @ThreadSafe
+ * @author $Id$
+ */
+final class Instrumentation {
+	private final LongAdder			created			= new LongAdder();
+	private final LongAdder			resolved		= new LongAdder();
+	private final LongAdder			failed			= new LongAdder();
+	private final AtomicLongArray	resolveTimes	= new AtomicLongArray(
+			BUCKETS);
+	private final AtomicLongArray	callbackDelays	= new AtomicLongArray(
+			BUCKETS);
+
+	Instrumentation() {
+		// empty
+	}
+
+	/**
+	 * Record the creation of an unresolved Promise.
+	 *
+	 * @return The creation time to pass to {@link #resolved(long, boolean)}.
+	 */
+	long created() {
+		created.increment();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the resolution of a Promise.
+	 *
+	 * @param createdNanos The creation time of the Promise.
+	 * @param failure {@code true} if the Promise was resolved with a failure.
+	 */
+	void resolved(long createdNanos, boolean failure) {
+		(failure ? failed : resolved).increment();
+		resolveTimes.incrementAndGet(
+				PromiseMetrics.bucket(System.nanoTime() - createdNanos));
+	}
+
+	/**
+	 * Wrap a callback to record its queue delay when it is run.
+	 *
+	 * @param callback The callback to be queued.
+	 * @return The wrapped callback.
+	 */
+	Runnable queued(Runnable callback) {
+		final long queuedNanos = System.nanoTime();
+		return () -> {
+			callbackDelays.incrementAndGet(
+					PromiseMetrics.bucket(System.nanoTime() - queuedNanos));
+			callback.run();
+		};
+	}
+
+	PromiseMetrics snapshot() {
+		return new PromiseMetrics(created.sum(), resolved.sum(), failed.sum(),
+				toArray(resolveTimes), toArray(callbackDelays));
+	}
+
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+}
@@ -23,6 +23,7 @@ import static org.osgi.util.promise.PromiseImpl.uncaughtException;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -32,6 +33,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
@@ -45,6 +47,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collector;
 
 import org.osgi.annotation.versioning.ConsumerType;
+import org.osgi.util.function.Function;
 import org.osgi.util.promise.PromiseImpl.InlineCallback;
 
 /**
@@ -77,7 +80,78 @@ public class PromiseFactory {
 		 * callbacks added to a resolved Promise may be immediately called on
 		 * the caller's thread to avoid a thread context switch.
 		 */
-		CALLBACKS_EXECUTOR_THREAD
+		CALLBACKS_EXECUTOR_THREAD,
+		/**
+		 * Run each callback on a new virtual thread when the default callback
+		 * executor would be used.
+		 * <p>
+		 * The default callback executor has a bounded number of threads, so
+		 * callbacks which block, for example by calling
+		 * {@link Promise#getValue()} on another Promise, can exhaust its
+		 * threads and delay all callbacks using the default callback executor.
+		 * A virtual thread does not hold a platform thread while blocked, so
+		 * blocking callbacks do not delay other callbacks.
+		 * <p>
+		 * If the Java runtime does not support virtual threads, the default
+		 * callback executor is used. This option is ignored if a callback
+		 * executor is specified when the PromiseFactory is created.
+		 * 
+		 * @since 1.4
+		 */
+		VIRTUAL_THREAD_CALLBACKS,
+		/**
+		 * Use a hashed timer wheel instead of the default scheduled executor
+		 * for {@link Promise#timeout(long)} and {@link Promise#delay(long)}.
+		 * <p>
+		 * Scheduling and cancelling a timeout take constant time with the
+		 * timer wheel and a cancelled timeout is released immediately, which
+		 * suits a large number of outstanding timeouts. Timeouts and delays
+		 * run no earlier than requested but may run up to one tick of the
+		 * timer wheel later. The tick is 10 milliseconds unless set by the
+		 * {@code org.osgi.util.promise.timerWheelTickMillis} system property.
+		 * This option is ignored if a scheduled executor
+		 * is specified when the PromiseFactory is created. The
+		 * {@link PromiseFactory#scheduledExecutor()} method still returns the
+		 * default scheduled executor.
+		 * 
+		 * @since 1.4
+		 */
+		TIMER_WHEEL,
+		/**
+		 * Collect metrics for the Promises of the PromiseFactory.
+		 * <p>
+		 * The PromiseFactory counts the Promises it creates unresolved and
+		 * their resolutions, and records how long Promises take to be resolved
+		 * and how long callbacks wait for the callback executor. The metrics
+		 * are available from {@link PromiseFactory#metrics()}. Without this
+		 * option, no metrics are collected.
+		 * 
+		 * @since 1.4
+		 */
+		INSTRUMENTATION,
+		/**
+		 * Run the callbacks of Promises resolved by a callback on the thread
+		 * of that callback once it returns.
+		 * <p>
+		 * When a callback running on a callback executor thread resolves a
+		 * Promise, the callbacks of that Promise are queued on the current
+		 * thread instead of being handed to the callback executor, and are run
+		 * iteratively once the running callback returns. A long chain of
+		 * Promises is then resolved without a thread hop for each Promise and
+		 * without the stack growing with the length of the chain. The queued
+		 * callbacks are run before a callback blocks in
+		 * {@link Promise#getValue()} or {@link Promise#getFailure()}.
+		 * <p>
+		 * Callbacks must not block waiting for other callbacks in any other
+		 * way, for example on a latch or a future, since the callbacks they
+		 * wait for may be queued on the blocked thread. After 1024 callbacks
+		 * or 1 millisecond, further callbacks are handed to the callback
+		 * executor. These limits can be changed with
+		 * {@link PromiseFactory#withTrampolineLimits(int, long, TimeUnit)}.
+		 * 
+		 * @since 1.4
+		 */
+		TRAMPOLINE_CALLBACKS
 	}
 
 	/**
@@ -100,6 +174,30 @@ public class PromiseFactory {
 
 	private final boolean					allowCurrentThread;
 
+	/**
+	 * The timer wheel to use for scheduled operations or {@code null} if the
+	 * scheduled executor is used.
+	 */
+	private final TimerWheel				timerWheel;
+
+	/**
+	 * The metrics of this factory or {@code null} if this factory is not
+	 * instrumented.
+	 */
+	private final Instrumentation			instrumentation;
+
+	/**
+	 * The maximum number of callbacks run by the trampoline of a thread or
+	 * {@code 0} if callbacks are not trampolined.
+	 */
+	private final int						trampolineLimit;
+
+	/**
+	 * The maximum time in nanoseconds for which the trampoline of a thread runs
+	 * callbacks.
+	 */
+	private final long						trampolineNanos;
+
 	/**
 	 * Create a new PromiseFactory with the specified callback executor.
 	 * <p>
@@ -153,18 +251,84 @@ public class PromiseFactory {
 	 */
 	public PromiseFactory(Executor callbackExecutor,
 			ScheduledExecutorService scheduledExecutor, Option... options) {
-		this.callbackExecutor = callbackExecutor;
 		this.scheduledExecutor = scheduledExecutor;
 		boolean callbacksExecutorOnly = false;
+		boolean virtualThreads = false;
+		boolean timerWheel = false;
+		boolean instrumentation = false;
+		boolean trampoline = false;
 		for (Option option : options) {
 			if (option == Option.CALLBACKS_EXECUTOR_THREAD) {
 				callbacksExecutorOnly = true;
 				continue;
 			}
+			if (option == Option.VIRTUAL_THREAD_CALLBACKS) {
+				virtualThreads = true;
+				continue;
+			}
+			if (option == Option.TIMER_WHEEL) {
+				timerWheel = true;
+				continue;
+			}
+			if (option == Option.INSTRUMENTATION) {
+				instrumentation = true;
+				continue;
+			}
+			if (option == Option.TRAMPOLINE_CALLBACKS) {
+				trampoline = true;
+				continue;
+			}
 			requireNonNull(option);
 			throw new AssertionError("unrecognized option: " + option);
 		}
+		this.callbackExecutor = ((callbackExecutor == null) && virtualThreads)
+				? VirtualThreadExecutor.callbackExecutor()
+				: callbackExecutor;
 		this.allowCurrentThread = !callbacksExecutorOnly;
+		this.timerWheel = ((scheduledExecutor == null) && timerWheel)
+				? TimerWheel.timerWheel()
+				: null;
+		this.instrumentation = instrumentation ? new Instrumentation() : null;
+		this.trampolineLimit = trampoline ? PromiseImpl.Trampoline.LIMIT : 0;
+		this.trampolineNanos = PromiseImpl.Trampoline.NANOS;
+	}
+
+	private PromiseFactory(PromiseFactory factory, int trampolineLimit,
+			long trampolineNanos) {
+		this.callbackExecutor = factory.callbackExecutor;
+		this.scheduledExecutor = factory.scheduledExecutor;
+		this.allowCurrentThread = factory.allowCurrentThread;
+		this.timerWheel = factory.timerWheel;
+		this.instrumentation = factory.instrumentation;
+		this.trampolineLimit = trampolineLimit;
+		this.trampolineNanos = trampolineNanos;
+	}
+
+	/**
+	 * Returns a PromiseFactory with the executors, options and metrics of this
+	 * PromiseFactory which runs callbacks as if it was created with the
+	 * {@link Option#TRAMPOLINE_CALLBACKS} option, with the specified limits.
+	 * 
+	 * @param maxCallbacks The maximum number of callbacks run on the thread of
+	 *            a callback before further callbacks are handed to the
+	 *            callback executor. If zero or less, callbacks are not run on
+	 *            the thread of a callback.
+	 * @param maxTime The maximum time for which callbacks are run on the
+	 *            thread of a callback before further callbacks are handed to
+	 *            the callback executor.
+	 * @param unit The time unit of {@code maxTime}.
+	 * @return A PromiseFactory with the specified limits.
+	 * @throws IllegalArgumentException If {@code maxTime} is negative.
+	 * @since 1.4
+	 */
+	public PromiseFactory withTrampolineLimits(int maxCallbacks, long maxTime,
+			TimeUnit unit) {
+		if (maxTime < 0L) {
+			throw new IllegalArgumentException(
+					"maxTime must not be negative: " + maxTime);
+		}
+		return new PromiseFactory(this, Math.max(0, maxCallbacks),
+				unit.toNanos(maxTime));
 	}
 
 	/**
@@ -195,6 +359,59 @@ public class PromiseFactory {
 		return scheduledExecutor;
 	}
 
+	/**
+	 * Returns the timer wheel to use for scheduled operations.
+	 * 
+	 * @return The timer wheel to use for scheduled operations or {@code null}
+	 *         if the scheduled executor is to be used.
+	 */
+	TimerWheel timerWheel() {
+		return timerWheel;
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of the Promises of this PromiseFactory.
+	 * 
+	 * @return A snapshot of the metrics or {@code null} if this PromiseFactory
+	 *         was not created with the {@link Option#INSTRUMENTATION} option.
+	 * @since 1.4
+	 */
+	public PromiseMetrics metrics() {
+		Instrumentation i = instrumentation;
+		return (i == null) ? null : i.snapshot();
+	}
+
+	/**
+	 * Returns the metrics of this PromiseFactory.
+	 * 
+	 * @return The metrics or {@code null} if this PromiseFactory is not
+	 *         instrumented.
+	 */
+	Instrumentation instrumentation() {
+		return instrumentation;
+	}
+
+	/**
+	 * Returns the maximum number of callbacks run by the trampoline of a
+	 * thread.
+	 * 
+	 * @return The maximum number of callbacks or {@code 0} if callbacks are
+	 *         not trampolined.
+	 */
+	int trampolineLimit() {
+		return trampolineLimit;
+	}
+
+	/**
+	 * Returns the maximum time for which the trampoline of a thread runs
+	 * callbacks.
+	 * 
+	 * @return The maximum time in nanoseconds.
+	 */
+	long trampolineNanos() {
+		return trampolineNanos;
+	}
+
 	/**
 	 * Create a new Deferred with the callback executor and scheduled executor
 	 * of this PromiseFactory object.
@@ -339,9 +556,19 @@ public class PromiseFactory {
 			if (promiseCount.decrementAndGet() != 0) {
 				return;
 			}
+			resolve(chained, promises);
+		}
+
+		/**
+		 * Resolve the chained Promise with the values of the specified
+		 * resolved Promises or with a {@link FailedPromisesException} if any
+		 * of them failed.
+		 */
+		static <T> void resolve(DeferredPromiseImpl<List<T>> chained,
+				List< ? extends Promise< ? extends T>> promises) {
 			List<T> value = new ArrayList<>(promises.size());
 			List<Promise< ? >> failed = new ArrayList<>(promises.size());
-			for (Promise<S> p : promises) {
+			for (Promise< ? extends T> p : promises) {
 				PromiseImpl.result(p, (v, f) -> {
 					if (f != null) {
 						failed.add(p);
@@ -353,14 +580,208 @@ public class PromiseFactory {
 			if (failed.isEmpty()) {
 				chained.tryResolve(value, null);
 			} else {
-				Throwable cause;
+				chained.tryResolve(null, failure(failed));
+			}
+		}
+
+		static FailedPromisesException failure(List<Promise< ? >> failed) {
+			Throwable cause;
+			try {
+				cause = failed.get(0).getFailure();
+			} catch (Throwable e) {
+				cause = e;
+			}
+			return new FailedPromisesException(failed, cause);
+		}
+	}
+
+	/**
+	 * Returns a new Promise that is resolved with the values of the Promises
+	 * returned by the specified function for each of the specified items,
+	 * where at most the specified number of these Promises are unresolved at
+	 * any time.
+	 * <p>
+	 * The returned Promise uses the callback executor and scheduled executor of
+	 * this PromiseFactory object.
+	 * <p>
+	 * This method is the same as calling
+	 * {@link #traverse(Iterable, Function, int, boolean) traverse(items,
+	 * mapper, maxConcurrency, false)}.
+	 * 
+	 * @param <S> The type of the items.
+	 * @param <R> The value type of the List value associated with the returned
+	 *            Promise.
+	 * @param items The items. Must not be {@code null}.
+	 * @param mapper The function which returns a Promise for an item. Must not
+	 *            be {@code null}.
+	 * @param maxConcurrency The maximum number of unresolved Promises returned
+	 *            by the function. Must be greater than zero.
+	 * @return A Promise that is resolved with a List of the values in the
+	 *         order of the items if all the Promises returned by the function
+	 *         are successfully resolved.
+	 * @since 1.4
+	 */
+	public <S, R> Promise<List<R>> traverse(Iterable<S> items,
+			Function< ? super S, ? extends Promise< ? extends R>> mapper,
+			int maxConcurrency) {
+		return traverse(items, mapper, maxConcurrency, false);
+	}
+
+	/**
+	 * Returns a new Promise that is resolved with the values of the Promises
+	 * returned by the specified function for each of the specified items,
+	 * where at most the specified number of these Promises are unresolved at
+	 * any time.
+	 * <p>
+	 * The returned Promise uses the callback executor and scheduled executor of
+	 * this PromiseFactory object.
+	 * <p>
+	 * The items are iterated lazily. The function is called for the first
+	 * items on the calling thread and is then called for the next item on the
+	 * {@link #executor() callback executor} each time a Promise returned by the
+	 * function is resolved, so that no more than the specified number of
+	 * Promises returned by the function are unresolved. If the function throws
+	 * an exception or returns {@code null}, the item is treated as a failed
+	 * Promise.
+	 * 
+	 * @param <S> The type of the items.
+	 * @param <R> The value type of the List value associated with the returned
+	 *            Promise.
+	 * @param items The items. Must not be {@code null}.
+	 * @param mapper The function which returns a Promise for an item. Must not
+	 *            be {@code null}.
+	 * @param maxConcurrency The maximum number of unresolved Promises returned
+	 *            by the function. Must be greater than zero.
+	 * @param failFast If {@code true}, the returned Promise is resolved with a
+	 *            failure as soon as a Promise returned by the function fails
+	 *            and the function is not called for the remaining items. If
+	 *            {@code false}, the function is called for all items and the
+	 *            returned Promise is resolved once all the Promises returned by
+	 *            the function are resolved.
+	 * @return A Promise that must be successfully resolved with a List of the
+	 *         values in the order of the items if all the Promises returned by
+	 *         the function are successfully resolved. The List in the returned
+	 *         Promise is the property of the caller and is modifiable. The
+	 *         returned Promise must be resolved with a failure of
+	 *         {@link FailedPromisesException} if any of the Promises returned
+	 *         by the function are resolved with a failure. The failure
+	 *         {@link FailedPromisesException} must contain the Promises which
+	 *         resolved with a failure, which is only the first such Promise if
+	 *         {@code failFast} is {@code true}.
+	 * @throws IllegalArgumentException If {@code maxConcurrency} is not
+	 *             greater than zero.
+	 * @since 1.4
+	 */
+	public <S, R> Promise<List<R>> traverse(Iterable<S> items,
+			Function< ? super S, ? extends Promise< ? extends R>> mapper,
+			int maxConcurrency, boolean failFast) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException(
+					"maxConcurrency must be greater than zero: "
+							+ maxConcurrency);
+		}
+		DeferredPromiseImpl<List<R>> chained = new DeferredPromiseImpl<>(this);
+		new Traverse<S,R>(chained, items.iterator(), requireNonNull(mapper),
+				maxConcurrency, failFast).drain();
+		return chained.orDone();
+	}
+
+	/**
+	 * Calls the function of the {@link PromiseFactory#traverse(Iterable,
+	 * Function, int, boolean)} method for the items and resolves the specified
+	 * Promise when the Promises returned by the function are resolved.
+	 * <p>
+	 * Only one thread at a time drains, that is iterates the items and calls
+	 * the function. A thread which finds another thread draining records the
+	 * request in {@code wip} and the draining thread drains again before it
+	 * returns.
+	 * 
+	 * @ThreadSafe
+	 */
+	private final class Traverse<S, R> {
+		private final DeferredPromiseImpl<List<R>>	chained;
+		private final Function< ? super S, ? extends Promise< ? extends R>>	mapper;
+		private final int													maxConcurrency;
+		private final boolean												failFast;
+		private final AtomicInteger											wip;
+		private final AtomicInteger											running;
+		/**
+		 * @GuardedBy the draining thread
+		 */
+		private final Iterator<S>											items;
+		/**
+		 * @GuardedBy the draining thread
+		 */
+		private final List<Promise< ? extends R>>							promises;
+
+		Traverse(DeferredPromiseImpl<List<R>> chained, Iterator<S> items,
+				Function< ? super S, ? extends Promise< ? extends R>> mapper,
+				int maxConcurrency, boolean failFast) {
+			this.chained = chained;
+			this.items = items;
+			this.mapper = mapper;
+			this.maxConcurrency = maxConcurrency;
+			this.failFast = failFast;
+			this.wip = new AtomicInteger();
+			this.running = new AtomicInteger();
+			this.promises = new ArrayList<>();
+		}
+
+		/**
+		 * Called when a Promise returned by the function is resolved.
+		 */
+		private void resolved(Promise< ? extends R> p) {
+			if (failFast) {
+				Throwable f;
 				try {
-					cause = failed.get(0).getFailure();
-				} catch (Throwable e) {
-					cause = e;
+					f = p.getFailure();
+				} catch (Throwable t) {
+					f = t;
+				}
+				if (f != null) {
+					List<Promise< ? >> failed = new ArrayList<>(1);
+					failed.add(p);
+					chained.tryResolve(null, All.failure(failed));
 				}
-				chained.tryResolve(null,
-						new FailedPromisesException(failed, cause));
+			}
+			running.decrementAndGet();
+			drain();
+		}
+
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				try {
+					drainItems();
+				} catch (Throwable t) {
+					chained.tryResolve(null, t); // iterator failed
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drainItems() {
+			if (chained.isDone()) {
+				return; // failed fast
+			}
+			while ((running.get() < maxConcurrency) && items.hasNext()) {
+				Promise< ? extends R> p;
+				try {
+					p = requireNonNull(mapper.apply(items.next()),
+							"mapper returned null");
+				} catch (Throwable t) {
+					p = failed(t);
+				}
+				final Promise< ? extends R> promise = p;
+				promises.add(promise);
+				running.incrementAndGet();
+				promise.onResolve(() -> resolved(promise));
+			}
+			if ((running.get() == 0) && !items.hasNext()) {
+				All.resolve(chained, promises);
 			}
 		}
 	}
@@ -396,6 +817,62 @@ public class PromiseFactory {
 		}
 	}
 
+	/**
+	 * Callback executor which runs each callback on a new virtual thread.
+	 * <p>
+	 * Virtual threads are created through reflection since they are not
+	 * available on all supported Java runtimes.
+	 * 
+	 * @Immutable
+	 */
+	private static final class VirtualThreadExecutor implements Executor {
+		private static final Executor callbackExecutor;
+		static {
+			ThreadFactory threadFactory;
+			try {
+				Class< ? > builderClass = Class
+						.forName("java.lang.Thread$Builder");
+				Object builder = Thread.class.getMethod("ofVirtual")
+						.invoke(null);
+				builder = builderClass
+						.getMethod("name", String.class, long.class)
+						.invoke(builder, "PromiseFactory,virtual-", 1L);
+				threadFactory = (ThreadFactory) builderClass
+						.getMethod("factory")
+						.invoke(builder);
+			} catch (Exception | LinkageError e) {
+				threadFactory = null; // virtual threads not supported
+			}
+			callbackExecutor = (threadFactory == null) ? null
+					: new VirtualThreadExecutor(threadFactory);
+		}
+
+		/**
+		 * Returns the virtual thread callback executor.
+		 * 
+		 * @return The virtual thread callback executor or {@code null} if the
+		 *         Java runtime does not support virtual threads.
+		 */
+		static Executor callbackExecutor() {
+			return callbackExecutor;
+		}
+
+		private final ThreadFactory threadFactory;
+
+		private VirtualThreadExecutor(ThreadFactory threadFactory) {
+			this.threadFactory = threadFactory;
+		}
+
+		@Override
+		public void execute(Runnable callback) {
+			Thread t = threadFactory.newThread(callback);
+			if (t == null) {
+				throw new RejectedExecutionException();
+			}
+			t.start();
+		}
+	}
+
 	/**
 	 * Default executors for Promises.
 	 * 
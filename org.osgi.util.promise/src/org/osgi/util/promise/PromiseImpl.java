@@ -20,12 +20,14 @@ package org.osgi.util.promise;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayDeque;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.osgi.util.function.Consumer;
 import org.osgi.util.function.Function;
@@ -47,11 +49,20 @@ abstract class PromiseImpl<T> implements Promise<T> {
 	 */
 	private final PromiseFactory					factory;
 	/**
-	 * A ConcurrentLinkedQueue to hold the callbacks for this Promise, so no
-	 * additional synchronization is required to write to or read from the
-	 * queue.
+	 * The callbacks for this Promise which have not yet been executed.
+	 * <p>
+	 * This field is {@code null} if there are no callbacks, a
+	 * {@link Runnable} if there is a single callback, or the top
+	 * {@link CallbackNode} of a stack of callbacks. Callbacks are pushed and
+	 * the whole stack is taken with atomic operations, so no additional
+	 * synchronization is required and no storage is allocated for a Promise
+	 * which never has more than one callback.
 	 */
-	private final ConcurrentLinkedQueue<Runnable>	callbacks;
+	private volatile Object							callbacks;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<PromiseImpl, Object>	CALLBACKS	= AtomicReferenceFieldUpdater
+			.newUpdater(PromiseImpl.class, Object.class, "callbacks");
 
 	/**
 	 * Initialize this Promise.
@@ -61,7 +72,6 @@ abstract class PromiseImpl<T> implements Promise<T> {
 	 */
 	PromiseImpl(PromiseFactory factory) {
 		this.factory = requireNonNull(factory);
-		callbacks = new ConcurrentLinkedQueue<>();
 	}
 
 	/**
@@ -128,7 +138,14 @@ abstract class PromiseImpl<T> implements Promise<T> {
 				uncaughtException(t);
 			}
 		} else {
-			callbacks.offer(callback);
+			for (Object top;;) {
+				top = callbacks;
+				Object pushed = (top == null) ? callback
+						: new CallbackNode(callback, top);
+				if (CALLBACKS.compareAndSet(this, top, pushed)) {
+					break;
+				}
+			}
 			notifyCallbacks(); // call any registered callbacks
 		}
 		return this;
@@ -142,12 +159,53 @@ abstract class PromiseImpl<T> implements Promise<T> {
 			return; // return if not resolved
 		}
 		/*
-		 * Note: multiple threads can be in this method removing callbacks from
-		 * the queue and executing them, so the order in which callbacks are
+		 * Note: multiple threads can be in this method taking callbacks from
+		 * the stack and executing them, so the order in which callbacks are
 		 * executed cannot be specified.
 		 */
-		for (Runnable callback; (callback = callbacks.poll()) != null;) {
-			execute(callback);
+		Object top = CALLBACKS.getAndSet(this, null);
+		if (top == null) {
+			return;
+		}
+		if (!(top instanceof CallbackNode)) {
+			execute((Runnable) top);
+			return;
+		}
+		/*
+		 * The taken stack is no longer shared, so reverse it in place to
+		 * execute the callbacks in the order they were registered.
+		 */
+		Object reversed = null;
+		for (Object next = top; next instanceof CallbackNode;) {
+			CallbackNode node = (CallbackNode) next;
+			next = node.next;
+			node.next = reversed;
+			reversed = node;
+			if (!(next instanceof CallbackNode)) {
+				execute((Runnable) next); // bottom of the stack
+			}
+		}
+		for (Object next = reversed; next != null;) {
+			CallbackNode node = (CallbackNode) next;
+			execute(node.callback);
+			next = node.next;
+		}
+	}
+
+	/**
+	 * A node of the stack of callbacks below the top callback.
+	 */
+	private static final class CallbackNode {
+		final Runnable	callback;
+		/**
+		 * The next node below this node or the bottom {@link Runnable} of the
+		 * stack.
+		 */
+		Object			next;
+
+		CallbackNode(Runnable callback, Object next) {
+			this.callback = callback;
+			this.next = next;
 		}
 	}
 
@@ -158,8 +216,21 @@ abstract class PromiseImpl<T> implements Promise<T> {
 	 */
 	void execute(Runnable operation) {
 		try {
+			Instrumentation instrumentation = factory.instrumentation();
+			if (instrumentation != null) {
+				operation = instrumentation.queued(operation);
+			}
+			Executor executor = factory.executor();
+			final int limit = factory.trampolineLimit();
+			if (limit > 0) {
+				if (Trampoline.offer(executor, operation)) {
+					return; // run later on the current executor thread
+				}
+				operation = new Trampoline(executor, operation, limit,
+						factory.trampolineNanos());
+			}
 			try {
-				factory.executor().execute(operation);
+				executor.execute(operation);
 			} catch (RejectedExecutionException e) {
 				operation.run();
 			}
@@ -168,14 +239,161 @@ abstract class PromiseImpl<T> implements Promise<T> {
 		}
 	}
 
+	/**
+	 * Runs an operation on an executor thread and then runs iteratively the
+	 * operations offered to the trampoline of the thread while the operation
+	 * runs.
+	 * <p>
+	 * When a callback running on an executor thread resolves a promise, the
+	 * callbacks of that promise are offered to the trampoline of the thread
+	 * instead of being handed to the executor. They are run on the same thread
+	 * once the running callback returns, so a long chain of promises is
+	 * resolved without a thread hop for each promise and without the stack
+	 * growing with the length of the chain. Once the trampoline of a thread has
+	 * run the maximum number of operations or run for the maximum time of the
+	 * factory which started it, further operations are handed to the executor
+	 * so a thread is not monopolized by a single chain.
+	 * <p>
+	 * Only operations for the executor of the running operation are offered to
+	 * the trampoline of a thread, so callbacks are always run by their
+	 * executor. Trampolining is only used by factories created with the
+	 * {@link PromiseFactory.Option#TRAMPOLINE_CALLBACKS} option.
+	 */
+	static final class Trampoline implements Runnable {
+		/**
+		 * The default maximum number of operations run by the trampoline of a
+		 * thread before further operations are handed to the executor.
+		 */
+		static final int								LIMIT	= 1024;
+		/**
+		 * The default maximum time in nanoseconds for which the trampoline of
+		 * a thread runs operations before further operations are handed to
+		 * the executor.
+		 */
+		static final long								NANOS	= TimeUnit.MILLISECONDS
+				.toNanos(1L);
+
+		private static final ThreadLocal<Trampoline>	active	= new ThreadLocal<>();
+
+		private final Executor							executor;
+		private final Runnable							operation;
+		private final int								limit;
+		private final long								nanos;
+		private int										count;
+		private long									start;
+		private ArrayDeque<Runnable>					pending;
+
+		Trampoline(Executor executor, Runnable operation, int limit,
+				long nanos) {
+			this.executor = executor;
+			this.operation = operation;
+			this.limit = limit;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public void run() {
+			final Trampoline outer = active.get();
+			if ((outer != null) && (outer.executor == executor)) {
+				// executor ran the operation on the thread of the trampoline
+				outer.add(operation);
+				return;
+			}
+			active.set(this);
+			try {
+				runSafely(operation);
+				drain();
+			} finally {
+				active.set(outer);
+			}
+		}
+
+		/**
+		 * Offer an operation to the trampoline of the current thread.
+		 * 
+		 * @param executor The executor of the operation.
+		 * @param operation The operation.
+		 * @return {@code true} if the operation will be run by the trampoline
+		 *         of the current thread; {@code false} if the operation must
+		 *         be handed to the executor.
+		 */
+		static boolean offer(Executor executor, Runnable operation) {
+			final Trampoline trampoline = active.get();
+			if ((trampoline == null) || (trampoline.executor != executor)
+					|| trampoline.exhausted()) {
+				return false;
+			}
+			trampoline.add(operation);
+			return true;
+		}
+
+		/**
+		 * Run the operations offered to the trampoline of the current thread
+		 * which have not yet been run.
+		 * <p>
+		 * This must be called before the current thread blocks, since the
+		 * operations may be needed to unblock the thread.
+		 */
+		static void runPending() {
+			final Trampoline trampoline = active.get();
+			if (trampoline != null) {
+				trampoline.drain();
+			}
+		}
+
+		/**
+		 * Return whether this trampoline has exceeded its budget. The time is
+		 * measured from the first offered operation and checked once every 16
+		 * operations to limit the overhead.
+		 */
+		private boolean exhausted() {
+			final int c = ++count;
+			if (c == 1) {
+				start = System.nanoTime();
+				return false;
+			}
+			return (c > limit) || (((c & 0xF) == 0)
+					&& ((System.nanoTime() - start) > nanos));
+		}
+
+		private void add(Runnable op) {
+			ArrayDeque<Runnable> p = pending;
+			if (p == null) {
+				pending = p = new ArrayDeque<>();
+			}
+			p.addLast(op);
+		}
+
+		private void drain() {
+			final ArrayDeque<Runnable> p = pending;
+			if (p == null) {
+				return;
+			}
+			for (Runnable op; (op = p.pollFirst()) != null;) {
+				runSafely(op);
+			}
+		}
+
+		private static void runSafely(Runnable op) {
+			try {
+				op.run();
+			} catch (Throwable t) {
+				uncaughtException(t);
+			}
+		}
+	}
+
 	/**
 	 * Schedule a operation on the scheduled executor.
 	 * 
 	 * @since 1.1
 	 */
-	ScheduledFuture< ? > schedule(Runnable operation, long delay,
-			TimeUnit unit) {
+	Future< ? > schedule(Runnable operation, long delay, TimeUnit unit) {
 		try {
+			TimerWheel timerWheel = factory.timerWheel();
+			if (timerWheel != null) {
+				return timerWheel.schedule(operation, delay, unit);
+			}
 			try {
 				return factory.scheduledExecutor().schedule(operation, delay,
 						unit);
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.util.promise;
+
+/**
+ * A snapshot of the metrics of the Promises of a {@link PromiseFactory}
+ * created with the {@link PromiseFactory.Option#INSTRUMENTATION} option.
+ * <p>
+ * The metrics cover the Promises created unresolved by the factory, such as
+ * the Promises of {@link Deferred} objects and the Promises returned by
+ * {@link Promise#then(Success, Failure)} and similar methods, and the callbacks
+ * run on the callback executor of the factory.
+ * <p>
+ * Durations are held in histograms with {@link #BUCKETS} buckets. The bucket
+ * at index {@code 0} counts durations of {@code 0} nanoseconds and the bucket
+ * at index {@code i > 0} counts durations of at least
+ * <code>2<sup>i-1</sup></code> and less than <code>2<sup>i</sup></code>
+ * nanoseconds. The counters are read individually, so a snapshot taken while
+ * Promises are resolved may be slightly inconsistent.
+ *
+ * @Immutable
+ * @since 1.4
+ * @author $Id$
+ */
+public final class PromiseMetrics {
+	/**
+	 * The number of buckets of the histograms.
+	 */
+	public static final int	BUCKETS	= 64;
+
+	private final long		created;
+	private final long		resolved;
+	private final long		failed;
+	private final long[]	resolveTimes;
+	private final long[]	callbackDelays;
+
+	PromiseMetrics(long created, long resolved, long failed,
+			long[] resolveTimes, long[] callbackDelays) {
+		this.created = created;
+		this.resolved = resolved;
+		this.failed = failed;
+		this.resolveTimes = resolveTimes;
+		this.callbackDelays = callbackDelays;
+	}
+
+	/**
+	 * Returns the index of the histogram bucket for a duration.
+	 *
+	 * @param nanos The duration in nanoseconds.
+	 * @return The index of the histogram bucket which counts the duration.
+	 *         Negative durations are counted in the bucket at index {@code 0}.
+	 */
+	public static int bucket(long nanos) {
+		return (nanos <= 0L) ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos);
+	}
+
+	/**
+	 * Returns the number of Promises created unresolved.
+	 *
+	 * @return The number of Promises created unresolved.
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * Returns the number of Promises successfully resolved.
+	 *
+	 * @return The number of Promises successfully resolved.
+	 */
+	public long getResolved() {
+		return resolved;
+	}
+
+	/**
+	 * Returns the number of Promises resolved with a failure.
+	 *
+	 * @return The number of Promises resolved with a failure.
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the number of Promises which are not yet resolved.
+	 *
+	 * @return The number of created Promises which are not yet resolved. This
+	 *         includes Promises which are no longer referenced and will never
+	 *         be resolved.
+	 */
+	public long getUnresolved() {
+		return Math.max(0L, created - resolved - failed);
+	}
+
+	/**
+	 * Returns the histogram of the times from the creation to the resolution
+	 * of Promises.
+	 *
+	 * @return The histogram of the times to resolve Promises. The returned
+	 *         array is a copy.
+	 */
+	public long[] getResolveTimes() {
+		return resolveTimes.clone();
+	}
+
+	/**
+	 * Returns the histogram of the times from queuing callbacks for the
+	 * callback executor to running them.
+	 *
+	 * @return The histogram of the queue delays of callbacks. The returned
+	 *         array is a copy.
+	 */
+	public long[] getCallbackDelays() {
+		return callbackDelays.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "PromiseMetrics[created=" + created + ", resolved=" + resolved
+				+ ", failed=" + failed + ", unresolved=" + getUnresolved()
+				+ "]";
+	}
+}
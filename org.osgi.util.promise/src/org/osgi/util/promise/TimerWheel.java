@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *******************************************************************************/
+
+package org.osgi.util.promise;
+
+import static org.osgi.util.promise.PromiseImpl.uncaughtException;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel for the scheduled operations of Promises.
+ * <p>
+ * Time is divided into ticks of {@link #TICK_MILLIS} milliseconds and each
+ * scheduled operation is held in the bucket for the tick at which it is due.
+ * Scheduling and cancelling an operation take constant time, and a cancelled
+ * operation is removed from its bucket immediately, so a large number of
+ * outstanding timeouts which are mostly cancelled, as is typical for
+ * {@link Promise#timeout(long)}, costs neither heap maintenance nor memory for
+ * the cancelled operations.
+ * <p>
+ * An operation runs on the timer thread no earlier than its delay and at most
+ * about one tick later. Operations which are due are run outside the lock of
+ * the timer wheel.
+ *
+ * @ThreadSafe
+ * @author $Id$
+ */
+final class TimerWheel implements Runnable {
+	/**
+	 * The duration of a tick in milliseconds.
+	 */
+	static final long			TICK_MILLIS	= Math.max(1L,
+			Long.getLong("org.osgi.util.promise.timerWheelTickMillis", 10L)
+					.longValue());
+	/**
+	 * The number of buckets which must be a power of two.
+	 */
+	private static final int	BUCKETS		= 1024;
+
+	/**
+	 * Returns the shared timer wheel whose timer thread is started on first
+	 * use.
+	 *
+	 * @return The shared timer wheel.
+	 */
+	static TimerWheel timerWheel() {
+		return Shared.timerWheel;
+	}
+
+	private static final class Shared {
+		static final TimerWheel timerWheel = new TimerWheel();
+		static {
+			Thread t = new Thread(timerWheel, "PromiseFactory,TimerWheel");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	private final long		tickNanos;
+	private final long		start;
+	/**
+	 * The buckets of the scheduled operations. Each bucket is a doubly linked
+	 * list.
+	 *
+	 * @GuardedBy this
+	 */
+	private final Timer[]	buckets;
+	/**
+	 * The last tick for which the due operations have been run.
+	 *
+	 * @GuardedBy this
+	 */
+	private long			tick;
+	/**
+	 * The number of scheduled operations.
+	 *
+	 * @GuardedBy this
+	 */
+	private int				count;
+
+	TimerWheel() {
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+		this.start = System.nanoTime();
+		this.buckets = new Timer[BUCKETS];
+	}
+
+	/**
+	 * Schedule an operation.
+	 *
+	 * @param operation The operation to run when the delay has elapsed.
+	 * @param delay The delay.
+	 * @param unit The unit of the delay.
+	 * @return A future which can be used to cancel the operation.
+	 */
+	Future< ? > schedule(Runnable operation, long delay, TimeUnit unit) {
+		final long nanos = Math.max(0L, unit.toNanos(delay));
+		final Timer timer = new Timer(operation);
+		synchronized (this) {
+			final long elapsed = System.nanoTime() - start;
+			if (count == 0) {
+				// idle wheel: skip the ticks without operations
+				tick = elapsed / tickNanos;
+				notifyAll();
+			}
+			// round up so the operation never runs early
+			timer.deadline = Math.max(tick + 1,
+					(elapsed + nanos + tickNanos - 1) / tickNanos);
+			link(timer);
+		}
+		return timer;
+	}
+
+	/**
+	 * Returns the number of scheduled operations.
+	 *
+	 * @return The number of scheduled operations.
+	 */
+	synchronized int size() {
+		return count;
+	}
+
+	private long ticks() {
+		return (System.nanoTime() - start) / tickNanos;
+	}
+
+	/**
+	 * @GuardedBy this
+	 */
+	private void link(Timer timer) {
+		final int index = (int) timer.deadline & (BUCKETS - 1);
+		final Timer head = buckets[index];
+		timer.bucket = index;
+		timer.next = head;
+		if (head != null) {
+			head.prev = timer;
+		}
+		buckets[index] = timer;
+		count++;
+	}
+
+	/**
+	 * @GuardedBy this
+	 */
+	private void unlink(Timer timer) {
+		final Timer prev = timer.prev;
+		final Timer next = timer.next;
+		if (prev == null) {
+			buckets[timer.bucket] = next;
+		} else {
+			prev.next = next;
+		}
+		if (next != null) {
+			next.prev = prev;
+		}
+		timer.bucket = -1;
+		timer.prev = null;
+		timer.next = null;
+		count--;
+	}
+
+	/**
+	 * Remove a cancelled timer.
+	 */
+	synchronized void remove(Timer timer) {
+		if (timer.bucket >= 0) {
+			unlink(timer);
+		}
+	}
+
+	/**
+	 * The timer thread.
+	 */
+	@Override
+	public void run() {
+		for (;;) {
+			Timer due = null;
+			synchronized (this) {
+				try {
+					while (count == 0) {
+						wait();
+					}
+					final long now = ticks();
+					if (now <= tick) {
+						TimeUnit.NANOSECONDS.timedWait(this,
+								start + (tick + 1) * tickNanos
+										- System.nanoTime());
+						continue;
+					}
+					// at most one round of buckets needs to be visited
+					final long last = Math.min(now, tick + BUCKETS);
+					while (tick < last) {
+						tick++;
+						Timer timer = buckets[(int) tick & (BUCKETS - 1)];
+						while (timer != null) {
+							final Timer next = timer.next;
+							if (timer.deadline <= now) {
+								unlink(timer);
+								timer.next = due;
+								due = timer;
+							}
+							timer = next;
+						}
+					}
+					tick = now;
+				} catch (InterruptedException e) {
+					// the timer thread is never interrupted
+				}
+			}
+			for (; due != null; due = due.next) {
+				due.run();
+			}
+		}
+	}
+
+	/**
+	 * A scheduled operation.
+	 */
+	final class Timer extends FutureTask<Void> {
+		/**
+		 * The tick at which the operation is due.
+		 */
+		long	deadline;
+		/**
+		 * The index of the bucket of this timer or -1 if this timer is not in
+		 * a bucket.
+		 *
+		 * @GuardedBy TimerWheel.this
+		 */
+		int		bucket	= -1;
+		/**
+		 * @GuardedBy TimerWheel.this
+		 */
+		Timer	prev;
+		/**
+		 * @GuardedBy TimerWheel.this
+		 */
+		Timer	next;
+
+		Timer(Runnable operation) {
+			super(operation, null);
+		}
+
+		/**
+		 * Remove a cancelled timer from its bucket.
+		 */
+		@Override
+		protected void done() {
+			if (isCancelled()) {
+				remove(this);
+			}
+		}
+
+		@Override
+		protected void setException(Throwable t) {
+			super.setException(t);
+			uncaughtException(t);
+		}
+	}
+}
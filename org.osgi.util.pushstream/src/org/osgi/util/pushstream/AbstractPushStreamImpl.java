@@ -64,7 +64,10 @@ import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
@@ -132,6 +135,53 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 		}
 		return ABORT;
 	}
+
+	/**
+	 * Pass a data value downstream. The value is only wrapped in a
+	 * {@link PushEvent} if the next consumer is not a {@link DataConsumer}, so
+	 * chains of fused stages do not allocate an event per stage.
+	 */
+	@SuppressWarnings("unchecked")
+	protected long handleData(T data) {
+		// The consumer is not cast to PushEventConsumer before the instanceof
+		// check as alternating type checks of the same class against two
+		// interfaces are slow on some JVMs
+		Object consumer = next.get();
+		if (!(consumer instanceof DataConsumer)) {
+			return handleEvent(PushEvent.data(data));
+		}
+		if (closed.get() != CLOSED) {
+			try {
+				long val = ((DataConsumer<T>) consumer).acceptData(data);
+				if (val < 0) {
+					close();
+				}
+				return val;
+			} catch (Exception e) {
+				close(PushEvent.error(e));
+				return ABORT;
+			}
+		}
+		return ABORT;
+	}
+
+	/**
+	 * A consumer which can accept a data value without it being wrapped in a
+	 * {@link PushEvent}.
+	 */
+	interface DataConsumer<T> extends PushEventConsumer<T> {
+		long acceptData(T data) throws Exception;
+
+		@Override
+		default long accept(PushEvent< ? extends T> event) throws Exception {
+			if (event.isTerminal()) {
+				return acceptTerminal(event);
+			}
+			return acceptData(event.getData());
+		}
+
+		long acceptTerminal(PushEvent< ? extends T> event) throws Exception;
+	}
 	
 	@Override
 	public void close() {
@@ -209,7 +259,7 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 		return this;
 	}
 
-	private void updateNext(PushEventConsumer<T> consumer) {
+	void updateNext(PushEventConsumer<T> consumer) {
 		if(!next.compareAndSet(null, consumer)) {
 			throw new IllegalStateException("This stream has already been chained");
 		} else if(closed.get() == CLOSED && next.compareAndSet(consumer, null)) {
@@ -226,19 +276,41 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 	public PushStream<T> filter(Predicate< ? super T> predicate) {
 		AbstractPushStreamImpl<T> eventStream = new IntermediatePushStreamImpl<>(
 				psp, promiseFactory, this);
-		updateNext((event) -> {
-			try {
-				if (!event.isTerminal()) {
-					if (predicate.test(event.getData())) {
-						return eventStream.handleEvent(event);
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long accept(PushEvent< ? extends T> event) {
+				try {
+					if (!event.isTerminal()) {
+						if (predicate.test(event.getData())) {
+							return eventStream.handleEvent(event);
+						} else {
+							return CONTINUE;
+						}
+					}
+					return eventStream.handleEvent(event);
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptData(T data) {
+				try {
+					if (predicate.test(data)) {
+						return eventStream.handleData(data);
 					} else {
 						return CONTINUE;
 					}
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
 				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
 				return eventStream.handleEvent(event);
-			} catch (Exception e) {
-				close(PushEvent.error(e));
-				return ABORT;
 			}
 		});
 		return eventStream;
@@ -249,17 +321,89 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 		
 		AbstractPushStreamImpl<R> eventStream = new IntermediatePushStreamImpl<>(
 				psp, promiseFactory, this);
-		updateNext(event -> {
-			try {
-				if (!event.isTerminal()) {
-					return eventStream.handleEvent(
-							PushEvent.data(mapper.apply(event.getData())));
-				} else {
-					return eventStream.handleEvent(event.nodata());
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
+				try {
+					return eventStream.handleData(mapper.apply(data));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
 				}
-			} catch (Exception e) {
-				close(PushEvent.error(e));
-				return ABORT;
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				return eventStream.handleEvent(event.nodata());
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public IntPushStream mapToInt(ToIntFunction< ? super T> mapper) {
+		IntPushStreamImpl eventStream = new IntPushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
+				try {
+					return eventStream.handleInt(mapper.applyAsInt(data));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				return eventStream.handleEvent(event.nodata());
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public LongPushStream mapToLong(ToLongFunction< ? super T> mapper) {
+		LongPushStreamImpl eventStream = new LongPushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
+				try {
+					return eventStream.handleLong(mapper.applyAsLong(data));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				return eventStream.handleEvent(event.nodata());
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public DoublePushStream mapToDouble(ToDoubleFunction< ? super T> mapper) {
+		DoublePushStreamImpl eventStream = new DoublePushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
+				try {
+					return eventStream.handleDouble(mapper.applyAsDouble(data));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				return eventStream.handleEvent(event.nodata());
 			}
 		});
 		return eventStream;
@@ -1333,26 +1477,29 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 	@Override
 	public Promise<Void> forEach(Consumer< ? super T> action) {
 		Deferred<Void> d = promiseFactory.deferred();
-		updateNext((event) -> {
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
 				try {
-					switch(event.getType()) {
-						case DATA:
-							action.accept(event.getData());
-							return CONTINUE;
-						case CLOSE:
-							d.resolve(null);
-							break;
-						case ERROR:
-							d.fail(event.getFailure());
-							break;
-					}
-				close(event.nodata());
-					return ABORT;
+					action.accept(data);
+					return CONTINUE;
 				} catch (Exception e) {
-				close(PushEvent.error(e));
+					close(PushEvent.error(e));
 					return ABORT;
 				}
-			});
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				if (event.getType() == EventType.CLOSE) {
+					d.resolve(null);
+				} else {
+					d.fail(event.getFailure());
+				}
+				close(event.nodata());
+				return ABORT;
+			}
+		});
 		begin();
 		return d.getPromise();
 	}
@@ -1561,26 +1708,24 @@ abstract class AbstractPushStreamImpl<T> implements PushStream<T> {
 	public Promise<Long> count() {
 		Deferred<Long> d = promiseFactory.deferred();
 		LongAdder counter = new LongAdder();
-		updateNext((event) -> {
-				try {
-					switch(event.getType()) {
-						case DATA:
-						counter.add(1);
-							return CONTINUE;
-						case CLOSE:
-						d.resolve(Long.valueOf(counter.sum()));
-							break;
-						case ERROR:
-							d.fail(event.getFailure());
-							break;
-					}
-					close(event.nodata());
-					return ABORT;
-				} catch (Exception e) {
-				close(PushEvent.error(e));
-					return ABORT;
+		updateNext(new DataConsumer<T>() {
+			@Override
+			public long acceptData(T data) {
+				counter.add(1);
+				return CONTINUE;
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends T> event) {
+				if (event.getType() == EventType.CLOSE) {
+					d.resolve(Long.valueOf(counter.sum()));
+				} else {
+					d.fail(event.getFailure());
 				}
-			});
+				close(event.nodata());
+				return ABORT;
+			}
+		});
 		begin();
 		return d.getPromise();
 	}
@@ -88,6 +88,12 @@ class BufferedPushStreamImpl<T, U extends BlockingQueue<PushEvent< ? extends T>>
 		}
 	}
 
+	@Override
+	protected long handleData(T data) {
+		// Data values must be queued as events
+		return handleEvent(PushEvent.data(data));
+	}
+
 	private void startWorker() {
 		promiseFactory.executor().execute(() -> {
 			try {
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.util.pushstream;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+import org.osgi.annotation.versioning.ProviderType;
+import org.osgi.util.promise.Promise;
+
+/**
+ * A {@link PushStream} of primitive {@code double} values.
+ * <p>
+ * The values are passed between the operations of a DoublePushStream without
+ * being boxed or wrapped in a {@link PushEvent}, so a pipeline of DoublePushStream
+ * operations does not allocate objects per event. Use {@link #boxed()} or
+ * {@link #mapToObj(DoubleFunction)} to access the operations of
+ * {@link PushStream}.
+ * 
+ * @since 1.2
+ */
+@ProviderType
+public interface DoublePushStream extends AutoCloseable {
+
+	/**
+	 * Close this DoublePushStream by sending an event of type
+	 * {@link PushEvent.EventType#CLOSE} downstream. Closing a DoublePushStream is
+	 * a safe operation that will not throw an Exception.
+	 * <p>
+	 * Calling {@code close()} on a closed DoublePushStream has no effect.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Provide a handler that must be run after the DoublePushStream is closed.
+	 * 
+	 * @param closeHandler Will be called on close
+	 * @return This stream
+	 * @see PushStream#onClose(Runnable)
+	 */
+	DoublePushStream onClose(Runnable closeHandler);
+
+	/**
+	 * Provide a handler that will be called if the DoublePushStream is closed
+	 * with an event of type {@link PushEvent.EventType#ERROR}.
+	 * 
+	 * @param errorHandler Will be called on an error event
+	 * @return This stream
+	 * @see PushStream#onError(Consumer)
+	 */
+	DoublePushStream onError(Consumer< ? super Throwable> errorHandler);
+
+	/**
+	 * Only pass values downstream when the predicate tests true.
+	 * 
+	 * @param predicate The predicate that is tested (not null)
+	 * @return Builder style (can be a new or the same object)
+	 */
+	DoublePushStream filter(DoublePredicate predicate);
+
+	/**
+	 * Map a value.
+	 * 
+	 * @param mapper The map function
+	 * @return Builder style (can be a new or the same object)
+	 */
+	DoublePushStream map(DoubleUnaryOperator mapper);
+
+	/**
+	 * Map a value to an object.
+	 * 
+	 * @param mapper The map function
+	 * @return A PushStream of the mapped values
+	 */
+	<R> PushStream<R> mapToObj(DoubleFunction< ? extends R> mapper);
+
+	/**
+	 * Box the values.
+	 * 
+	 * @return A PushStream of the boxed values
+	 */
+	PushStream<Double> boxed();
+
+	/**
+	 * Execute the action for each value received until the channel is closed.
+	 * This is a terminating method, the returned promise is resolved when the
+	 * channel closes.
+	 * <p>
+	 * This is a <strong>terminal operation</strong>
+	 * 
+	 * @param action The action to perform
+	 * @return A promise that is resolved when the channel closes.
+	 */
+	Promise<Void> forEach(DoubleConsumer action);
+
+	/**
+	 * See DoubleStream. Will resolve once the channel closes.
+	 * <p>
+	 * This is a <strong>terminal operation</strong>
+	 * 
+	 * @return A Promise representing the number of values in the stream
+	 */
+	Promise<Long> count();
+
+	/**
+	 * See DoubleStream. Will resolve once the channel closes.
+	 * <p>
+	 * This is a <strong>terminal operation</strong>
+	 * 
+	 * @return A Promise representing the sum of the values in the stream
+	 */
+	Promise<Double> sum();
+}
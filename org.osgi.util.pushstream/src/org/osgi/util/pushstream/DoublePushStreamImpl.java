@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.util.pushstream;
+
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.BUILDING;
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.CLOSED;
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.STARTED;
+import static org.osgi.util.pushstream.PushEventConsumer.ABORT;
+import static org.osgi.util.pushstream.PushEventConsumer.CONTINUE;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+import org.osgi.util.promise.Deferred;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+import org.osgi.util.pushstream.PushEvent.EventType;
+
+class DoublePushStreamImpl extends AbstractPushStreamImpl<Double>
+		implements DoublePushStream {
+
+	/**
+	 * A consumer which can accept a {@code double} value without boxing it.
+	 */
+	interface DoubleDataConsumer extends DataConsumer<Double> {
+		long acceptDouble(double value) throws Exception;
+
+		@Override
+		default long acceptData(Double data) throws Exception {
+			return acceptDouble(data.doubleValue());
+		}
+	}
+
+	private final AbstractPushStreamImpl< ? > previous;
+
+	DoublePushStreamImpl(PushStreamProvider psp, PromiseFactory promiseFactory,
+			AbstractPushStreamImpl< ? > previous) {
+		super(psp, promiseFactory);
+		this.previous = previous;
+	}
+
+	@Override
+	protected boolean begin() {
+		if (closed.compareAndSet(BUILDING, STARTED)) {
+			if (previous != null) {
+				previous.begin();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected void upstreamClose(PushEvent< ? > close) {
+		if (closed.get() != CLOSED) {
+			close(close.nodata(), false);
+		}
+		if (previous != null) {
+			previous.upstreamClose(close);
+		}
+	}
+
+	/**
+	 * Pass a value downstream. The value is only boxed if the next consumer is
+	 * not a {@link DoubleDataConsumer}.
+	 */
+	long handleDouble(double value) {
+		if (closed.get() != CLOSED) {
+			try {
+				// See handleData for why the consumer is not cast first
+				Object consumer = next.get();
+				if (!(consumer instanceof DoubleDataConsumer)) {
+					return handleData(Double.valueOf(value));
+				}
+				long val = ((DoubleDataConsumer) consumer).acceptDouble(value);
+				if (val < 0) {
+					close();
+				}
+				return val;
+			} catch (Exception e) {
+				close(PushEvent.error(e));
+				return ABORT;
+			}
+		}
+		return ABORT;
+	}
+
+	@Override
+	public DoublePushStreamImpl onClose(Runnable closeHandler) {
+		super.onClose(closeHandler);
+		return this;
+	}
+
+	@Override
+	public DoublePushStreamImpl onError(Consumer< ? super Throwable> errorHandler) {
+		super.onError(errorHandler);
+		return this;
+	}
+
+	@Override
+	public DoublePushStream filter(DoublePredicate predicate) {
+		DoublePushStreamImpl eventStream = new DoublePushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new DoubleDataConsumer() {
+			@Override
+			public long acceptDouble(double value) {
+				try {
+					if (predicate.test(value)) {
+						return eventStream.handleDouble(value);
+					} else {
+						return CONTINUE;
+					}
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Double> event) {
+				return eventStream.handleEvent(event);
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public DoublePushStream map(DoubleUnaryOperator mapper) {
+		DoublePushStreamImpl eventStream = new DoublePushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new DoubleDataConsumer() {
+			@Override
+			public long acceptDouble(double value) {
+				try {
+					return eventStream.handleDouble(mapper.applyAsDouble(value));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Double> event) {
+				return eventStream.handleEvent(event);
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public <R> PushStream<R> mapToObj(DoubleFunction< ? extends R> mapper) {
+		AbstractPushStreamImpl<R> eventStream = new IntermediatePushStreamImpl<>(
+				psp, promiseFactory, this);
+		updateNext(new DoubleDataConsumer() {
+			@Override
+			public long acceptDouble(double value) {
+				try {
+					return eventStream.handleData(mapper.apply(value));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Double> event) {
+				return eventStream.handleEvent(event.nodata());
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public PushStream<Double> boxed() {
+		// Values are boxed when the next consumer is not a DoubleDataConsumer
+		return this;
+	}
+
+	@Override
+	public Promise<Void> forEach(DoubleConsumer action) {
+		Deferred<Void> d = promiseFactory.deferred();
+		updateNext(new Terminal<Void>(d) {
+			@Override
+			public long acceptDouble(double value) {
+				try {
+					action.accept(value);
+					return CONTINUE;
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			Void result() {
+				return null;
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	@Override
+	public Promise<Long> count() {
+		Deferred<Long> d = promiseFactory.deferred();
+		LongAdder counter = new LongAdder();
+		updateNext(new Terminal<Long>(d) {
+			@Override
+			public long acceptDouble(double value) {
+				counter.add(1);
+				return CONTINUE;
+			}
+
+			@Override
+			Long result() {
+				return Long.valueOf(counter.sum());
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	@Override
+	public Promise<Double> sum() {
+		Deferred<Double> d = promiseFactory.deferred();
+		DoubleAdder sum = new DoubleAdder();
+		updateNext(new Terminal<Double>(d) {
+			@Override
+			public long acceptDouble(double value) {
+				sum.add(value);
+				return CONTINUE;
+			}
+
+			@Override
+			Double result() {
+				return Double.valueOf(sum.sum());
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	/**
+	 * The consumer of a terminal operation.
+	 */
+	private abstract class Terminal<R> implements DoubleDataConsumer {
+		private final Deferred<R> d;
+
+		Terminal(Deferred<R> d) {
+			this.d = d;
+		}
+
+		abstract R result();
+
+		@Override
+		public long acceptTerminal(PushEvent< ? extends Double> event) {
+			if (event.getType() == EventType.CLOSE) {
+				d.resolve(result());
+			} else {
+				d.fail(event.getFailure());
+			}
+			close(event.nodata());
+			return ABORT;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.util.pushstream;
+
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.BUILDING;
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.CLOSED;
+import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.STARTED;
+import static org.osgi.util.pushstream.PushEventConsumer.ABORT;
+import static org.osgi.util.pushstream.PushEventConsumer.CONTINUE;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import org.osgi.util.promise.Deferred;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
+import org.osgi.util.pushstream.PushEvent.EventType;
+
+class IntPushStreamImpl extends AbstractPushStreamImpl<Integer>
+		implements IntPushStream {
+
+	/**
+	 * A consumer which can accept an {@code int} value without boxing it.
+	 */
+	interface IntDataConsumer extends DataConsumer<Integer> {
+		long acceptInt(int value) throws Exception;
+
+		@Override
+		default long acceptData(Integer data) throws Exception {
+			return acceptInt(data.intValue());
+		}
+	}
+
+	private final AbstractPushStreamImpl< ? > previous;
+
+	IntPushStreamImpl(PushStreamProvider psp, PromiseFactory promiseFactory,
+			AbstractPushStreamImpl< ? > previous) {
+		super(psp, promiseFactory);
+		this.previous = previous;
+	}
+
+	@Override
+	protected boolean begin() {
+		if (closed.compareAndSet(BUILDING, STARTED)) {
+			if (previous != null) {
+				previous.begin();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected void upstreamClose(PushEvent< ? > close) {
+		if (closed.get() != CLOSED) {
+			close(close.nodata(), false);
+		}
+		if (previous != null) {
+			previous.upstreamClose(close);
+		}
+	}
+
+	/**
+	 * Pass a value downstream. The value is only boxed if the next consumer is
+	 * not an {@link IntDataConsumer}.
+	 */
+	long handleInt(int value) {
+		if (closed.get() != CLOSED) {
+			try {
+				// See handleData for why the consumer is not cast first
+				Object consumer = next.get();
+				if (!(consumer instanceof IntDataConsumer)) {
+					return handleData(Integer.valueOf(value));
+				}
+				long val = ((IntDataConsumer) consumer).acceptInt(value);
+				if (val < 0) {
+					close();
+				}
+				return val;
+			} catch (Exception e) {
+				close(PushEvent.error(e));
+				return ABORT;
+			}
+		}
+		return ABORT;
+	}
+
+	@Override
+	public IntPushStreamImpl onClose(Runnable closeHandler) {
+		super.onClose(closeHandler);
+		return this;
+	}
+
+	@Override
+	public IntPushStreamImpl onError(Consumer< ? super Throwable> errorHandler) {
+		super.onError(errorHandler);
+		return this;
+	}
+
+	@Override
+	public IntPushStream filter(IntPredicate predicate) {
+		IntPushStreamImpl eventStream = new IntPushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new IntDataConsumer() {
+			@Override
+			public long acceptInt(int value) {
+				try {
+					if (predicate.test(value)) {
+						return eventStream.handleInt(value);
+					} else {
+						return CONTINUE;
+					}
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Integer> event) {
+				return eventStream.handleEvent(event);
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public IntPushStream map(IntUnaryOperator mapper) {
+		IntPushStreamImpl eventStream = new IntPushStreamImpl(psp,
+				promiseFactory, this);
+		updateNext(new IntDataConsumer() {
+			@Override
+			public long acceptInt(int value) {
+				try {
+					return eventStream.handleInt(mapper.applyAsInt(value));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Integer> event) {
+				return eventStream.handleEvent(event);
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public <R> PushStream<R> mapToObj(IntFunction< ? extends R> mapper) {
+		AbstractPushStreamImpl<R> eventStream = new IntermediatePushStreamImpl<>(
+				psp, promiseFactory, this);
+		updateNext(new IntDataConsumer() {
+			@Override
+			public long acceptInt(int value) {
+				try {
+					return eventStream.handleData(mapper.apply(value));
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			public long acceptTerminal(PushEvent< ? extends Integer> event) {
+				return eventStream.handleEvent(event.nodata());
+			}
+		});
+		return eventStream;
+	}
+
+	@Override
+	public PushStream<Integer> boxed() {
+		// Values are boxed when the next consumer is not an IntDataConsumer
+		return this;
+	}
+
+	@Override
+	public Promise<Void> forEach(IntConsumer action) {
+		Deferred<Void> d = promiseFactory.deferred();
+		updateNext(new Terminal<Void>(d) {
+			@Override
+			public long acceptInt(int value) {
+				try {
+					action.accept(value);
+					return CONTINUE;
+				} catch (Exception e) {
+					close(PushEvent.error(e));
+					return ABORT;
+				}
+			}
+
+			@Override
+			Void result() {
+				return null;
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	@Override
+	public Promise<Long> count() {
+		Deferred<Long> d = promiseFactory.deferred();
+		LongAdder counter = new LongAdder();
+		updateNext(new Terminal<Long>(d) {
+			@Override
+			public long acceptInt(int value) {
+				counter.add(1);
+				return CONTINUE;
+			}
+
+			@Override
+			Long result() {
+				return Long.valueOf(counter.sum());
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	@Override
+	public Promise<Integer> sum() {
+		Deferred<Integer> d = promiseFactory.deferred();
+		LongAdder sum = new LongAdder();
+		updateNext(new Terminal<Integer>(d) {
+			@Override
+			public long acceptInt(int value) {
+				sum.add(value);
+				return CONTINUE;
+			}
+
+			@Override
+			Integer result() {
+				// int addition overflows in the same way as IntStream.sum()
+				return Integer.valueOf(sum.intValue());
+			}
+		});
+		begin();
+		return d.getPromise();
+	}
+
+	/**
+	 * The consumer of a terminal operation.
+	 */
+	private abstract class Terminal<R> implements IntDataConsumer {
+		private final Deferred<R> d;
+
+		Terminal(Deferred<R> d) {
+			this.d = d;
+		}
+
+		abstract R result();
+
+		@Override
+		public long acceptTerminal(PushEvent< ? extends Integer> event) {
+			if (event.getType() == EventType.CLOSE) {
+				d.resolve(result());
+			} else {
+				d.fail(event.getFailure());
+			}
+			close(event.nodata());
+			return ABORT;
+		}
+	}
+}
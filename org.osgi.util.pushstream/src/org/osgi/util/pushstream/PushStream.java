@@ -31,7 +31,10 @@ import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 
 import org.osgi.annotation.versioning.ProviderType;
@@ -109,6 +112,42 @@ public interface PushStream<T> extends AutoCloseable {
 	 */
 	<R> PushStream<R> map(Function< ? super T, ? extends R> mapper);
 
+	/**
+	 * Map a payload value to an {@code int} value.
+	 * <p>
+	 * The values of the returned stream are not boxed, so a pipeline of
+	 * {@link IntPushStream} operations does not allocate objects per event.
+	 * 
+	 * @param mapper The map function
+	 * @return A new stream of the mapped values
+	 * @since 1.2
+	 */
+	IntPushStream mapToInt(ToIntFunction< ? super T> mapper);
+
+	/**
+	 * Map a payload value to a {@code long} value.
+	 * <p>
+	 * The values of the returned stream are not boxed, so a pipeline of
+	 * {@link LongPushStream} operations does not allocate objects per event.
+	 * 
+	 * @param mapper The map function
+	 * @return A new stream of the mapped values
+	 * @since 1.2
+	 */
+	LongPushStream mapToLong(ToLongFunction< ? super T> mapper);
+
+	/**
+	 * Map a payload value to a {@code double} value.
+	 * <p>
+	 * The values of the returned stream are not boxed, so a pipeline of
+	 * {@link DoublePushStream} operations does not allocate objects per event.
+	 * 
+	 * @param mapper The map function
+	 * @return A new stream of the mapped values
+	 * @since 1.2
+	 */
+	DoublePushStream mapToDouble(ToDoubleFunction< ? super T> mapper);
+
 	/**
 	 * Asynchronously map the payload values. The mapping function returns a
 	 * Promise representing the asynchronous mapping operation.
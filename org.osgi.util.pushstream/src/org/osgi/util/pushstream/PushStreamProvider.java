@@ -19,13 +19,17 @@
 package org.osgi.util.pushstream;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.osgi.util.pushstream.AbstractPushStreamImpl.State.CLOSED;
 import static org.osgi.util.pushstream.PushEvent.data;
 import static org.osgi.util.pushstream.PushEvent.error;
 import static org.osgi.util.pushstream.PushbackPolicyOption.LINEAR;
 import static org.osgi.util.pushstream.QueuePolicyOption.FAIL;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -35,11 +39,21 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import org.osgi.util.function.Function;
+import org.osgi.util.promise.FailedPromisesException;
+import org.osgi.util.promise.Promise;
 import org.osgi.util.promise.PromiseFactory;
 
 /**
@@ -771,4 +785,354 @@ public final class PushStreamProvider {
 		return cleanupThreads(closeExecutorOnClose, workerToUse,
 				releaseSchedulerOnClose, stream);
 	}
+
+	/**
+	 * Create an Unbuffered {@link IntPushStream} from a Java {@link IntStream}.
+	 * The values from the stream will be pushed into the IntPushStream
+	 * synchronously, without being boxed, as it is opened. This may make
+	 * terminal operations blocking. Care should be taken with infinite
+	 * {@link IntStream}s to avoid blocking indefinitely.
+	 * 
+	 * @param items The values to push into the IntPushStream
+	 * @return An IntPushStream containing the values from the Java IntStream
+	 * @since 1.2
+	 */
+	public IntPushStream streamOf(IntStream items) {
+		ExecutorService workerToUse = Executors.newFixedThreadPool(2);
+		ScheduledExecutorService timerToUse = acquireScheduler();
+
+		IntPushStreamImpl stream = new IntPushStreamImpl(this,
+				new PromiseFactory(workerToUse, timerToUse), null) {
+			@Override
+			protected boolean begin() {
+				if (super.begin()) {
+					try {
+						PrimitiveIterator.OfInt it = items.iterator();
+						while (it.hasNext()) {
+							if (handleInt(it.nextInt()) < 0) {
+								return true;
+							}
+						}
+						close();
+					} catch (Exception e) {
+						close(error(e));
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+
+		return stream.onClose(() -> {
+			workerToUse.shutdown();
+			releaseScheduler();
+		}).map(IntUnaryOperator.identity());
+	}
+
+	/**
+	 * Create an Unbuffered {@link LongPushStream} from a Java {@link LongStream}.
+	 * The values from the stream will be pushed into the LongPushStream
+	 * synchronously, without being boxed, as it is opened. This may make
+	 * terminal operations blocking. Care should be taken with infinite
+	 * {@link LongStream}s to avoid blocking indefinitely.
+	 * 
+	 * @param items The values to push into the LongPushStream
+	 * @return A LongPushStream containing the values from the Java LongStream
+	 * @since 1.2
+	 */
+	public LongPushStream streamOf(LongStream items) {
+		ExecutorService workerToUse = Executors.newFixedThreadPool(2);
+		ScheduledExecutorService timerToUse = acquireScheduler();
+
+		LongPushStreamImpl stream = new LongPushStreamImpl(this,
+				new PromiseFactory(workerToUse, timerToUse), null) {
+			@Override
+			protected boolean begin() {
+				if (super.begin()) {
+					try {
+						PrimitiveIterator.OfLong it = items.iterator();
+						while (it.hasNext()) {
+							if (handleLong(it.nextLong()) < 0) {
+								return true;
+							}
+						}
+						close();
+					} catch (Exception e) {
+						close(error(e));
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+
+		return stream.onClose(() -> {
+			workerToUse.shutdown();
+			releaseScheduler();
+		}).map(LongUnaryOperator.identity());
+	}
+
+	/**
+	 * Create an Unbuffered {@link DoublePushStream} from a Java {@link DoubleStream}.
+	 * The values from the stream will be pushed into the DoublePushStream
+	 * synchronously, without being boxed, as it is opened. This may make
+	 * terminal operations blocking. Care should be taken with infinite
+	 * {@link DoubleStream}s to avoid blocking indefinitely.
+	 * 
+	 * @param items The values to push into the DoublePushStream
+	 * @return A DoublePushStream containing the values from the Java DoubleStream
+	 * @since 1.2
+	 */
+	public DoublePushStream streamOf(DoubleStream items) {
+		ExecutorService workerToUse = Executors.newFixedThreadPool(2);
+		ScheduledExecutorService timerToUse = acquireScheduler();
+
+		DoublePushStreamImpl stream = new DoublePushStreamImpl(this,
+				new PromiseFactory(workerToUse, timerToUse), null) {
+			@Override
+			protected boolean begin() {
+				if (super.begin()) {
+					try {
+						PrimitiveIterator.OfDouble it = items.iterator();
+						while (it.hasNext()) {
+							if (handleDouble(it.nextDouble()) < 0) {
+								return true;
+							}
+						}
+						close();
+					} catch (Exception e) {
+						close(error(e));
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+
+		return stream.onClose(() -> {
+			workerToUse.shutdown();
+			releaseScheduler();
+		}).map(DoubleUnaryOperator.identity());
+	}
+
+	/**
+	 * Create an Unbuffered {@link PushStream} of the values of the Promises
+	 * returned by the specified function for each of the specified items,
+	 * where at most the specified number of these Promises are unresolved at
+	 * any time.
+	 * <p>
+	 * The items are iterated lazily once a terminal operation is reached on the
+	 * PushStream. The value of each Promise returned by the function is pushed
+	 * into the PushStream as soon as the Promise is resolved, so the values are
+	 * in the order in which the Promises are resolved rather than the order of
+	 * the items. Back pressure from the PushStream delays calling the function
+	 * for further items. If the function throws an exception or returns
+	 * {@code null}, the item is treated as a failed Promise. The PushStream is
+	 * closed once all the Promises returned by the function are resolved.
+	 * 
+	 * @param <S> The type of the items.
+	 * @param <R> The type of the values of the PushStream.
+	 * @param items The items. Must not be {@code null}.
+	 * @param mapper The function which returns a Promise for an item. Must not
+	 *            be {@code null}.
+	 * @param maxConcurrency The maximum number of unresolved Promises returned
+	 *            by the function. Must be greater than zero.
+	 * @param failFast If {@code true}, the PushStream is closed with an error
+	 *            event as soon as a Promise returned by the function fails and
+	 *            the function is not called for the remaining items. If
+	 *            {@code false}, failed Promises are skipped and the PushStream
+	 *            is closed with an error event of a
+	 *            {@link FailedPromisesException} holding the failed Promises
+	 *            once all the Promises returned by the function are resolved.
+	 * @return A PushStream of the values of the Promises returned by the
+	 *         function.
+	 * @throws IllegalArgumentException If {@code maxConcurrency} is not
+	 *             greater than zero.
+	 * @since 1.2
+	 */
+	public <S, R> PushStream<R> traverse(Iterable<S> items,
+			Function< ? super S, ? extends Promise< ? extends R>> mapper,
+			int maxConcurrency, boolean failFast) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException(
+					"maxConcurrency must be greater than zero: "
+							+ maxConcurrency);
+		}
+		Objects.requireNonNull(items);
+		Objects.requireNonNull(mapper);
+
+		ExecutorService workerToUse = Executors.newFixedThreadPool(2);
+		ScheduledExecutorService timerToUse = acquireScheduler();
+
+		PushStream<R> stream = new TraversePushStream<S,R>(this,
+				new PromiseFactory(workerToUse, timerToUse), items, mapper,
+				maxConcurrency, failFast);
+
+		return cleanupThreads(true, workerToUse, true, stream);
+	}
+
+	/**
+	 * The PushStream of the
+	 * {@link PushStreamProvider#traverse(Iterable, Function, int, boolean)}
+	 * method.
+	 * <p>
+	 * Only one thread at a time iterates the items and calls the function. A
+	 * thread which finds another thread doing so records the request in
+	 * {@code wip} and the other thread iterates again before it returns. Events
+	 * are pushed while holding the lock of this object.
+	 */
+	private static final class TraversePushStream<S, R>
+			extends UnbufferedPushStreamImpl<R,BlockingQueue<PushEvent< ? extends R>>> {
+		private final Iterable<S>											items;
+		private final Function< ? super S, ? extends Promise< ? extends R>>	mapper;
+		private final int													maxConcurrency;
+		private final boolean												failFast;
+		private final AtomicInteger											wip			= new AtomicInteger();
+		private final AtomicInteger											running		= new AtomicInteger();
+		/**
+		 * The time until which back pressure delays calling the function.
+		 */
+		private volatile long												pausedUntil;
+		/**
+		 * Whether a task to resume calling the function is scheduled.
+		 */
+		private volatile boolean											resumeScheduled;
+		/**
+		 * @GuardedBy the iterating thread
+		 */
+		private Iterator<S>													iterator;
+		/**
+		 * @GuardedBy this
+		 */
+		private final List<Promise< ? >>									failed		= new ArrayList<>();
+
+		TraversePushStream(PushStreamProvider psp,
+				PromiseFactory promiseFactory, Iterable<S> items,
+				Function< ? super S, ? extends Promise< ? extends R>> mapper,
+				int maxConcurrency, boolean failFast) {
+			super(psp, promiseFactory, aec -> () -> {
+				/* No action to take */
+			});
+			this.items = items;
+			this.mapper = mapper;
+			this.maxConcurrency = maxConcurrency;
+			this.failFast = failFast;
+		}
+
+		@Override
+		protected boolean begin() {
+			if (super.begin()) {
+				promiseFactory.executor().execute(this::drain);
+				return true;
+			}
+			return false;
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				try {
+					drainItems();
+				} catch (Throwable t) {
+					synchronized (this) {
+						close(error(t)); // iterator failed
+					}
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drainItems() {
+			if (closed.get() == CLOSED) {
+				return;
+			}
+			Iterator<S> it = iterator;
+			if (it == null) {
+				iterator = it = items.iterator();
+			}
+			while ((running.get() < maxConcurrency) && it.hasNext()) {
+				long delay = pausedUntil - System.nanoTime();
+				if (delay > 0L) {
+					if (!resumeScheduled) {
+						resumeScheduled = true;
+						promiseFactory.scheduledExecutor().schedule(() -> {
+							resumeScheduled = false;
+							drain();
+						}, delay, NANOSECONDS);
+					}
+					return;
+				}
+				Promise< ? extends R> p;
+				try {
+					p = Objects.requireNonNull(mapper.apply(it.next()),
+							"mapper returned null");
+				} catch (Throwable t) {
+					p = promiseFactory.failed(t);
+				}
+				final Promise< ? extends R> promise = p;
+				running.incrementAndGet();
+				promise.onResolve(() -> resolved(promise));
+			}
+			if ((running.get() == 0) && !it.hasNext()) {
+				synchronized (this) {
+					if (failed.isEmpty()) {
+						close();
+					} else {
+						close(error(failure(failed)));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Called when a Promise returned by the function is resolved.
+		 */
+		private void resolved(Promise< ? extends R> p) {
+			synchronized (this) {
+				if (closed.get() != CLOSED) {
+					Throwable f;
+					R value = null;
+					try {
+						f = p.getFailure();
+						if (f == null) {
+							value = p.getValue();
+						}
+					} catch (Throwable t) {
+						f = t;
+					}
+					if (f == null) {
+						long returnValue = handleEvent(data(value));
+						if (returnValue < 0) {
+							close();
+						} else if (returnValue > 0) {
+							pausedUntil = System.nanoTime()
+									+ MILLISECONDS.toNanos(returnValue);
+						}
+					} else if (failFast) {
+						List<Promise< ? >> list = new ArrayList<>(1);
+						list.add(p);
+						close(error(failure(list)));
+					} else {
+						failed.add(p);
+					}
+				}
+			}
+			running.decrementAndGet();
+			drain();
+		}
+
+		private static FailedPromisesException failure(
+				List<Promise< ? >> failed) {
+			Throwable cause;
+			try {
+				cause = failed.get(0).getFailure();
+			} catch (Exception e) {
+				cause = e;
+			}
+			return new FailedPromisesException(failed, cause);
+		}
+	}
 }
@@ -19,18 +19,25 @@
 package org.osgi.util.tracker;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract class to track items. If a Tracker is reused (closed then reopened),
  * then a new AbstractTracked object is used. This class acts a map of tracked
  * item -> customized object. Subclasses of this class will act as the listener
  * object for the tracker. This class is used to synchronize access to the
- * tracked items. This is not a public class. It is only for use by the
- * implementation of the Tracker class.
+ * tracked items. Changes to the tracked items are synchronized on this object
+ * and publish an immutable copy of the tracked items, so the tracked items can
+ * be read without synchronizing on this object. This is not a public class. It
+ * is only for use by the implementation of the Tracker class.
  * 
  * @param <S> The tracked item. It is the key.
  * @param <T> The value mapped to the tracked item.
@@ -46,17 +53,25 @@ abstract class AbstractTracked<S, T, R> {
 	/**
 	 * Map of tracked items to customized objects.
 	 * 
-	 * @GuardedBy this
+	 * The map is never modified after it is assigned to this field. Tracking or
+	 * untracking an item assigns a modified copy of the map. This field is
+	 * volatile so the tracked items can be read without synchronizing on this
+	 * object.
+	 * 
+	 * @GuardedBy this for assignment
 	 */
-	private final Map<S, T>		tracked;
+	private volatile Map<S, T>	tracked;
 
 	/**
 	 * Modification count. This field is initialized to zero and incremented by
 	 * modified.
 	 * 
-	 * @GuardedBy this
+	 * This field is volatile so the modification count can be read without
+	 * synchronizing on this object.
+	 * 
+	 * @GuardedBy this for assignment
 	 */
-	private int					trackingCount;
+	private volatile int		trackingCount;
 
 	/**
 	 * List of items in the process of being added. This is used to deal with
@@ -101,15 +116,160 @@ abstract class AbstractTracked<S, T, R> {
 	 */
 	private final LinkedList<S>	initial;
 
+	/**
+	 * Scheduler used to deliver coalesced modifications or {@code null} if
+	 * modifications are delivered to the customizer as they are received.
+	 * 
+	 * @GuardedBy this
+	 */
+	private ScheduledExecutorService	coalesceScheduler;
+
+	/**
+	 * Time in nanoseconds for which modifications are coalesced.
+	 * 
+	 * @GuardedBy this
+	 */
+	private long						coalesceNanos;
+
+	/**
+	 * Map of tracked items with modifications not yet delivered to the
+	 * customizer to the related object of their latest modification.
+	 * 
+	 * @GuardedBy this
+	 */
+	private Map<S, R>					pendingModified;
+
+	/**
+	 * Thread delivering coalesced modifications or {@code null} if no
+	 * modifications are being delivered. Only one thread delivers coalesced
+	 * modifications at a time so the modifications of an item are delivered
+	 * in order.
+	 * 
+	 * @GuardedBy this
+	 */
+	private Thread						flushing;
+
+	/**
+	 * true if modifications became pending while they were being delivered
+	 * and they must be delivered by the delivering thread.
+	 * 
+	 * @GuardedBy this
+	 */
+	private boolean						flushAgain;
+
+	/**
+	 * Item whose modification is being delivered to the customizer or
+	 * {@code null}. An item is not untracked by another thread until the
+	 * delivery of its modification is complete, so the customizer is not
+	 * called for the modification of an item during or after its removal.
+	 * 
+	 * @GuardedBy this
+	 */
+	private S							delivering;
+
+	/**
+	 * Number of modifications not delivered to the customizer because they
+	 * were coalesced with a later modification or removal of the same item.
+	 * 
+	 * This field is volatile so the count can be read without synchronizing
+	 * on this object.
+	 * 
+	 * @GuardedBy this for assignment
+	 */
+	private volatile long				coalescedCount;
+
+	/**
+	 * Listener for the measurements of this object or {@code null} if no
+	 * measurements are taken.
+	 * 
+	 * This field is volatile because it is set by one thread and read by
+	 * another.
+	 */
+	private volatile TrackerMetrics		metrics;
+
 	/**
 	 * AbstractTracked constructor.
 	 */
 	AbstractTracked() {
-		tracked = new HashMap<S, T>();
+		tracked = Collections.emptyMap();
 		trackingCount = 0;
 		adding = new ArrayList<S>(6);
 		initial = new LinkedList<S>();
 		closed = false;
+		pendingModified = new LinkedHashMap<S, R>();
+		coalescedCount = 0;
+	}
+
+	/**
+	 * Set the listener for the measurements of this object.
+	 * 
+	 * This method must be called from Tracker's open method while
+	 * synchronized on this object before events begin to be received.
+	 * 
+	 * @param m The listener or {@code null} if no measurements are to be
+	 *        taken.
+	 * @GuardedBy this
+	 */
+	void setMetrics(final TrackerMetrics m) {
+		metrics = m;
+	}
+
+	/**
+	 * Returns the listener for the measurements of this object.
+	 * 
+	 * @return The listener or {@code null} if no measurements are taken.
+	 */
+	TrackerMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the time at which the current thread starts to synchronize on
+	 * this object if measurements are taken.
+	 * 
+	 * @return The current time in nanoseconds or 0 if no measurements are
+	 *         taken.
+	 */
+	final long lockStart() {
+		return (metrics == null) ? 0L : System.nanoTime();
+	}
+
+	/**
+	 * Report the time the current thread waited to synchronize on this
+	 * object if measurements are taken.
+	 * 
+	 * @param start The time returned by {@link #lockStart()} before
+	 *        synchronizing on this object.
+	 * @GuardedBy this
+	 */
+	final void lockEntered(final long start) {
+		final TrackerMetrics m = metrics;
+		if (m != null) {
+			m.lockWaited(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Coalesce the modifications of tracked items.
+	 * 
+	 * Once an item is modified, the customizer is called for its latest
+	 * modification after the specified time has elapsed or when
+	 * {@link #flushModified()} is called, whichever is first. Other
+	 * modifications of the item in the meantime are not delivered to the
+	 * customizer. The tracking count is still incremented for each
+	 * modification.
+	 * 
+	 * This method must be called from Tracker's open method while
+	 * synchronized on this object before events begin to be received.
+	 * 
+	 * @param scheduler The scheduler used to deliver the modifications.
+	 * @param nanos The time in nanoseconds for which modifications are
+	 *        coalesced.
+	 * @GuardedBy this
+	 */
+	void setCoalesceModified(final ScheduledExecutorService scheduler, final long nanos) {
+		coalesceScheduler = scheduler;
+		coalesceNanos = nanos;
 	}
 
 	/**
@@ -147,9 +307,12 @@ abstract class AbstractTracked<S, T, R> {
 	 * 
 	 */
 	void trackInitial() {
+		reportInitial();
 		while (true) {
 			S item;
+			final long start = lockStart();
 			synchronized (this) {
+				lockEntered(start);
 				if (closed || (initial.size() == 0)) {
 					/*
 					 * if there are no more initial items
@@ -182,7 +345,7 @@ abstract class AbstractTracked<S, T, R> {
 			if (DEBUG) {
 				System.out.println("AbstractTracked.trackInitial: " + item); //$NON-NLS-1$
 			}
-			trackAdding(item, null); /*
+			trackAdding(item, null, itemInfo(item)); /*
 									 * Begin tracking it. We call trackAdding
 									 * since we have already put the item in the
 									 * adding list.
@@ -190,6 +353,194 @@ abstract class AbstractTracked<S, T, R> {
 		}
 	}
 
+	/**
+	 * Report the number of initial items if measurements are taken.
+	 */
+	private void reportInitial() {
+		final TrackerMetrics m = metrics;
+		if (m == null) {
+			return;
+		}
+		final int count;
+		synchronized (this) {
+			count = initial.size();
+		}
+		m.initialItems(count);
+	}
+
+	/**
+	 * Track the initial list of items in one batch. This is called after
+	 * events can begin to be received.
+	 * 
+	 * All initial items are moved to the adding list and passed together to
+	 * {@link #customizerAddingBatch(List, Object[])}. The customized objects
+	 * are then tracked in the order of the initial list, so the tracking count
+	 * is incremented once for each tracked item, as by {@link #trackInitial()}.
+	 * Events for an item received while the batch is being customized are
+	 * handled as for an item being added by {@link #track(Object, Object)}.
+	 * 
+	 * This method must be called from Tracker's open method while not
+	 * synchronized on this object after the add listener call.
+	 */
+	void trackInitialBatch() {
+		reportInitial();
+		final List<S> items;
+		final long start = lockStart();
+		synchronized (this) {
+			lockEntered(start);
+			if (closed || (initial.size() == 0)) {
+				return;
+			}
+			items = new ArrayList<S>(initial.size());
+			for (S item : initial) {
+				if ((tracked.get(item) != null) || adding.contains(item)) {
+					/*
+					 * if we are already tracking this item or it is already
+					 * in the process of being added.
+					 */
+					if (DEBUG) {
+						System.out.println("AbstractTracked.trackInitialBatch[already tracked]: " + item); //$NON-NLS-1$
+					}
+					continue; /* skip this item */
+				}
+				adding.add(item);
+				items.add(item);
+			}
+			initial.clear();
+		}
+		if (DEBUG) {
+			System.out.println("AbstractTracked.trackInitialBatch: " + items); //$NON-NLS-1$
+		}
+		@SuppressWarnings("unchecked")
+		final T[] objects = (T[]) new Object[items.size()];
+		try {
+			customizerAddingBatch(Collections.unmodifiableList(items), objects);
+			/*
+			 * If the customizer throws an unchecked exception, it will
+			 * propagate after the finally
+			 */
+		} finally {
+			for (int i = 0; i < objects.length; i++) {
+				final S item = items.get(i);
+				trackAdded(item, null, objects[i], (objects[i] != null) ? itemInfo(item) : null);
+			}
+		}
+	}
+
+	/**
+	 * Schedule the delivery of the pending modifications. If the scheduler
+	 * rejects the delivery, the pending modifications are delivered now.
+	 * 
+	 * This method must not be called while synchronized on this object.
+	 */
+	private void scheduleFlushModified() {
+		final ScheduledExecutorService scheduler;
+		final long nanos;
+		final long start = lockStart();
+		synchronized (this) {
+			lockEntered(start);
+			scheduler = coalesceScheduler;
+			nanos = coalesceNanos;
+		}
+		try {
+			scheduler.schedule(this::flushModified, nanos, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			flushModified();
+		}
+	}
+
+	/**
+	 * Deliver the pending modifications of tracked items to the customizer.
+	 * Modifications of items which are no longer tracked are discarded.
+	 * 
+	 * If another thread is delivering modifications, this method waits for it
+	 * to finish. If it is called by the customizer while the modifications are
+	 * delivered, the pending modifications are delivered after the current
+	 * ones.
+	 * 
+	 * This method must not be called while synchronized on this object.
+	 */
+	void flushModified() {
+		final Thread current = Thread.currentThread();
+		Map<S, R> pending;
+		long start = lockStart();
+		synchronized (this) {
+			lockEntered(start);
+			if (flushing == current) { /* called by the customizer */
+				flushAgain = true;
+				return;
+			}
+			while (flushing != null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					flushAgain = true; /* the delivering thread delivers them */
+					current.interrupt();
+					return;
+				}
+			}
+			if (pendingModified.isEmpty()) {
+				return;
+			}
+			flushing = current;
+			pending = pendingModified;
+			pendingModified = new LinkedHashMap<S, R>();
+		}
+		try {
+			while (true) {
+				for (Map.Entry<S, R> entry : pending.entrySet()) {
+					final S item = entry.getKey();
+					final T object;
+					start = lockStart();
+					synchronized (this) {
+						lockEntered(start);
+						delivering = null;
+						notifyAll(); /* notify any thread untracking the item */
+						object = tracked.get(item);
+						if (object == null) { /* the item is no longer tracked */
+							continue;
+						}
+						delivering = item;
+					}
+					if (DEBUG) {
+						System.out.println("AbstractTracked.flushModified: " + item); //$NON-NLS-1$
+					}
+					/* Call customizer outside of synchronized region */
+					callModified(item, entry.getValue(), object);
+				}
+				start = lockStart();
+				synchronized (this) {
+					lockEntered(start);
+					delivering = null;
+					if (!flushAgain || pendingModified.isEmpty()) {
+						flushAgain = false;
+						return;
+					}
+					flushAgain = false;
+					pending = pendingModified;
+					pendingModified = new LinkedHashMap<S, R>();
+				}
+			}
+		} finally {
+			synchronized (this) {
+				delivering = null;
+				flushing = null;
+				notifyAll(); /* notify any waiting threads */
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of modifications not delivered to the customizer
+	 * because they were coalesced with a later modification or removal of the
+	 * same item.
+	 * 
+	 * @return The number of coalesced modifications.
+	 */
+	long getCoalescedCount() {
+		return coalescedCount;
+	}
+
 	/**
 	 * Called by the owning Tracker object when it is closed.
 	 */
@@ -205,7 +556,12 @@ abstract class AbstractTracked<S, T, R> {
 	 */
 	void track(final S item, final R related) {
 		final T object;
+		boolean deferred = false;
+		boolean schedule = false;
+		final Object info = itemInfo(item);
+		final long start = lockStart();
 		synchronized (this) {
+			lockEntered(start);
 			if (closed) {
 				return;
 			}
@@ -223,15 +579,29 @@ abstract class AbstractTracked<S, T, R> {
 				if (DEBUG) {
 					System.out.println("AbstractTracked.track[modified]: " + item); //$NON-NLS-1$
 				}
+				itemModified(item, info);
 				modified(); /* increment modification count */
+				if (coalesceScheduler != null) {
+					/* deliver the latest modification later */
+					deferred = true;
+					schedule = pendingModified.isEmpty();
+					if (pendingModified.containsKey(item)) {
+						coalescedCount++;
+					}
+					pendingModified.put(item, related);
+				}
 			}
 		}
 
 		if (object == null) { /* we are not tracking the item */
-			trackAdding(item, related);
+			trackAdding(item, related, info);
+		} else if (deferred) {
+			if (schedule) {
+				scheduleFlushModified();
+			}
 		} else {
 			/* Call customizer outside of synchronized region */
-			customizerModified(item, related, object);
+			callModified(item, related, object);
 			/*
 			 * If the customizer throws an unchecked exception, it is safe to
 			 * let it propagate
@@ -246,35 +616,58 @@ abstract class AbstractTracked<S, T, R> {
 	 * 
 	 * @param item Item to be tracked.
 	 * @param related Action related object.
+	 * @param info The properties of the item returned by
+	 *        {@link #itemInfo(Object)}.
 	 */
-	private void trackAdding(final S item, final R related) {
+	private void trackAdding(final S item, final R related, final Object info) {
 		if (DEBUG) {
 			System.out.println("AbstractTracked.trackAdding: " + item); //$NON-NLS-1$
 		}
 		T object = null;
-		boolean becameUntracked = false;
 		/* Call customizer outside of synchronized region */
 		try {
-			object = customizerAdding(item, related);
+			object = callAdding(item, related);
 			/*
 			 * If the customizer throws an unchecked exception, it will
 			 * propagate after the finally
 			 */
 		} finally {
-			synchronized (this) {
-				if (adding.remove(item) && !closed) {
-					/*
-					 * if the item was not untracked during the customizer
-					 * callback
-					 */
-					if (object != null) {
-						tracked.put(item, object);
-						modified(); /* increment modification count */
-						notifyAll(); /* notify any waiters */
-					}
-				} else {
-					becameUntracked = true;
+			trackAdded(item, related, object, info);
+		}
+	}
+
+	/**
+	 * Common logic to complete adding an item to the tracker after the
+	 * customizer has been called. The specified item is removed from the adding
+	 * list.
+	 * 
+	 * @param item Item to be tracked.
+	 * @param related Action related object.
+	 * @param object Customized object for the tracked item or {@code null} if
+	 *        the item is not to be tracked.
+	 * @param info The properties of the item returned by
+	 *        {@link #itemInfo(Object)}.
+	 */
+	private void trackAdded(final S item, final R related, final T object, final Object info) {
+		boolean becameUntracked = false;
+		final long start = lockStart();
+		synchronized (this) {
+			lockEntered(start);
+			if (adding.remove(item) && !closed) {
+				/*
+				 * if the item was not untracked during the customizer
+				 * callback
+				 */
+				if (object != null) {
+					Map<S, T> copy = new HashMap<S, T>(tracked);
+					copy.put(item, object);
+					tracked = copy;
+					itemAdded(item, info);
+					modified(); /* increment modification count */
+					notifyAll(); /* notify any waiters */
 				}
+			} else {
+				becameUntracked = true;
 			}
 		}
 		/*
@@ -285,7 +678,7 @@ abstract class AbstractTracked<S, T, R> {
 				System.out.println("AbstractTracked.trackAdding[removed]: " + item); //$NON-NLS-1$
 			}
 			/* Call customizer outside of synchronized region */
-			customizerRemoved(item, related, object);
+			callRemoved(item, related, object);
 			/*
 			 * If the customizer throws an unchecked exception, it is safe to
 			 * let it propagate
@@ -301,7 +694,21 @@ abstract class AbstractTracked<S, T, R> {
 	 */
 	void untrack(final S item, final R related) {
 		final T object;
+		final long start = lockStart();
 		synchronized (this) {
+			lockEntered(start);
+			/* wait for the delivery of a modification of the item */
+			boolean interrupted = false;
+			while ((delivering != null) && (flushing != Thread.currentThread()) && delivering.equals(item)) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 			if (initial.remove(item)) { /*
 										 * if this item is already in the list
 										 * of initial references to process
@@ -327,20 +734,27 @@ abstract class AbstractTracked<S, T, R> {
 						 * adding
 						 */
 			}
-			object = tracked.remove(item); /*
-											 * must remove from tracker before
-											 * calling customizer callback
-											 */
+			object = tracked.get(item);
 			if (object == null) { /* are we actually tracking the item */
 				return;
 			}
+			if (pendingModified.containsKey(item)) {
+				/* the removal supersedes the pending modification */
+				pendingModified.remove(item);
+				coalescedCount++;
+			}
+			/* must remove from tracker before calling customizer callback */
+			itemRemoved(item);
+			Map<S, T> copy = new HashMap<S, T>(tracked);
+			copy.remove(item);
+			tracked = copy;
 			modified(); /* increment modification count */
 		}
 		if (DEBUG) {
 			System.out.println("AbstractTracked.untrack[removed]: " + item); //$NON-NLS-1$
 		}
 		/* Call customizer outside of synchronized region */
-		customizerRemoved(item, related, object);
+		callRemoved(item, related, object);
 		/*
 		 * If the customizer throws an unchecked exception, it is safe to let it
 		 * propagate
@@ -351,8 +765,6 @@ abstract class AbstractTracked<S, T, R> {
 	 * Returns the number of tracked items.
 	 * 
 	 * @return The number of tracked items.
-	 * 
-	 * @GuardedBy this
 	 */
 	int size() {
 		return tracked.size();
@@ -363,7 +775,6 @@ abstract class AbstractTracked<S, T, R> {
 	 * 
 	 * @return Whether the tracker is empty.
 	 * 
-	 * @GuardedBy this
 	 * @since 1.5
 	 */
 	boolean isEmpty() {
@@ -375,8 +786,6 @@ abstract class AbstractTracked<S, T, R> {
 	 * 
 	 * @param item The item to lookup in the map
 	 * @return The customized object for the specified item.
-	 * 
-	 * @GuardedBy this
 	 */
 	T getCustomizedObject(final S item) {
 		return tracked.get(item);
@@ -388,12 +797,68 @@ abstract class AbstractTracked<S, T, R> {
 	 * @param list An array to contain the tracked items.
 	 * @return The specified list if it is large enough to hold the tracked
 	 *         items or a new array large enough to hold the tracked items.
-	 * @GuardedBy this
 	 */
 	S[] copyKeys(final S[] list) {
 		return tracked.keySet().toArray(list);
 	}
 
+	/**
+	 * Read the properties of an item which are used to maintain additional
+	 * structures of the tracked items. Reading the properties may call the
+	 * framework, so this method is called while not synchronized on this
+	 * object, and the result is passed to {@link #itemAdded(Object, Object)}
+	 * or {@link #itemModified(Object, Object)}.
+	 * 
+	 * @param item The item being added or modified.
+	 * @return The properties of the item or {@code null} if there are no
+	 *         additional structures.
+	 */
+	Object itemInfo(final S item) {
+		return null; /* no additional structures by default */
+	}
+
+	/**
+	 * Called after an item has been added to the tracked items. Subclasses can
+	 * override this method to maintain additional structures of the tracked
+	 * items. This method is called before {@link #modified()}.
+	 * 
+	 * @param item The added item.
+	 * @param info The properties of the item returned by
+	 *        {@link #itemInfo(Object)}.
+	 * @GuardedBy this
+	 */
+	void itemAdded(final S item, final Object info) {
+		// no additional structures by default
+	}
+
+	/**
+	 * Called when a tracked item has been modified. Subclasses can override
+	 * this method to maintain additional structures of the tracked items. This
+	 * method is called before {@link #modified()}.
+	 * 
+	 * @param item The modified item.
+	 * @param info The properties of the item returned by
+	 *        {@link #itemInfo(Object)}.
+	 * @GuardedBy this
+	 */
+	void itemModified(final S item, final Object info) {
+		// no additional structures by default
+	}
+
+	/**
+	 * Called before an item is removed from the tracked items. Subclasses can
+	 * override this method to maintain additional structures of the tracked
+	 * items. Since items are added to these structures after they are added
+	 * to the tracked items and removed before, a reader never finds an item
+	 * in these structures which is not in the tracked items.
+	 * 
+	 * @param item The removed item.
+	 * @GuardedBy this
+	 */
+	void itemRemoved(final S item) {
+		// no additional structures by default
+	}
+
 	/**
 	 * Increment the modification count. If this method is overridden, the
 	 * overriding method MUST call this method to increment the tracking count.
@@ -411,7 +876,6 @@ abstract class AbstractTracked<S, T, R> {
 	 * time an item is added, modified or removed from this object the tracking
 	 * count is incremented.
 	 * 
-	 * @GuardedBy this
 	 * @return The tracking count for this object.
 	 */
 	int getTrackingCount() {
@@ -424,10 +888,8 @@ abstract class AbstractTracked<S, T, R> {
 	 * @param <M> Type of {@code Map} to hold the tracked items and associated
 	 *        values.
 	 * @param map The map into which to copy the tracked items and associated
-	 *        values. This map must not be a user provided map so that user code
-	 *        is not executed while synchronized on this.
+	 *        values.
 	 * @return The specified map.
-	 * @GuardedBy this
 	 * @since 1.5
 	 */
 	<M extends Map<? super S, ? super T>> M copyEntries(final M map) {
@@ -446,6 +908,94 @@ abstract class AbstractTracked<S, T, R> {
 	 */
 	abstract T customizerAdding(final S item, final R related);
 
+	/**
+	 * Call the specific customizer adding method and report the time taken by
+	 * the customizer if measurements are taken. This method must not be called
+	 * while synchronized on this object.
+	 * 
+	 * @param item Item to be tracked.
+	 * @param related Action related object.
+	 * @return Customized object for the tracked item or {@code null} if the
+	 *         item is not to be tracked.
+	 */
+	final T callAdding(final S item, final R related) {
+		final TrackerMetrics m = metrics;
+		if (m == null) {
+			return customizerAdding(item, related);
+		}
+		final long start = System.nanoTime();
+		try {
+			return customizerAdding(item, related);
+		} finally {
+			m.customizerCalled(TrackerMetrics.ADDING, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Call the specific customizer modified method and report the time taken
+	 * by the customizer if measurements are taken. This method must not be
+	 * called while synchronized on this object.
+	 * 
+	 * @param item Tracked item.
+	 * @param related Action related object.
+	 * @param object Customized object for the tracked item.
+	 */
+	final void callModified(final S item, final R related, final T object) {
+		final TrackerMetrics m = metrics;
+		if (m == null) {
+			customizerModified(item, related, object);
+			return;
+		}
+		final long start = System.nanoTime();
+		try {
+			customizerModified(item, related, object);
+		} finally {
+			m.customizerCalled(TrackerMetrics.MODIFIED, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Call the specific customizer removed method and report the time taken by
+	 * the customizer if measurements are taken. This method must not be called
+	 * while synchronized on this object.
+	 * 
+	 * @param item Item to be untracked.
+	 * @param related Action related object.
+	 * @param object Customized object for the tracked item.
+	 */
+	final void callRemoved(final S item, final R related, final T object) {
+		final TrackerMetrics m = metrics;
+		if (m == null) {
+			customizerRemoved(item, related, object);
+			return;
+		}
+		final long start = System.nanoTime();
+		try {
+			customizerRemoved(item, related, object);
+		} finally {
+			m.customizerCalled(TrackerMetrics.REMOVED, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Call the specific customizer adding method for a batch of items. This
+	 * method must not be called while synchronized on this object.
+	 * 
+	 * This implementation calls {@link #callAdding(Object, Object)} for
+	 * each item in turn.
+	 * 
+	 * @param items Items to be tracked.
+	 * @param objects Array in which to store the customized object for each
+	 *        item at the index of the item or {@code null} if the item is not
+	 *        to be tracked. If this method throws an exception, the objects
+	 *        stored so far are still tracked.
+	 */
+	void customizerAddingBatch(final List<S> items, final T[] objects) {
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = callAdding(items.get(i), null);
+		}
+	}
+
 	/**
 	 * Call the specific customizer modified method. This method must not be
 	 * called while synchronized on this object.
@@ -18,8 +18,15 @@
 
 package org.osgi.util.tracker;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.osgi.annotation.versioning.ConsumerType;
 import org.osgi.framework.Bundle;
@@ -72,6 +79,13 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 	 */
 	private volatile Tracked			tracked;
 
+	/**
+	 * Listener for the measurements of this tracker or {@code null}.
+	 * 
+	 * @GuardedBy this
+	 */
+	private TrackerMetrics				metrics;
+
 	/**
 	 * Accessor method for the current Tracked object. This method is only
 	 * intended to be used by the unsynchronized methods which do not modify the
@@ -89,6 +103,12 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 	 */
 	final int	mask;
 
+	/**
+	 * Number of attempts to index a manifest header while the tracked bundles
+	 * are changing.
+	 */
+	private static final int	MAX_INDEX_ATTEMPTS	= 4;
+
 	/**
 	 * Create a {@code BundleTracker} for bundles whose state is present in the
 	 * specified state mask.
@@ -140,6 +160,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 			}
 			t = new Tracked();
 			synchronized (t) {
+				t.setMetrics(metrics);
 				context.addBundleListener(t);
 				Bundle[] bundles = context.getBundles();
 				if (bundles != null) {
@@ -161,6 +182,24 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		t.trackInitial(); /* process the initial references */
 	}
 
+	/**
+	 * Set the {@code TrackerMetrics} object which receives the measurements of
+	 * this {@code BundleTracker}.
+	 * 
+	 * <p>
+	 * This method takes effect the next time this {@code BundleTracker} is
+	 * opened.
+	 * 
+	 * @param metrics The {@code TrackerMetrics} object or {@code null} if no
+	 *        measurements are to be taken.
+	 * @since 1.6
+	 */
+	public void setMetrics(TrackerMetrics metrics) {
+		synchronized (this) {
+			this.metrics = metrics;
+		}
+	}
+
 	/**
 	 * Close this {@code BundleTracker}.
 	 * 
@@ -287,12 +326,71 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return null;
 		}
-		synchronized (t) {
-			if (t.isEmpty()) {
-				return null;
-			}
-			return t.copyKeys(new Bundle[0]);
+		Bundle[] result = t.copyKeys(new Bundle[0]);
+		if (result.length == 0) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Return an array of {@code Bundle}s for the bundles being tracked by this
+	 * {@code BundleTracker} whose state is in the specified state mask.
+	 * 
+	 * <p>
+	 * The tracked bundles are indexed by their state when they are added to or
+	 * modified in this {@code BundleTracker}, so this method does not examine
+	 * every tracked bundle.
+	 * 
+	 * @param stateMask The bit mask of the {@code OR}ing of the bundle states
+	 *        to be returned.
+	 * @return An array of {@code Bundle}s or {@code null} if no bundles in the
+	 *         specified states are being tracked.
+	 * @since 1.6
+	 */
+	public Bundle[] getBundles(int stateMask) {
+		final Tracked t = tracked();
+		if (t == null) { /* if BundleTracker is not open */
+			return null;
+		}
+		Bundle[] result = t.index().getBundles(stateMask);
+		if (result.length == 0) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Return an array of {@code Bundle}s for the bundles being tracked by this
+	 * {@code BundleTracker} which have the specified manifest header.
+	 * 
+	 * <p>
+	 * The first call to this method for a header name indexes the tracked
+	 * bundles by the header. The index is then maintained as bundles are
+	 * added to, modified in and removed from this {@code BundleTracker}, so
+	 * later calls for the header name do not examine every tracked bundle.
+	 * The raw, unlocalized manifest headers of the bundles are used.
+	 * 
+	 * @param name The name of the manifest header. Header names are
+	 *        case-insensitive.
+	 * @return An array of {@code Bundle}s or {@code null} if no bundles with
+	 *         the specified header are being tracked.
+	 * @since 1.6
+	 */
+	public Bundle[] getBundlesWithHeader(String name) {
+		final Tracked t = tracked();
+		if (t == null) { /* if BundleTracker is not open */
+			return null;
+		}
+		final String key = name.toLowerCase(Locale.ROOT);
+		Bundle[] result = t.index().getBundlesWithHeader(key);
+		if (result == null) { /* if the header is not yet indexed */
+			result = t.indexHeader(key);
 		}
+		if (result.length == 0) {
+			return null;
+		}
+		return result.clone();
 	}
 
 	/**
@@ -309,9 +407,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return null;
 		}
-		synchronized (t) {
-			return t.getCustomizedObject(bundle);
-		}
+		return t.getCustomizedObject(bundle);
 	}
 
 	/**
@@ -342,9 +438,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return 0;
 		}
-		synchronized (t) {
-			return t.size();
-		}
+		return t.size();
 	}
 
 	/**
@@ -370,9 +464,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return -1;
 		}
-		synchronized (t) {
-			return t.getTrackingCount();
-		}
+		return t.getTrackingCount();
 	}
 
 	/**
@@ -390,9 +482,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return map;
 		}
-		synchronized (t) {
-			return t.copyEntries(map);
-		}
+		return t.copyEntries(map);
 	}
 
 	/**
@@ -407,9 +497,7 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 		if (t == null) { /* if BundleTracker is not open */
 			return true;
 		}
-		synchronized (t) {
-			return t.isEmpty();
-		}
+		return t.isEmpty();
 	}
 
 	/**
@@ -420,11 +508,97 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 	 * @since 1.4
 	 */
 	private final class Tracked extends AbstractTracked<Bundle, T, BundleEvent> implements SynchronousBundleListener {
+		/**
+		 * The tracked bundles indexed by state and manifest header.
+		 * 
+		 * This field is volatile so the index can be read without
+		 * synchronizing on this object.
+		 * 
+		 * @GuardedBy this for assignment
+		 */
+		private volatile Index	index;
+
 		/**
 		 * Tracked constructor.
 		 */
 		Tracked() {
 			super();
+			index = Index.EMPTY;
+		}
+
+		/**
+		 * Returns the index of the tracked bundles.
+		 * 
+		 * @return The index of the tracked bundles.
+		 */
+		Index index() {
+			return index;
+		}
+
+		/**
+		 * Index the tracked bundles by the specified manifest header.
+		 * 
+		 * The headers of the tracked bundles are read while not synchronized
+		 * on this object, since reading them may call the framework. The
+		 * header is only indexed if the index did not change in the meantime.
+		 * After {@link #MAX_INDEX_ATTEMPTS} attempts, the tracked bundles with
+		 * the header are returned without indexing the header.
+		 * 
+		 * @param key The lower case name of the manifest header.
+		 * @return The tracked bundles with the header.
+		 */
+		Bundle[] indexHeader(final String key) {
+			for (int attempt = 1;; attempt++) {
+				final Index i = index;
+				Bundle[] result = i.getBundlesWithHeader(key);
+				if (result != null) {
+					return result;
+				}
+				result = i.readBundlesWithHeader(key);
+				if (attempt >= MAX_INDEX_ATTEMPTS) {
+					return result;
+				}
+				final long start = lockStart();
+				synchronized (this) {
+					lockEntered(start);
+					if (index == i) {
+						index = i.indexHeader(key, result);
+						return result;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Read the state and the headers of the specified bundle.
+		 */
+		@Override
+		Object itemInfo(final Bundle bundle) {
+			return Index.read(bundle, index);
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		void itemAdded(final Bundle bundle, final Object info) {
+			index = index.put(bundle, (BundleInfo) info);
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		void itemModified(final Bundle bundle, final Object info) {
+			index = index.put(bundle, (BundleInfo) info);
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		void itemRemoved(final Bundle bundle) {
+			index = index.remove(bundle);
 		}
 
 		/**
@@ -503,4 +677,251 @@ public class BundleTracker<T> implements BundleTrackerCustomizer<T> {
 			customizer.removedBundle(item, related, object);
 		}
 	}
+
+	/**
+	 * Immutable index of bundles by state and by manifest header. The state
+	 * of a bundle is recorded when it is put in the index, since the state of
+	 * a bundle can change at any time. Only the manifest headers for which
+	 * {@link #indexHeader(String)} has been called are indexed.
+	 * 
+	 * @Immutable
+	 */
+	static final class Index {
+		static final Index					EMPTY	= new Index(Collections.<Bundle, Integer> emptyMap(), new Bundle[Integer.SIZE][], Collections.<String, Bundle[]> emptyMap());
+		private static final Bundle[]		NONE	= new Bundle[0];
+
+		/**
+		 * The recorded state of each indexed bundle.
+		 */
+		private final Map<Bundle, Integer>	states;
+		/**
+		 * The bundles in each state indexed by the bit position of the state.
+		 * A {@code null} element means no bundles have been in the state.
+		 */
+		private final Bundle[][]			byState;
+		/**
+		 * The bundles with each indexed header keyed by the lower case header
+		 * name.
+		 */
+		private final Map<String, Bundle[]>	byHeader;
+
+		private Index(Map<Bundle, Integer> states, Bundle[][] byState, Map<String, Bundle[]> byHeader) {
+			this.states = states;
+			this.byState = byState;
+			this.byHeader = byHeader;
+		}
+
+		/**
+		 * Returns the bundles whose state is in the specified state mask.
+		 */
+		Bundle[] getBundles(int stateMask) {
+			Bundle[] result = NONE;
+			int length = 0;
+			for (int mask = stateMask; mask != 0; mask &= mask - 1) {
+				Bundle[] bundles = byState[Integer.numberOfTrailingZeros(mask)];
+				if (bundles == null) {
+					continue;
+				}
+				if (result.length < length + bundles.length) {
+					result = Arrays.copyOf(result, Math.max(length + bundles.length, states.size()));
+				}
+				System.arraycopy(bundles, 0, result, length, bundles.length);
+				length += bundles.length;
+			}
+			return (result.length == length) ? result : Arrays.copyOf(result, length);
+		}
+
+		/**
+		 * Returns the bundles with the specified header or {@code null} if
+		 * the header is not indexed. The returned array must not be modified.
+		 */
+		Bundle[] getBundlesWithHeader(String key) {
+			return byHeader.get(key);
+		}
+
+		/**
+		 * Returns the bundles in this index with the specified header. This
+		 * method calls the framework, so it must not be called while
+		 * synchronized on the tracked object.
+		 */
+		Bundle[] readBundlesWithHeader(String key) {
+			List<Bundle> bundles = new ArrayList<Bundle>();
+			for (Bundle bundle : states.keySet()) {
+				Dictionary<String, String> headers = headers(bundle);
+				if ((headers != null) && (headers.get(key) != null)) {
+					bundles.add(bundle);
+				}
+			}
+			return bundles.toArray(NONE);
+		}
+
+		/**
+		 * Returns an index which also indexes the specified header.
+		 */
+		Index indexHeader(String key, Bundle[] bundles) {
+			Map<String, Bundle[]> h = new HashMap<String, Bundle[]>(byHeader);
+			h.put(key, bundles);
+			return new Index(states, byState, h);
+		}
+
+		/**
+		 * Read the state of the specified bundle and, if the specified index
+		 * indexes any headers, the headers of the bundle. This method calls
+		 * the framework, so it must not be called while synchronized on the
+		 * tracked object.
+		 */
+		static BundleInfo read(Bundle bundle, Index index) {
+			Map<String, Bundle[]> h = index.byHeader;
+			return new BundleInfo(bundle.getState(), h.keySet(), h.isEmpty() ? null : headers(bundle));
+		}
+
+		/**
+		 * Returns an index with the specified bundle added or updated to the
+		 * specified state and headers.
+		 * 
+		 * Headers which were indexed after the headers of the bundle were read
+		 * are dropped from the returned index, so they are indexed again when
+		 * they are next requested.
+		 */
+		Index put(Bundle bundle, BundleInfo info) {
+			final int state = info.state;
+			Integer previous = states.get(bundle);
+			Map<Bundle, Integer> s = states;
+			Bundle[][] b = byState;
+			if ((previous == null) || (previous.intValue() != state)) {
+				s = new HashMap<Bundle, Integer>(states);
+				s.put(bundle, Integer.valueOf(state));
+				b = byState.clone();
+				if (previous != null) {
+					int i = slot(previous.intValue());
+					b[i] = without(b[i], bundle);
+				}
+				int i = slot(state);
+				b[i] = with(b[i], bundle);
+			}
+			Map<String, Bundle[]> h = byHeader;
+			if (!byHeader.isEmpty()) {
+				Dictionary<String, String> headers = info.headers;
+				for (Map.Entry<String, Bundle[]> entry : byHeader.entrySet()) {
+					String key = entry.getKey();
+					if (!info.keys.contains(key)) { /* headers not read */
+						if (h == byHeader) {
+							h = new HashMap<String, Bundle[]>(byHeader);
+						}
+						h.remove(key);
+						continue;
+					}
+					Bundle[] bundles = entry.getValue();
+					boolean indexed = contains(bundles, bundle);
+					if (((headers != null) && (headers.get(key) != null)) != indexed) {
+						if (h == byHeader) {
+							h = new HashMap<String, Bundle[]>(byHeader);
+						}
+						h.put(key, indexed ? without(bundles, bundle) : with(bundles, bundle));
+					}
+				}
+			}
+			if ((s == states) && (h == byHeader)) {
+				return this;
+			}
+			return new Index(s, b, h);
+		}
+
+		/**
+		 * Returns an index without the specified bundle.
+		 */
+		Index remove(Bundle bundle) {
+			Integer previous = states.get(bundle);
+			if (previous == null) {
+				return this;
+			}
+			Map<Bundle, Integer> s = new HashMap<Bundle, Integer>(states);
+			s.remove(bundle);
+			Bundle[][] b = byState.clone();
+			int i = slot(previous.intValue());
+			b[i] = without(b[i], bundle);
+			Map<String, Bundle[]> h = byHeader;
+			if (!byHeader.isEmpty()) {
+				h = new HashMap<String, Bundle[]>(byHeader);
+				for (Map.Entry<String, Bundle[]> entry : h.entrySet()) {
+					entry.setValue(without(entry.getValue(), bundle));
+				}
+			}
+			return new Index(s, b, h);
+		}
+
+		private static int slot(int state) {
+			return Integer.numberOfTrailingZeros(state) & (Integer.SIZE - 1);
+		}
+
+		private static Dictionary<String, String> headers(Bundle bundle) {
+			try {
+				return bundle.getHeaders(""); //$NON-NLS-1$
+			} catch (SecurityException e) {
+				return null; /* treat the headers as absent */
+			}
+		}
+
+		private static boolean contains(Bundle[] bundles, Bundle bundle) {
+			for (Bundle b : bundles) {
+				if (b == bundle) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static Bundle[] with(Bundle[] bundles, Bundle bundle) {
+			if (bundles == null) {
+				return new Bundle[] {bundle};
+			}
+			Bundle[] result = Arrays.copyOf(bundles, bundles.length + 1);
+			result[bundles.length] = bundle;
+			return result;
+		}
+
+		private static Bundle[] without(Bundle[] bundles, Bundle bundle) {
+			if (bundles == null) {
+				return null;
+			}
+			for (int i = 0; i < bundles.length; i++) {
+				if (bundles[i] == bundle) {
+					if (bundles.length == 1) {
+						return NONE;
+					}
+					Bundle[] result = new Bundle[bundles.length - 1];
+					System.arraycopy(bundles, 0, result, 0, i);
+					System.arraycopy(bundles, i + 1, result, i, result.length - i);
+					return result;
+				}
+			}
+			return bundles;
+		}
+	}
+
+	/**
+	 * The state and headers of a bundle read before the tracked bundles are
+	 * updated.
+	 * 
+	 * @Immutable
+	 */
+	static final class BundleInfo {
+		final int							state;
+		/**
+		 * The lower case names of the headers indexed when the headers were
+		 * read.
+		 */
+		final Set<String>					keys;
+		/**
+		 * The headers of the bundle or {@code null} if no headers were indexed
+		 * or the headers could not be read.
+		 */
+		final Dictionary<String, String>	headers;
+
+		BundleInfo(int state, Set<String> keys, Dictionary<String, String> headers) {
+			this.state = state;
+			this.keys = keys;
+			this.headers = headers;
+		}
+	}
 }
@@ -20,9 +20,16 @@ package org.osgi.util.tracker;
 
 import java.lang.reflect.Array;
 import java.util.Collections;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.osgi.annotation.versioning.ConsumerType;
 import org.osgi.framework.AllServiceListener;
@@ -99,6 +106,25 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 	 * {@code ServiceListener} object
 	 */
 	private volatile Tracked				tracked;
+	/**
+	 * Scheduler used to deliver coalesced modifications or {@code null} if
+	 * modifications are not coalesced.
+	 * 
+	 * @GuardedBy this
+	 */
+	private ScheduledExecutorService		coalesceScheduler;
+	/**
+	 * Time in nanoseconds for which modifications are coalesced.
+	 * 
+	 * @GuardedBy this
+	 */
+	private long							coalesceNanos;
+	/**
+	 * Listener for the measurements of this tracker or {@code null}.
+	 * 
+	 * @GuardedBy this
+	 */
+	private TrackerMetrics					metrics;
 
 	/**
 	 * Accessor method for the current Tracked object. This method is only
@@ -124,6 +150,18 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 	 */
 	private volatile T						cachedService;
 
+	/**
+	 * Number of attempts to read the tracked services without synchronizing
+	 * on the tracked object.
+	 */
+	private static final int				MAX_READ_ATTEMPTS	= 4;
+
+	/**
+	 * {@code true} if {@link #getServiceReferences()} is not overridden and
+	 * so returns the tracked references in ranking order.
+	 */
+	private final boolean					rankedReferences	= isRanked(getClass());
+
 	/**
 	 * Create a {@code ServiceTracker} on the specified {@code ServiceReference}
 	 * .
@@ -286,6 +324,52 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 	 * @since 1.3
 	 */
 	public void open(boolean trackAllServices) {
+		open(trackAllServices, null);
+	}
+
+	/**
+	 * Open this {@code ServiceTracker} and begin tracking services, adding the
+	 * initial services in one batch.
+	 * 
+	 * <p>
+	 * Services which match the search criteria specified when this
+	 * {@code ServiceTracker} was created are now tracked by this
+	 * {@code ServiceTracker}.
+	 * 
+	 * <p>
+	 * If the customizer of this {@code ServiceTracker} is a
+	 * {@link ServiceTrackerBatchCustomizer}, the services which match the
+	 * search criteria when this method is called are passed to
+	 * {@link ServiceTrackerBatchCustomizer#addingServices(java.util.List)
+	 * addingServices} in one call. Otherwise, if an executor is specified,
+	 * {@link ServiceTrackerCustomizer#addingService(ServiceReference)
+	 * addingService} is called for each of these services using the executor,
+	 * so that the customizer can be called for several services concurrently.
+	 * This method returns once the customizer has been called for all of these
+	 * services. The customized services are then added to this
+	 * {@code ServiceTracker} on the calling thread in the order of the
+	 * services, so the tracking count is incremented once for each added
+	 * service.
+	 * 
+	 * <p>
+	 * If the customizer is not a {@code ServiceTrackerBatchCustomizer} and no
+	 * executor is specified, this method behaves as {@link #open(boolean)}.
+	 * 
+	 * @param trackAllServices If {@code true}, then this {@code ServiceTracker}
+	 *        will track all matching services regardless of class loader
+	 *        accessibility. If {@code false}, then this {@code ServiceTracker}
+	 *        will only track matching services which are class loader
+	 *        accessible to the bundle whose {@code BundleContext} is used by
+	 *        this {@code ServiceTracker}.
+	 * @param executor The executor used to call the customizer for the initial
+	 *        services or {@code null} to call the customizer on the calling
+	 *        thread. If the executor rejects a task, the customizer is called
+	 *        on the calling thread.
+	 * @throws java.lang.IllegalStateException If the {@code BundleContext} with
+	 *         which this {@code ServiceTracker} was created is no longer valid.
+	 * @since 1.6
+	 */
+	public void open(boolean trackAllServices, Executor executor) {
 		final Tracked t;
 		synchronized (this) {
 			if (tracked != null) {
@@ -296,6 +380,10 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			}
 			t = trackAllServices ? new AllTracked() : new Tracked();
 			synchronized (t) {
+				if (coalesceScheduler != null) {
+					t.setCoalesceModified(coalesceScheduler, coalesceNanos);
+				}
+				t.setMetrics(metrics);
 				try {
 					context.addServiceListener(t, listenerFilter);
 					ServiceReference<S>[] references = null;
@@ -304,9 +392,8 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 					} else {
 						if (trackReference != null) {
 							if (trackReference.getBundle() != null) {
-								@SuppressWarnings("unchecked")
-								ServiceReference<S>[] single = new ServiceReference[] {trackReference};
-								references = single;
+								references = Ranking.newArray(1);
+								references[0] = trackReference;
 							}
 						} else { /* user supplied filter */
 							references = getInitialReferences(trackAllServices, null, listenerFilter);
@@ -321,7 +408,11 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			tracked = t;
 		}
 		/* Call tracked outside of synchronized region */
-		t.trackInitial(); /* process the initial references */
+		if ((executor != null) || (customizer instanceof ServiceTrackerBatchCustomizer)) {
+			t.trackInitialBatch(executor); /* process the initial references */
+		} else {
+			t.trackInitial(); /* process the initial references */
+		}
 	}
 
 	/**
@@ -343,6 +434,89 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		return result;
 	}
 
+	/**
+	 * Coalesce the modifications of tracked services.
+	 * 
+	 * <p>
+	 * When a tracked service is modified, the customizer is normally called
+	 * for each {@code ServiceEvent.MODIFIED} event. When modifications are
+	 * coalesced, the customizer is called once with the latest properties of
+	 * the service after the specified time has elapsed since the first
+	 * undelivered modification, or when {@link #flushModified()} is called,
+	 * whichever is first. Other modifications of the service in the meantime
+	 * are not delivered to the customizer and are counted by
+	 * {@link #getCoalescedCount()}. Undelivered modifications of a service are
+	 * discarded when the service is removed from this {@code ServiceTracker}.
+	 * 
+	 * <p>
+	 * Only the calls to
+	 * {@link ServiceTrackerCustomizer#modifiedService(ServiceReference, Object)
+	 * modifiedService} are coalesced. The tracked services, their ranking
+	 * order and the tracking count are updated for each modification.
+	 * 
+	 * <p>
+	 * This method takes effect the next time this {@code ServiceTracker} is
+	 * opened.
+	 * 
+	 * @param time The time for which modifications are coalesced. Must not be
+	 *        negative.
+	 * @param unit The unit of the specified time.
+	 * @param scheduler The scheduler used to call the customizer for the
+	 *        coalesced modifications or {@code null} to call the customizer
+	 *        for every modification. If the scheduler rejects a task, the
+	 *        customizer is called on the thread delivering the modification.
+	 * @throws IllegalArgumentException If the specified time is negative.
+	 * @since 1.6
+	 */
+	public void coalesceModified(long time, TimeUnit unit, ScheduledExecutorService scheduler) {
+		if (time < 0) {
+			throw new IllegalArgumentException("negative time");
+		}
+		final long nanos = unit.toNanos(time);
+		synchronized (this) {
+			coalesceScheduler = scheduler;
+			coalesceNanos = nanos;
+		}
+	}
+
+	/**
+	 * Call the customizer for the coalesced modifications of tracked services
+	 * which have not yet been delivered.
+	 * 
+	 * <p>
+	 * This method can be called at a quiescence point, such as after a group
+	 * of services has been modified, to deliver the modifications without
+	 * waiting for the coalescing time to elapse.
+	 * 
+	 * @see #coalesceModified(long, TimeUnit, ScheduledExecutorService)
+	 * @since 1.6
+	 */
+	public void flushModified() {
+		final Tracked t = tracked();
+		if (t == null) { /* if ServiceTracker is not open */
+			return;
+		}
+		t.flushModified();
+	}
+
+	/**
+	 * Set the {@code TrackerMetrics} object which receives the measurements of
+	 * this {@code ServiceTracker}.
+	 * 
+	 * <p>
+	 * This method takes effect the next time this {@code ServiceTracker} is
+	 * opened.
+	 * 
+	 * @param metrics The {@code TrackerMetrics} object or {@code null} if no
+	 *        measurements are to be taken.
+	 * @since 1.6
+	 */
+	public void setMetrics(TrackerMetrics metrics) {
+		synchronized (this) {
+			this.metrics = metrics;
+		}
+	}
+
 	/**
 	 * Close this {@code ServiceTracker}.
 	 * 
@@ -531,14 +705,11 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return null;
 		}
-		synchronized (t) {
-			if (t.isEmpty()) {
-				return null;
-			}
-			@SuppressWarnings("unchecked")
-			ServiceReference<S>[] result = new ServiceReference[0];
-			return t.copyKeys(result);
+		ServiceReference<S>[] references = t.ranking().references;
+		if (references.length == 0) {
+			return null;
 		}
+		return references.clone();
 	}
 
 	/**
@@ -551,7 +722,9 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 	 * {@code BundleContext.getServiceReference}.
 	 * <p>
 	 * This implementation calls {@link #getServiceReferences()} to get the list
-	 * of references for the tracked services.
+	 * of references for the tracked services. If {@code getServiceReferences}
+	 * is not overridden, the references are already in ranking order and the
+	 * first of them is returned.
 	 * 
 	 * @return A {@code ServiceReference} or {@code null} if no services are
 	 *         being tracked.
@@ -568,6 +741,17 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (DEBUG) {
 			System.out.println("ServiceTracker.getServiceReference: " + filter);
 		}
+		if (rankedReferences) {
+			final Tracked t = tracked();
+			if (t == null) { /* if ServiceTracker is not open */
+				return null;
+			}
+			ServiceReference<S>[] references = t.ranking().references;
+			if (references.length == 0) { /* if no service is being tracked */
+				return null;
+			}
+			return cachedReference = references[0];
+		}
 		ServiceReference<S>[] references = getServiceReferences();
 		int length = (references == null) ? 0 : references.length;
 		if (length == 0) { /* if no service is being tracked */
@@ -579,8 +763,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			int count = 0;
 			int maxRanking = Integer.MIN_VALUE;
 			for (int i = 0; i < length; i++) {
-				Object property = references[i].getProperty(Constants.SERVICE_RANKING);
-				int ranking = (property instanceof Integer) ? ((Integer) property).intValue() : 0;
+				int ranking = Ranking.rankingOf(references[i]);
 				rankings[i] = ranking;
 				if (ranking > maxRanking) {
 					index = i;
@@ -608,6 +791,21 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		return cachedReference = references[index];
 	}
 
+	/**
+	 * Returns whether the specified tracker class inherits
+	 * {@link #getServiceReferences()} from this class.
+	 * 
+	 * @param clazz The tracker class.
+	 * @return {@code true} if {@code getServiceReferences} is not overridden.
+	 */
+	private static boolean isRanked(Class< ? > clazz) {
+		try {
+			return clazz.getMethod("getServiceReferences").getDeclaringClass() == ServiceTracker.class;
+		} catch (NoSuchMethodException | SecurityException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Returns the service object for the specified {@code ServiceReference} if
 	 * the specified referenced service is being tracked by this
@@ -622,9 +820,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return null;
 		}
-		synchronized (t) {
-			return t.getCustomizedObject(reference);
-		}
+		return t.getCustomizedObject(reference);
 	}
 
 	/**
@@ -645,7 +841,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return null;
 		}
-		synchronized (t) {
+		return read(t, () -> {
 			ServiceReference<S>[] references = getServiceReferences();
 			int length = (references == null) ? 0 : references.length;
 			if (length == 0) {
@@ -656,7 +852,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 				objects[i] = getService(references[i]);
 			}
 			return objects;
-		}
+		});
 	}
 
 	/**
@@ -717,9 +913,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return 0;
 		}
-		synchronized (t) {
-			return t.size();
-		}
+		return t.size();
 	}
 
 	/**
@@ -746,9 +940,30 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return -1;
 		}
-		synchronized (t) {
-			return t.getTrackingCount();
+		return t.getTrackingCount();
+	}
+
+	/**
+	 * Returns the number of coalesced modifications for this
+	 * {@code ServiceTracker}.
+	 * 
+	 * The count is initialized to 0 when this {@code ServiceTracker} is
+	 * opened. Every time a modification of a tracked service is not delivered
+	 * to the customizer because it is superseded by a later modification or
+	 * the removal of the service, the count is incremented.
+	 * 
+	 * @return The number of coalesced modifications for this
+	 *         {@code ServiceTracker} or -1 if this {@code ServiceTracker} is
+	 *         not open.
+	 * @see #coalesceModified(long, TimeUnit, ScheduledExecutorService)
+	 * @since 1.6
+	 */
+	public long getCoalescedCount() {
+		final Tracked t = tracked();
+		if (t == null) { /* if ServiceTracker is not open */
+			return -1;
 		}
+		return t.getCoalescedCount();
 	}
 
 	/**
@@ -786,9 +1001,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return map;
 		}
-		synchronized (t) {
-			return t.copyEntries(map);
-		}
+		return t.copyEntries(map);
 	}
 
 	/**
@@ -803,9 +1016,7 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 		if (t == null) { /* if ServiceTracker is not open */
 			return true;
 		}
-		synchronized (t) {
-			return t.isEmpty();
-		}
+		return t.isEmpty();
 	}
 
 	/**
@@ -837,27 +1048,60 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			}
 			return array;
 		}
-		synchronized (t) {
+		final T[] target = array;
+		return read(t, () -> {
 			ServiceReference<S>[] references = getServiceReferences();
 			int length = (references == null) ? 0 : references.length;
 			if (length == 0) {
-				if (array.length > 0) {
-					array[0] = null;
+				if (target.length > 0) {
+					target[0] = null;
 				}
-				return array;
+				return target;
 			}
-			if (length > array.length) {
+			T[] result = target;
+			if (length > result.length) {
 				@SuppressWarnings("unchecked")
-				T[] newInstance = (T[]) Array.newInstance(array.getClass().getComponentType(), length);
-				array = newInstance;
+				T[] newInstance = (T[]) Array.newInstance(result.getClass().getComponentType(), length);
+				result = newInstance;
 			}
 			for (int i = 0; i < length; i++) {
-				array[i] = getService(references[i]);
+				result[i] = getService(references[i]);
 			}
-			if (array.length > length) {
-				array[length] = null;
+			if (result.length > length) {
+				result[length] = null;
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Read the tracked services consistently.
+	 * 
+	 * <p>
+	 * The tracked services can be read without synchronizing on the tracked
+	 * object, but a reader which calls several methods must see the same
+	 * tracked services in each call. The reader is called again if the tracked
+	 * services changed while it was reading. After {@link #MAX_READ_ATTEMPTS}
+	 * attempts, the reader is called while synchronized on the tracked object
+	 * so that the tracked services cannot change.
+	 * 
+	 * @param <A> The type of the result of the reader.
+	 * @param t The tracked object.
+	 * @param reader The reader of the tracked services.
+	 * @return The result of the reader.
+	 */
+	private <A> A read(final Tracked t, final Supplier<A> reader) {
+		for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+			final Ranking<S> snapshot = t.ranking();
+			A result = reader.get();
+			if (t.ranking() == snapshot) {
+				return result;
 			}
-			return array;
+		}
+		final long start = t.lockStart();
+		synchronized (t) {
+			t.lockEntered(start);
+			return reader.get();
 		}
 	}
 
@@ -868,11 +1112,28 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 	 * @ThreadSafe
 	 */
 	private class Tracked extends AbstractTracked<ServiceReference<S>, T, ServiceEvent> implements ServiceListener {
+		/**
+		 * The tracked services in ranking order.
+		 * 
+		 * This field is volatile so the tracked services can be read without
+		 * synchronizing on this object.
+		 * 
+		 * @GuardedBy this for assignment
+		 */
+		private volatile Ranking<S>	ranking;
+
+		/**
+		 * The executor to call the customizer for the initial items or
+		 * {@code null}. Only used by the thread opening the tracker.
+		 */
+		private Executor			executor;
+
 		/**
 		 * Tracked constructor.
 		 */
 		Tracked() {
 			super();
+			ranking = Ranking.empty();
 		}
 
 		/**
@@ -928,6 +1189,47 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			ServiceTracker.this.modified();
 		}
 
+		/**
+		 * Returns the tracked services in ranking order.
+		 * 
+		 * @return The tracked services in ranking order.
+		 */
+		final Ranking<S> ranking() {
+			return ranking;
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		final void itemAdded(final ServiceReference<S> reference, final Object info) {
+			ranking = ranking.add(reference);
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		final void itemModified(final ServiceReference<S> reference, final Object info) {
+			Ranking<S> r = ranking;
+			int index = r.indexOf(reference);
+			if ((index >= 0) && (r.rankings[index] != Ranking.rankingOf(reference))) {
+				ranking = r.remove(index).add(reference);
+			}
+		}
+
+		/**
+		 * @GuardedBy this
+		 */
+		@Override
+		final void itemRemoved(final ServiceReference<S> reference) {
+			Ranking<S> r = ranking;
+			int index = r.indexOf(reference);
+			if (index >= 0) {
+				ranking = r.remove(index);
+			}
+		}
+
 		/**
 		 * Call the specific customizer adding method. This method must not be
 		 * called while synchronized on this object.
@@ -942,6 +1244,103 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			return customizer.addingService(item);
 		}
 
+		/**
+		 * Track the initial list of items in one batch using the specified
+		 * executor.
+		 * 
+		 * @param e The executor to call the customizer or {@code null}.
+		 */
+		final void trackInitialBatch(final Executor e) {
+			executor = e;
+			try {
+				trackInitialBatch();
+			} finally {
+				executor = null;
+			}
+		}
+
+		/**
+		 * Call the specific customizer adding method for a batch of items.
+		 * This method must not be called while synchronized on this object.
+		 * 
+		 * @param items Items to be tracked.
+		 * @param objects Array in which to store the customized object for
+		 *        each item.
+		 */
+		@Override
+		final void customizerAddingBatch(final List<ServiceReference<S>> items, final T[] objects) {
+			if (customizer instanceof ServiceTrackerBatchCustomizer) {
+				final TrackerMetrics m = metrics();
+				final long start = (m == null) ? 0L : System.nanoTime();
+				List<T> result;
+				try {
+					result = ((ServiceTrackerBatchCustomizer<S, T>) customizer).addingServices(items);
+				} finally {
+					if (m != null) {
+						m.customizerCalled(TrackerMetrics.ADDING_BATCH, System.nanoTime() - start);
+					}
+				}
+				if (result == null) {
+					throw new IllegalStateException("addingServices returned null");
+				}
+				int length = Math.min(objects.length, result.size());
+				for (int i = 0; i < length; i++) {
+					objects[i] = result.get(i);
+				}
+				if (result.size() != objects.length) {
+					/* the objects stored so far are still tracked */
+					throw new IllegalStateException("addingServices returned " + result.size() + " objects for " + objects.length + " services");
+				}
+				return;
+			}
+			final Executor e = executor;
+			if (e == null) {
+				super.customizerAddingBatch(items, objects);
+				return;
+			}
+			@SuppressWarnings("unchecked")
+			FutureTask<T>[] tasks = (FutureTask<T>[]) new FutureTask< ? >[objects.length];
+			for (int i = 0; i < tasks.length; i++) {
+				final ServiceReference<S> item = items.get(i);
+				tasks[i] = new FutureTask<T>(() -> callAdding(item, null));
+				try {
+					e.execute(tasks[i]);
+				} catch (RejectedExecutionException rejected) {
+					tasks[i].run(); /* call the customizer on this thread */
+				}
+			}
+			/* wait for all tasks so every customized object is tracked */
+			Throwable failure = null;
+			boolean interrupted = false;
+			for (int i = 0; i < tasks.length; i++) {
+				while (true) {
+					try {
+						objects[i] = tasks[i].get();
+						break;
+					} catch (InterruptedException ie) {
+						interrupted = true;
+					} catch (ExecutionException ee) {
+						if (failure == null) {
+							failure = ee.getCause();
+						}
+						break;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			if (failure != null) {
+				throw new RuntimeException(failure);
+			}
+		}
+
 		/**
 		 * Call the specific customizer modified method. This method must not be
 		 * called while synchronized on this object.
@@ -984,4 +1383,123 @@ public class ServiceTracker<S, T> implements ServiceTrackerCustomizer<S, T> {
 			super();
 		}
 	}
+
+	/**
+	 * Immutable list of service references in ranking order. The ranking
+	 * order is descending service ranking and then ascending service id, which
+	 * is the order used by {@code BundleContext.getServiceReference}.
+	 * 
+	 * The service ranking is recorded when a service is added or modified,
+	 * since the service properties can change at any time.
+	 * 
+	 * @param <S> The type of the service.
+	 * @Immutable
+	 */
+	static final class Ranking<S> {
+		private static final Ranking< ? >	EMPTY	= new Ranking<Object>(newArray(0), new int[0], new long[0]);
+
+		final ServiceReference<S>[]		references;
+		final int[]						rankings;
+		final long[]					ids;
+
+		private Ranking(ServiceReference<S>[] references, int[] rankings, long[] ids) {
+			this.references = references;
+			this.rankings = rankings;
+			this.ids = ids;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <S> Ranking<S> empty() {
+			return (Ranking<S>) EMPTY;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <S> ServiceReference<S>[] newArray(int length) {
+			return (ServiceReference<S>[]) new ServiceReference< ? >[length];
+		}
+
+		static int rankingOf(ServiceReference< ? > reference) {
+			Object property = reference.getProperty(Constants.SERVICE_RANKING);
+			return (property instanceof Integer) ? ((Integer) property).intValue() : 0;
+		}
+
+		private static long idOf(ServiceReference< ? > reference) {
+			Object property = reference.getProperty(Constants.SERVICE_ID);
+			return (property instanceof Long) ? ((Long) property).longValue() : Long.MAX_VALUE;
+		}
+
+		/**
+		 * Returns the index of the specified reference.
+		 * 
+		 * @param reference The reference.
+		 * @return The index or -1 if the reference is not in this list.
+		 */
+		int indexOf(ServiceReference<S> reference) {
+			for (int i = 0; i < references.length; i++) {
+				if (references[i] == reference) {
+					return i;
+				}
+			}
+			for (int i = 0; i < references.length; i++) {
+				if (references[i].equals(reference)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns a list with the specified reference inserted in ranking
+		 * order.
+		 */
+		Ranking<S> add(ServiceReference<S> reference) {
+			final int ranking = rankingOf(reference);
+			final long id = idOf(reference);
+			/* binary search for the first position ranked after reference */
+			int low = 0;
+			int high = references.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if ((rankings[mid] > ranking) || ((rankings[mid] == ranking) && (ids[mid] <= id))) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			int length = references.length;
+			ServiceReference<S>[] r = newArray(length + 1);
+			int[] k = new int[length + 1];
+			long[] d = new long[length + 1];
+			System.arraycopy(references, 0, r, 0, low);
+			System.arraycopy(rankings, 0, k, 0, low);
+			System.arraycopy(ids, 0, d, 0, low);
+			r[low] = reference;
+			k[low] = ranking;
+			d[low] = id;
+			System.arraycopy(references, low, r, low + 1, length - low);
+			System.arraycopy(rankings, low, k, low + 1, length - low);
+			System.arraycopy(ids, low, d, low + 1, length - low);
+			return new Ranking<S>(r, k, d);
+		}
+
+		/**
+		 * Returns a list with the reference at the specified index removed.
+		 */
+		Ranking<S> remove(int index) {
+			int length = references.length - 1;
+			if (length == 0) {
+				return empty();
+			}
+			ServiceReference<S>[] r = newArray(length);
+			int[] k = new int[length];
+			long[] d = new long[length];
+			System.arraycopy(references, 0, r, 0, index);
+			System.arraycopy(rankings, 0, k, 0, index);
+			System.arraycopy(ids, 0, d, 0, index);
+			System.arraycopy(references, index + 1, r, index, length - index);
+			System.arraycopy(rankings, index + 1, k, index, length - index);
+			System.arraycopy(ids, index + 1, d, index, length - index);
+			return new Ranking<S>(r, k, d);
+		}
+	}
 }
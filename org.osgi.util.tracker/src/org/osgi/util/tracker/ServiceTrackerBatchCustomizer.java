@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.util.tracker;
+
+import java.util.List;
+
+import org.osgi.annotation.versioning.ConsumerType;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * The {@code ServiceTrackerBatchCustomizer} interface allows a
+ * {@code ServiceTracker} to customize the service objects of its initial
+ * services in one batch.
+ * 
+ * <p>
+ * When a {@code ServiceTracker} with a {@code ServiceTrackerBatchCustomizer}
+ * is opened, the services which match its search criteria at that time are
+ * passed to {@link #addingServices(List)} in a single call instead of being
+ * passed to {@link #addingService(ServiceReference) addingService} one at a
+ * time. This allows a customizer to prepare the service objects of many
+ * services together, for example concurrently. Services which are added to the
+ * {@code ServiceTracker} after it is opened are passed to
+ * {@code addingService}.
+ * 
+ * <p>
+ * The {@code ServiceTracker} class is thread-safe. It does not call a
+ * {@code ServiceTrackerBatchCustomizer} while holding any locks.
+ * {@code ServiceTrackerBatchCustomizer} implementations must also be
+ * thread-safe.
+ * 
+ * @param <S> The type of the service being tracked.
+ * @param <T> The type of the tracked object.
+ * @ThreadSafe
+ * @since 1.6
+ * @author $Id$
+ */
+@ConsumerType
+public interface ServiceTrackerBatchCustomizer<S, T> extends ServiceTrackerCustomizer<S, T> {
+	/**
+	 * The initial services are being added to the {@code ServiceTracker}.
+	 * 
+	 * <p>
+	 * This method is called once when the {@code ServiceTracker} is opened,
+	 * before the initial services are added to the {@code ServiceTracker}.
+	 * This method should return the service objects to be tracked for the
+	 * specified {@code ServiceReference}s. The returned service objects are
+	 * stored in the {@code ServiceTracker} in the order of the specified
+	 * {@code ServiceReference}s.
+	 * 
+	 * <p>
+	 * If a specified service is unregistered or no longer matches the search
+	 * parameters of the {@code ServiceTracker} while this method is called,
+	 * the service is not tracked and
+	 * {@link #removedService(ServiceReference, Object) removedService} is
+	 * called with its service object, as for a service removed while
+	 * {@code addingService} is called.
+	 * 
+	 * @param references The unmodifiable list of references to the services
+	 *        being added to the {@code ServiceTracker}.
+	 * @return A list with the same size as the specified list which contains,
+	 *         at the index of each reference, the service object to be tracked
+	 *         for the referenced service or {@code null} if the referenced
+	 *         service should not be tracked. Must not be {@code null}.
+	 * @throws IllegalStateException Thrown by the {@code ServiceTracker} if
+	 *         the returned list is {@code null} or its size differs from the
+	 *         size of the specified list. The service objects returned for
+	 *         the references at the indexes present in both lists are still
+	 *         tracked and the other services are not tracked.
+	 */
+	public List<T> addingServices(List<ServiceReference<S>> references);
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) Contributors to the Eclipse Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0 
+ *******************************************************************************/
+
+package org.osgi.util.tracker;
+
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * The {@code TrackerMetrics} interface receives measurements of the work done
+ * by a {@code ServiceTracker} or {@code BundleTracker}.
+ * 
+ * <p>
+ * A {@code TrackerMetrics} object can be set on a tracker with
+ * {@link ServiceTracker#setMetrics(TrackerMetrics)} or
+ * {@link BundleTracker#setMetrics(TrackerMetrics)} to observe how long the
+ * customizer callbacks take, how often items are added, modified and removed,
+ * how many initial items are tracked when the tracker is opened and how long
+ * the tracker waits to synchronize on its tracked items. Aggregating the
+ * measurements, for example into latency histograms or rates, is left to the
+ * {@code TrackerMetrics} implementation. A tracker without a
+ * {@code TrackerMetrics} object does not take any measurements.
+ * 
+ * <p>
+ * The methods of this interface are called on the threads doing the measured
+ * work, and {@link #lockWaited(long)} is called while the tracker is
+ * synchronized on its tracked items. Implementations must be thread-safe,
+ * must return quickly and must not call the tracker.
+ * 
+ * @ThreadSafe
+ * @since 1.6
+ * @author $Id$
+ */
+@ConsumerType
+public interface TrackerMetrics {
+	/**
+	 * The type of a call to the customizer to add an item.
+	 */
+	public final static int	ADDING			= 0x00000001;
+
+	/**
+	 * The type of a call to the customizer for a modified item.
+	 */
+	public final static int	MODIFIED		= 0x00000002;
+
+	/**
+	 * The type of a call to the customizer for a removed item.
+	 */
+	public final static int	REMOVED			= 0x00000004;
+
+	/**
+	 * The type of a call to a {@link ServiceTrackerBatchCustomizer} to add the
+	 * initial services in one batch.
+	 */
+	public final static int	ADDING_BATCH	= 0x00000008;
+
+	/**
+	 * A customizer callback has returned.
+	 * 
+	 * <p>
+	 * This method is called for every call to the customizer, including calls
+	 * which throw an exception, so the rates at which items are added,
+	 * modified and removed can be derived from these calls.
+	 * 
+	 * @param type The type of the callback. One of {@link #ADDING},
+	 *        {@link #MODIFIED}, {@link #REMOVED} or {@link #ADDING_BATCH}.
+	 * @param nanos The time in nanoseconds taken by the callback.
+	 */
+	public void customizerCalled(int type, long nanos);
+
+	/**
+	 * The tracker is opened and begins to track its initial items.
+	 * 
+	 * @param count The number of initial items waiting to be tracked.
+	 */
+	public void initialItems(int count);
+
+	/**
+	 * The tracker has synchronized on its tracked items.
+	 * 
+	 * <p>
+	 * This method is called while the tracker is synchronized.
+	 * 
+	 * @param nanos The time in nanoseconds the tracker waited to synchronize
+	 *        on its tracked items.
+	 */
+	public void lockWaited(long nanos);
+}